@@ -18,5 +18,16 @@ public abstract class Rng {
 		return nextInt().map2(x -> x < 0 ? -(x + 1) : x);
 	}
 
+	/**
+	 * Splits this generator into two whose values are independent, such as for two threads to draw from.
+	 * This default takes the seed of a {@link SplitMixRng} from this generator.
+	 *
+	 * @return This generator moved on, and a new generator.
+	 */
+	public P2<Rng, Rng> split() {
+		final P2<Rng, Long> p = nextLong();
+		return P.p(p._1(), new SplitMixRng(p._2()));
+	}
+
 
 }
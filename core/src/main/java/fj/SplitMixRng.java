@@ -0,0 +1,118 @@
+package fj;
+
+/**
+ * A splittable random number generator with the SplitMix64 algorithm (Steele, Lea and Flood, "Fast
+ * Splittable Pseudorandom Number Generators", OOPSLA 2014), which produces the same values as
+ * {@link java.util.SplittableRandom} from the same seed. A generator is a seed and an odd increment;
+ * each draw adds the increment to the seed and mixes the result, and {@link #split()} derives a new
+ * seed and increment, so that generators split from one another give independent streams that are
+ * reproducible from the first seed.
+ */
+public final class SplitMixRng extends Rng {
+  /** The increment of a generator that was not split from another, the odd integer nearest 2^64 divided by the golden ratio. */
+  public static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+  private final long gamma;
+
+  private SplitMixRng(final long seed, final long gamma) {
+    this.seed = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * A generator with the given seed.
+   *
+   * @param seed The seed of the generator.
+   */
+  public SplitMixRng(final long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  /** A generator with a seed taken from the current time. */
+  public SplitMixRng() {
+    this(mix64(System.nanoTime()) ^ mix64(System.currentTimeMillis()));
+  }
+
+  /**
+   * Mixes the bits of the given seed into the value of a draw.
+   *
+   * @param x A seed of a generator.
+   * @return The value of a draw at the given seed.
+   */
+  public static long mix64(final long x) {
+    long z = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  static int mix32(final long x) {
+    final long z = (x ^ (x >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  /**
+   * Mixes the bits of the given seed into the increment of a split generator, an odd number with
+   * enough bit transitions to mix well.
+   *
+   * @param x A seed of a generator.
+   * @return The increment of a generator split at the given seed.
+   */
+  public static long mixGamma(final long x) {
+    long z = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+  /**
+   * The value of the next draw as a primitive, without moving this generator on (see {@link #next()}).
+   *
+   * @return The long value of the next draw.
+   */
+  public long longValue() {
+    return mix64(seed + gamma);
+  }
+
+  /**
+   * The value of the next draw as a primitive int, without moving this generator on.
+   *
+   * @return The int value of the next draw.
+   */
+  public int intValue() {
+    return mix32(seed + gamma);
+  }
+
+  /**
+   * The value of the next draw as a double in [0, 1), without moving this generator on.
+   *
+   * @return The double value of the next draw.
+   */
+  public double doubleValue() {
+    return (longValue() >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * This generator after one draw.
+   *
+   * @return This generator after one draw.
+   */
+  public SplitMixRng next() {
+    return new SplitMixRng(seed + gamma, gamma);
+  }
+
+  public P2<Rng, Integer> nextInt() {
+    return P.p(next(), intValue());
+  }
+
+  public P2<Rng, Long> nextLong() {
+    return P.p(next(), longValue());
+  }
+
+  @Override
+  public P2<Rng, Rng> split() {
+    final long s = seed + gamma;
+    final long t = s + gamma;
+    return P.p(new SplitMixRng(t, gamma), new SplitMixRng(mix64(s), mixGamma(t)));
+  }
+}
@@ -2,10 +2,26 @@ package fj.control.db;
 
 import fj.F;
 import fj.Function;
+import fj.P;
+import fj.Unit;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import fj.data.List;
+import fj.data.Stream;
+import fj.function.Effect0;
+import fj.function.Try1;
+import fj.function.TryEffect1;
+import fj.function.TryEffect2;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static fj.Bottom.error;
 
 /**
  * The DB monad represents a database action, or a value within the context of a database connection.
@@ -117,4 +133,287 @@ public abstract class DB<A> {
   public static <A> DB<A> join(final DB<DB<A>> a) {
     return a.bind(Function.<DB<A>>identity());
   }
+
+  /**
+   * A database action that arranges for the given effect to be performed once the transaction it runs
+   * in commits. The effect is dropped if the transaction rolls back, and is performed at once if the
+   * action is not run by a {@link DbState}.
+   *
+   * @param e The effect to perform after the commit.
+   * @return A database action that performs the given effect after the commit.
+   */
+  public static DB<Unit> afterCommit(final Effect0 e) {
+    return new DB<Unit>() {
+      public Unit run(final Connection c) {
+        DbState.afterCommit(c, e);
+        return Unit.unit();
+      }
+    };
+  }
+
+  /**
+   * Caches the result of this action in the given cache under the given key for the given time, so
+   * that running the returned action again before then does not go to the database.
+   *
+   * @param cache The cache to keep the result in.
+   * @param key The key of the result, which identifies this action and its parameters.
+   * @param ttl How long the result is kept.
+   * @param unit The unit of the time to keep the result for.
+   * @return A database action equivalent to this one that reads through the cache.
+   */
+  public final DB<A> cached(final QueryCache cache, final Object key, final long ttl, final TimeUnit unit) {
+    return cached(cache, key, List.<String>nil(), ttl, unit);
+  }
+
+  /**
+   * Caches the result of this action in the given cache under the given key and tags for the given time,
+   * so that running the returned action again before then does not go to the database. The result is
+   * dropped from the cache early when its key or one of its tags is invalidated.
+   *
+   * @param cache The cache to keep the result in.
+   * @param key The key of the result, which identifies this action and its parameters.
+   * @param tags The tags of the result, such as the tables it reads.
+   * @param ttl How long the result is kept.
+   * @param unit The unit of the time to keep the result for.
+   * @return A database action equivalent to this one that reads through the cache.
+   */
+  public final DB<A> cached(final QueryCache cache, final Object key, final List<String> tags, final long ttl,
+                            final TimeUnit unit) {
+    return new DB<A>() {
+      public A run(final Connection c) throws SQLException {
+        return cache.get(key, tags, unit.toNanos(ttl), DB.this, c);
+      }
+    };
+  }
+
+  /**
+   * A database action that executes the given SQL query and feeds its rows, one at a time, to the given
+   * iteratee. Rows are fetched from the database in groups of the given size, reading stops as soon as
+   * the iteratee is done, and the result set is closed before the action returns, so a result of any
+   * size is read in memory bounded by the fetch size and the state of the iteratee.
+   *
+   * @param sql The SQL query to execute.
+   * @param params Sets the parameters of the query.
+   * @param row Reads the current row of the result.
+   * @param fetchSize The number of rows to fetch from the database at a time, a hint to the driver.
+   * @param i The iteratee to feed the rows to.
+   * @return A database action that results in the iteratee after it has been fed the rows.
+   */
+  public static <A, B> DB<IterV<A, B>> enumerate(final String sql, final TryEffect1<PreparedStatement, SQLException> params,
+                                                  final Try1<ResultSet, A, SQLException> row, final int fetchSize,
+                                                  final IterV<A, B> i) {
+    return new DB<IterV<A, B>>() {
+      public IterV<A, B> run(final Connection c) throws SQLException {
+        final PreparedStatement ps = Statements.prepare(c, sql);
+        try (final ResultSet rs = execute(ps, params, fetchSize)) {
+          IterV<A, B> it = i;
+          while (!it.isDone() && rs.next()) {
+            it = it.feed(Input.el(row.f(rs)));
+          }
+          return it;
+        } finally {
+          Statements.done(c, ps);
+        }
+      }
+    };
+  }
+
+  /**
+   * A database action that executes the given SQL query and passes its rows to the given function as a
+   * lazy stream. Rows are fetched from the database in groups of the given size as the stream is forced.
+   * The stream is only readable within the function: the result set is closed when the function returns,
+   * after which forcing an unread part of the stream is an error.
+   *
+   * @param sql The SQL query to execute.
+   * @param params Sets the parameters of the query.
+   * @param row Reads the current row of the result.
+   * @param fetchSize The number of rows to fetch from the database at a time, a hint to the driver.
+   * @param f The function to apply to the stream of rows.
+   * @return A database action that results in the result of the function.
+   */
+  public static <A, B> DB<B> withStream(final String sql, final TryEffect1<PreparedStatement, SQLException> params,
+                                        final Try1<ResultSet, A, SQLException> row, final int fetchSize,
+                                        final F<Stream<A>, B> f) {
+    return new DB<B>() {
+      public B run(final Connection c) throws SQLException {
+        final PreparedStatement ps = Statements.prepare(c, sql);
+        try (final ResultSet rs = execute(ps, params, fetchSize)) {
+          return f.f(rows(rs, row));
+        } catch (final Abort e) {
+          throw e.cause;
+        } finally {
+          Statements.done(c, ps);
+        }
+      }
+    };
+  }
+
+  // Carries an SQLException out of the forcing of a stream.
+  private static final class Abort extends RuntimeException {
+    private static final long serialVersionUID = 4183590245112873645L;
+
+    final SQLException cause;
+
+    Abort(final SQLException cause) {
+      super(cause);
+      this.cause = cause;
+    }
+  }
+
+  private static ResultSet execute(final PreparedStatement ps, final TryEffect1<PreparedStatement, SQLException> params,
+                                   final int fetchSize) throws SQLException {
+    if (fetchSize < 0) {
+      throw error("Can't fetch a negative number of rows.");
+    }
+    params.f(ps);
+    ps.setFetchSize(fetchSize);
+    return ps.executeQuery();
+  }
+
+  private static <A> Stream<A> rows(final ResultSet rs, final Try1<ResultSet, A, SQLException> row) {
+    try {
+      if (rs.isClosed()) {
+        throw error("The result set of the stream has been closed.");
+      }
+      return rs.next() ? Stream.cons(row.f(rs), P.lazy(u -> rows(rs, row))) : Stream.<A>nil();
+    } catch (final SQLException e) {
+      throw new Abort(e);
+    }
+  }
+
+  /**
+   * The number of rows that {@link #batch(String, List, TryEffect2)} sends to the database at a time.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * A database action that prepares the given SQL statement. Statements are cached per connection, so
+   * running the action again on the same connection returns the same statement with its parameters
+   * cleared; the statement must not be closed by the caller. The statements of a connection from a
+   * {@link PooledConnector} are kept for as long as the pool keeps the connection, and those of a
+   * connection running a transaction of a {@link DbState} until the transaction ends. On any other
+   * connection, a new statement is prepared each time, which the caller closes.
+   *
+   * @param sql The SQL statement to prepare.
+   * @return A database action that prepares the given statement.
+   */
+  public static DB<PreparedStatement> prepare(final String sql) {
+    return new DB<PreparedStatement>() {
+      public PreparedStatement run(final Connection c) throws SQLException {
+        return Statements.prepare(c, sql);
+      }
+    };
+  }
+
+  /**
+   * A database action that executes the given SQL update with the parameters that the given effect sets.
+   *
+   * @param sql The SQL statement to execute.
+   * @param params Sets the parameters of the statement.
+   * @return A database action that results in the number of rows updated.
+   */
+  public static DB<Integer> update(final String sql, final TryEffect1<PreparedStatement, SQLException> params) {
+    return new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        final PreparedStatement ps = Statements.prepare(c, sql);
+        try {
+          params.f(ps);
+          return ps.executeUpdate();
+        } finally {
+          Statements.done(c, ps);
+        }
+      }
+    };
+  }
+
+  /**
+   * A database action that executes the given SQL query with the parameters that the given effect sets,
+   * reading each row of the result with the given function.
+   *
+   * @param sql The SQL query to execute.
+   * @param params Sets the parameters of the query.
+   * @param row Reads the current row of the result.
+   * @return A database action that results in the rows of the result.
+   */
+  public static <A> DB<List<A>> query(final String sql, final TryEffect1<PreparedStatement, SQLException> params,
+                                      final Try1<ResultSet, A, SQLException> row) {
+    return new DB<List<A>>() {
+      public List<A> run(final Connection c) throws SQLException {
+        final PreparedStatement ps = Statements.prepare(c, sql);
+        try {
+          params.f(ps);
+          final List.Buffer<A> as = List.Buffer.empty();
+          try (final ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              as.snoc(row.f(rs));
+            }
+          }
+          return as.toList();
+        } finally {
+          Statements.done(c, ps);
+        }
+      }
+    };
+  }
+
+  /**
+   * A database action that executes the given SQL statement once for each of the given rows, sending
+   * the rows to the database in batches of {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @see #batch(String, List, TryEffect2, int)
+   */
+  public static <A> DB<Integer> batch(final String sql, final List<A> rows,
+                                      final TryEffect2<PreparedStatement, A, SQLException> params) {
+    return batch(sql, rows, params, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * A database action that executes the given SQL statement once for each of the given rows, sending
+   * the rows to the database in batches of the given size rather than one at a time.
+   *
+   * @param sql The SQL statement to execute.
+   * @param rows The rows to execute the statement for.
+   * @param params Sets the parameters of the statement for a row.
+   * @param batchSize The number of rows to send to the database at a time.
+   * @return A database action that results in the number of rows updated. Rows for which the driver
+   * does not report a count are counted as one.
+   */
+  public static <A> DB<Integer> batch(final String sql, final List<A> rows,
+                                      final TryEffect2<PreparedStatement, A, SQLException> params, final int batchSize) {
+    if (batchSize < 1) {
+      throw error("Can't create batches smaller than 1 row.");
+    }
+    return new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        final PreparedStatement ps = Statements.prepare(c, sql);
+        int updated = 0;
+        int pending = 0;
+        try {
+          for (final A a : rows) {
+            params.f(ps, a);
+            ps.addBatch();
+            if (++pending == batchSize) {
+              updated += count(ps.executeBatch());
+              pending = 0;
+            }
+          }
+          if (pending > 0) {
+            updated += count(ps.executeBatch());
+          }
+          return updated;
+        } finally {
+          ps.clearBatch();
+          Statements.done(c, ps);
+        }
+      }
+    };
+  }
+
+  private static int count(final int[] counts) {
+    int n = 0;
+    for (final int i : counts) {
+      n += i == Statement.SUCCESS_NO_INFO ? 1 : Math.max(i, 0);
+    }
+    return n;
+  }
 }
@@ -1,21 +1,55 @@
 package fj.control.db;
 
+import fj.P;
 import fj.Unit;
+import fj.control.parallel.ParModule;
+import fj.control.parallel.Promise;
+import fj.data.List;
+import fj.data.Validation;
+import fj.function.Effect0;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static fj.Bottom.error;
 
 /**
  * Performs database I/O, in order to read or write the database state.
  */
 public final class DbState {
+  // the effects to perform when the transaction running on a connection commits
+  private static final Map<Connection, java.util.List<Effect0>> commitHooks =
+      Collections.synchronizedMap(new IdentityHashMap<Connection, java.util.List<Effect0>>());
+  // the connections running the transaction of a writer, until it commits or rolls back
+  private static final Set<Connection> writers =
+      Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Connection, Boolean>()));
+
   private final Connector pc;
   private final DB<Unit> terminal;
+  private final int attempts;
+  private final long backoff;
+  private final long maxBackoff;
 
   private DbState(final Connector pc, final DB<Unit> terminal) {
+    this(pc, terminal, 1, 0, 0);
+  }
+
+  private DbState(final Connector pc, final DB<Unit> terminal, final int attempts, final long backoff,
+                  final long maxBackoff) {
     this.pc = pc;
     this.terminal = terminal;
+    this.attempts = attempts;
+    this.backoff = backoff;
+    this.maxBackoff = maxBackoff;
   }
 
   /**
@@ -87,25 +121,167 @@ public final class DbState {
   };
 
   /**
-   * Runs the given database action as a single transaction.
+   * Returns a database state like this one that runs a transaction again, up to the given number of
+   * attempts in all, when it fails with a transient error such as a deadlock or a serialization failure
+   * (see {@link #isTransient(SQLException)}). Each attempt runs the whole action in a new transaction
+   * after the previous one has been rolled back. Attempts are spaced by a randomized backoff that starts
+   * at the given delay and doubles with each attempt, up to the given maximum.
+   *
+   * @param attempts The greatest number of times to run a transaction.
+   * @param backoff The delay before the second attempt.
+   * @param maxBackoff The greatest delay between attempts.
+   * @param unit The unit of the delays.
+   * @return A database state that retries transactions failing with transient errors.
+   */
+  public DbState retry(final int attempts, final long backoff, final long maxBackoff, final TimeUnit unit) {
+    if (attempts < 1) {
+      throw error("Can't run a transaction less than once.");
+    }
+    return new DbState(pc, terminal, attempts, unit.toNanos(backoff), unit.toNanos(maxBackoff));
+  }
+
+  /**
+   * Whether the given error is worth retrying the transaction for: a rollback by the database, or an
+   * error with SQLState 40001 (serialization failure, which several databases also report for
+   * deadlocks) or 40P01 (deadlock detected).
+   *
+   * @param e An error of a transaction.
+   * @return Whether running the transaction again may succeed.
+   */
+  public static boolean isTransient(final SQLException e) {
+    for (SQLException x = e; x != null; x = x.getNextException()) {
+      if (x instanceof SQLTransactionRollbackException || "40001".equals(x.getSQLState()) ||
+          "40P01".equals(x.getSQLState())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs the given database action as a single transaction, retrying it on transient errors if this
+   * state was set up to with {@link #retry}.
    *
    * @param dba A database action to run.
    * @return The result of running the action against the database.
    * @throws SQLException in case of a database error.
    */
   public <A> A run(final DB<A> dba) throws SQLException {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transaction(dba);
+      } catch (final SQLException e) {
+        if (attempt >= attempts || !isTransient(e)) {
+          throw e;
+        }
+        pause(attempt);
+      }
+    }
+  }
+
+  private void pause(final int attempt) throws SQLException {
+    final long ceiling = ceiling(attempt);
+    final long nanos = ceiling / 2 + (ceiling > 1 ? ThreadLocalRandom.current().nextLong(ceiling / 2 + 1) : 0);
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting to retry a transaction", e);
+    }
+  }
+
+  // The greatest delay after the given attempt, the backoff doubled for each attempt before it, up to
+  // the maximum; shifts that would overflow give the maximum.
+  long ceiling(final int attempt) {
+    final int shift = attempt - 1;
+    return backoff > 0 && shift >= Long.numberOfLeadingZeros(backoff) ? maxBackoff : Math.min(maxBackoff, backoff << shift);
+  }
+
+  private <A> A transaction(final DB<A> dba) throws SQLException {
     final Connection c = pc.connect();
-    c.setAutoCommit(false);
+    final java.util.List<Effect0> hooks = new ArrayList<Effect0>();
+    final A a;
+    boolean started = false;
     try {
-      final A a = dba.run(c);
+      commitHooks.put(c, hooks);
+      if (terminal == commit) {
+        writers.add(c);
+      }
+      Statements.open(c);
+      c.setAutoCommit(false);
+      started = true;
+      a = dba.run(c);
       terminal.run(c);
-      return a;
-    } catch (SQLException e) {
-      c.rollback();
+    } catch (final Throwable e) {
+      if (started) {
+        c.rollback();
+      }
       throw e;
     }
     finally {
+      commitHooks.remove(c);
+      writers.remove(c);
+      Statements.release(c);
       c.close();
     }
+    if (terminal == commit) {
+      for (final Effect0 e : hooks) {
+        e.f();
+      }
+    }
+    return a;
+  }
+
+  /**
+   * Performs the given effect once the transaction that runs on the given connection commits, or now if
+   * the connection is not running a transaction of a database state.
+   */
+  static void afterCommit(final Connection c, final Effect0 e) {
+    final java.util.List<Effect0> hooks = commitHooks.get(c);
+    if (hooks == null) {
+      e.f();
+    } else {
+      hooks.add(e);
+    }
+  }
+
+  /**
+   * Whether the given connection is running the transaction of a writer, whose writes may yet be rolled
+   * back.
+   */
+  static boolean writing(final Connection c) {
+    return writers.contains(c);
+  }
+
+  /**
+   * Runs the given database action as a single transaction, concurrently with the caller.
+   *
+   * @param m The module whose strategy runs the transaction.
+   * @param dba A database action to run.
+   * @return A promise of the result of the action, or of the error that failed its transaction.
+   */
+  public <A> Promise<Validation<SQLException, A>> runPar(final ParModule m, final DB<A> dba) {
+    return m.promise(P.lazy(u -> attempt(dba)));
+  }
+
+  /**
+   * Runs each of the given database actions as a transaction of its own, concurrently. The transactions
+   * are independent: each commits or rolls back, and is retried, on its own, and how many run at once
+   * is bounded by the strategy of the module and by the connector, such as a {@link PooledConnector}.
+   *
+   * @param m The module whose strategy runs the transactions.
+   * @param dbas The database actions to run.
+   * @return A promise of the results of the actions, in the order of the actions.
+   */
+  public <A> Promise<List<Validation<SQLException, A>>> runAll(final ParModule m, final List<DB<A>> dbas) {
+    return m.parMap(dbas, this::attempt);
+  }
+
+  private <A> Validation<SQLException, A> attempt(final DB<A> dba) {
+    try {
+      return Validation.success(run(dba));
+    } catch (final SQLException e) {
+      return Validation.fail(e);
+    }
   }
 }
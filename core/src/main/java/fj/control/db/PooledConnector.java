@@ -0,0 +1,472 @@
+package fj.control.db;
+
+import fj.data.Option;
+import fj.function.Effect1;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static fj.Bottom.error;
+
+/**
+ * A connector that keeps a pool of open connections obtained from another connector, so that running
+ * a database action does not pay for establishing a connection. Closing a connection obtained from the
+ * pool returns it to the pool.
+ * <p/>
+ * At most {@link Settings#maxSize} connections are open at a time. Callers that find all of them in
+ * use wait in a fair queue, in arrival order, for at most {@link Settings#borrowTimeout}. Idle
+ * connections beyond {@link Settings#minSize} are closed once they have been idle for
+ * {@link Settings#idleTimeout}; eviction happens when connections are borrowed and returned, and on
+ * {@link #evict()}.
+ */
+public final class PooledConnector extends Connector {
+
+  /** The settings of a pool. */
+  public static final class Settings {
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeout;
+    private final long borrowTimeout;
+    private final int validationTimeout;
+    private final long leakThreshold;
+    private final Effect1<Throwable> onLeak;
+
+    private Settings(final int minSize, final int maxSize, final long idleTimeout, final long borrowTimeout,
+                     final int validationTimeout, final long leakThreshold, final Effect1<Throwable> onLeak) {
+      if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+        throw error("Pool sizes must satisfy 0 <= minSize <= maxSize and maxSize >= 1.");
+      }
+      this.minSize = minSize;
+      this.maxSize = maxSize;
+      this.idleTimeout = idleTimeout;
+      this.borrowTimeout = borrowTimeout;
+      this.validationTimeout = validationTimeout;
+      this.leakThreshold = leakThreshold;
+      this.onLeak = onLeak;
+    }
+
+    /**
+     * Settings for a pool of the given size, without idle eviction, validation or leak detection and
+     * with a borrow timeout of 30 seconds.
+     */
+    public static Settings settings(final int minSize, final int maxSize) {
+      return new Settings(minSize, maxSize, 0, TimeUnit.SECONDS.toNanos(30), -1, 0, null);
+    }
+
+    /** The number of idle connections that eviction keeps open. */
+    public int minSize() {
+      return minSize;
+    }
+
+    /** The greatest number of connections open at a time. */
+    public int maxSize() {
+      return maxSize;
+    }
+
+    /** How long a connection may be idle before it is evicted, in nanoseconds; 0 if never. */
+    public long idleTimeout() {
+      return idleTimeout;
+    }
+
+    /** How long a borrower waits for a connection, in nanoseconds. */
+    public long borrowTimeout() {
+      return borrowTimeout;
+    }
+
+    /** Closes idle connections beyond the minimum size after they have been idle for the given time. */
+    public Settings idleTimeout(final long time, final TimeUnit unit) {
+      return new Settings(minSize, maxSize, unit.toNanos(time), borrowTimeout, validationTimeout, leakThreshold, onLeak);
+    }
+
+    /** Fails a borrow with an <code>SQLException</code> if no connection becomes available within the given time. */
+    public Settings borrowTimeout(final long time, final TimeUnit unit) {
+      return new Settings(minSize, maxSize, idleTimeout, unit.toNanos(time), validationTimeout, leakThreshold, onLeak);
+    }
+
+    /**
+     * Checks idle connections with {@link Connection#isValid(int)} before lending them, discarding those
+     * that fail.
+     *
+     * @param seconds the time to wait for the check, 0 for no limit
+     */
+    public Settings validateOnBorrow(final int seconds) {
+      return new Settings(minSize, maxSize, idleTimeout, borrowTimeout, seconds, leakThreshold, onLeak);
+    }
+
+    /**
+     * Reports connections that are not returned within the given time to the given effect, with an
+     * exception whose stack trace shows where the connection was borrowed.
+     */
+    public Settings leakDetection(final long time, final TimeUnit unit, final Effect1<Throwable> onLeak) {
+      return new Settings(minSize, maxSize, idleTimeout, borrowTimeout, validationTimeout, unit.toNanos(time), onLeak);
+    }
+  }
+
+  /** A snapshot of the state and counters of a pool. */
+  public static final class Metrics {
+    private final int idle;
+    private final int active;
+    private final int waiting;
+    private final long created;
+    private final long borrowed;
+    private final long timeouts;
+    private final long invalid;
+    private final long evicted;
+    private final long leaks;
+
+    private Metrics(final int idle, final int active, final int waiting, final long created, final long borrowed,
+                    final long timeouts, final long invalid, final long evicted, final long leaks) {
+      this.idle = idle;
+      this.active = active;
+      this.waiting = waiting;
+      this.created = created;
+      this.borrowed = borrowed;
+      this.timeouts = timeouts;
+      this.invalid = invalid;
+      this.evicted = evicted;
+      this.leaks = leaks;
+    }
+
+    /** The number of open connections in the pool that are not lent out. */
+    public int idle() {
+      return idle;
+    }
+
+    /** The number of connections that are lent out. */
+    public int active() {
+      return active;
+    }
+
+    /** The number of borrowers waiting for a connection. */
+    public int waiting() {
+      return waiting;
+    }
+
+    /** The number of connections the pool has opened. */
+    public long created() {
+      return created;
+    }
+
+    /** The number of connections the pool has lent out. */
+    public long borrowed() {
+      return borrowed;
+    }
+
+    /** The number of borrows that timed out. */
+    public long timeouts() {
+      return timeouts;
+    }
+
+    /** The number of idle connections that failed validation. */
+    public long invalid() {
+      return invalid;
+    }
+
+    /** The number of idle connections closed by eviction. */
+    public long evicted() {
+      return evicted;
+    }
+
+    /** The number of leaked connections reported. */
+    public long leaks() {
+      return leaks;
+    }
+
+    @Override
+    public String toString() {
+      return "Metrics(idle=" + idle + ", active=" + active + ", waiting=" + waiting + ", created=" + created +
+        ", borrowed=" + borrowed + ", timeouts=" + timeouts + ", invalid=" + invalid + ", evicted=" + evicted +
+        ", leaks=" + leaks + ")";
+    }
+  }
+
+  // An open connection of the pool that is not lent out.
+  private static final class Idle {
+    final Connection connection;
+    final long since;
+
+    Idle(final Connection connection, final long since) {
+      this.connection = connection;
+      this.since = since;
+    }
+  }
+
+  // A lent out connection, with where it was borrowed if leaks are detected.
+  private static final class Loan {
+    final Connection connection;
+    final long since = System.nanoTime();
+    final Throwable origin;
+    volatile boolean reported = false;
+
+    Loan(final Connection connection, final Throwable origin) {
+      this.connection = connection;
+      this.origin = origin;
+    }
+  }
+
+  private final Connector connector;
+  private final Settings settings;
+  private final Semaphore permits;
+  // most recently returned first, so that busy periods reuse warm connections and the rest can be evicted
+  private final LinkedBlockingDeque<Idle> idle = new LinkedBlockingDeque<Idle>();
+  private final Map<Connection, Loan> loans = new ConcurrentHashMap<Connection, Loan>();
+  private final AtomicLong created = new AtomicLong();
+  private final AtomicLong borrowed = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong invalid = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private final AtomicLong leaks = new AtomicLong();
+
+  private PooledConnector(final Connector connector, final Settings settings) {
+    this.connector = connector;
+    this.settings = settings;
+    this.permits = new Semaphore(settings.maxSize, true);
+  }
+
+  /**
+   * A pool of connections obtained from the given connector.
+   *
+   * @param connector The connector that opens the connections of the pool.
+   * @param settings The settings of the pool.
+   * @return A connector that lends out connections from the pool.
+   */
+  public static PooledConnector pool(final Connector connector, final Settings settings) {
+    return new PooledConnector(connector, settings);
+  }
+
+  /**
+   * Borrows a connection from the pool, waiting in turn if all connections are lent out.
+   *
+   * @return A connection that returns to the pool when it is closed.
+   * @throws SQLException if no connection became available within the borrow timeout, or a new one could not be
+   * opened.
+   */
+  public Connection connect() throws SQLException {
+    detectLeaks();
+    try {
+      if (!permits.tryAcquire(settings.borrowTimeout, TimeUnit.NANOSECONDS)) {
+        timeouts.incrementAndGet();
+        throw new SQLException("Timed out waiting for a connection: " + metrics());
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a connection", e);
+    }
+    final Connection c;
+    try {
+      c = take();
+    } catch (final SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+    try {
+      final Connection lent = lend(c);
+      // a stack trace is only worth taking if it may be reported
+      loans.put(lent, new Loan(c, settings.leakThreshold > 0 ?
+        new Throwable("Connection borrowed here was not returned to the pool") : null));
+      borrowed.incrementAndGet();
+      return lent;
+    } catch (final SQLException | RuntimeException e) {
+      closeQuietly(c);
+      permits.release();
+      throw e;
+    }
+  }
+
+  // An idle connection that passes validation, or a new one.
+  private Connection take() throws SQLException {
+    evict();
+    for (Idle i = idle.pollFirst(); i != null; i = idle.pollFirst()) {
+      if (settings.validationTimeout < 0 || isValid(i.connection)) {
+        return i.connection;
+      }
+      invalid.incrementAndGet();
+      closeQuietly(i.connection);
+    }
+    final Connection c = connector.connect();
+    created.incrementAndGet();
+    return c;
+  }
+
+  private boolean isValid(final Connection c) {
+    try {
+      return c.isValid(settings.validationTimeout);
+    } catch (final SQLException e) {
+      return false;
+    }
+  }
+
+  // A proxy of the given connection whose close returns the connection to the pool.
+  private Connection lend(final Connection c) throws SQLException {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+      new Lent(c));
+  }
+
+  /** The handler of a lent connection, through which the physical connection behind it can be found. */
+  final class Lent implements InvocationHandler {
+    final Connection physical;
+    // the state of the connection when it was lent out, which it is reset to when it is returned
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private final int isolation;
+    private boolean closed = false;
+
+    Lent(final Connection physical) throws SQLException {
+      this.physical = physical;
+      this.autoCommit = physical.getAutoCommit();
+      this.readOnly = physical.isReadOnly();
+      this.isolation = physical.getTransactionIsolation();
+    }
+
+    // Rolls back the work the borrower left uncommitted and undoes its changes to the connection state.
+    void reset() throws SQLException {
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+      }
+      if (physical.getAutoCommit() != autoCommit) {
+        physical.setAutoCommit(autoCommit);
+      }
+      if (physical.isReadOnly() != readOnly) {
+        physical.setReadOnly(readOnly);
+      }
+      if (physical.getTransactionIsolation() != isolation) {
+        physical.setTransactionIsolation(isolation);
+      }
+    }
+
+    public Object invoke(final Object proxy, final Method m, final Object[] args) throws Throwable {
+      final String name = m.getName();
+      if (name.equals("close") && m.getParameterTypes().length == 0) {
+        if (!closed) {
+          closed = true;
+          giveBack((Connection) proxy, this);
+        }
+        return null;
+      } else if (name.equals("isClosed") && m.getParameterTypes().length == 0) {
+        return closed || physical.isClosed();
+      } else if (name.equals("equals") && m.getParameterTypes().length == 1) {
+        return proxy == args[0];
+      } else if (name.equals("hashCode") && m.getParameterTypes().length == 0) {
+        return System.identityHashCode(proxy);
+      } else if (closed) {
+        throw new SQLException("Connection has been returned to the pool");
+      }
+      try {
+        return m.invoke(physical, args);
+      } catch (final InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /**
+   * The physical connection behind the given one if it was lent out by a pool, or none if it was not.
+   */
+  static Option<Connection> physical(final Connection c) {
+    if (Proxy.isProxyClass(c.getClass())) {
+      final InvocationHandler h = Proxy.getInvocationHandler(c);
+      if (h instanceof Lent) {
+        return Option.some(((Lent) h).physical);
+      }
+    }
+    return Option.none();
+  }
+
+  private void giveBack(final Connection lent, final Lent l) {
+    final Connection c = l.physical;
+    loans.remove(lent);
+    try {
+      if (!c.isClosed()) {
+        l.reset();
+        idle.offerFirst(new Idle(c, System.nanoTime()));
+      } else {
+        Statements.forget(c);
+      }
+    } catch (final SQLException e) {
+      closeQuietly(c);
+    } finally {
+      permits.release();
+    }
+    evict();
+  }
+
+  /**
+   * Opens connections until the pool holds at least {@link Settings#minSize} idle ones.
+   *
+   * @throws SQLException if a connection could not be opened.
+   */
+  public void fill() throws SQLException {
+    while (idle.size() < settings.minSize && idle.size() + loans.size() < settings.maxSize) {
+      idle.offerLast(new Idle(connector.connect(), System.nanoTime()));
+      created.incrementAndGet();
+    }
+  }
+
+  /** Closes idle connections beyond the minimum size that have been idle longer than the idle timeout. */
+  public void evict() {
+    if (settings.idleTimeout <= 0) {
+      return;
+    }
+    final long now = System.nanoTime();
+    // the least recently returned connections are at the end of the deque
+    for (Idle i = idle.peekLast(); i != null && idle.size() > settings.minSize && now - i.since > settings.idleTimeout;
+         i = idle.peekLast()) {
+      if (idle.removeLastOccurrence(i)) {
+        evicted.incrementAndGet();
+        closeQuietly(i.connection);
+      }
+    }
+  }
+
+  private void detectLeaks() {
+    if (settings.leakThreshold <= 0) {
+      return;
+    }
+    final long now = System.nanoTime();
+    for (final Loan l : loans.values()) {
+      if (!l.reported && now - l.since > settings.leakThreshold) {
+        l.reported = true;
+        leaks.incrementAndGet();
+        settings.onLeak.f(l.origin);
+      }
+    }
+  }
+
+  /** Returns a snapshot of the state and counters of this pool. */
+  public Metrics metrics() {
+    return new Metrics(idle.size(), loans.size(), permits.getQueueLength(), created.get(), borrowed.get(),
+      timeouts.get(), invalid.get(), evicted.get(), leaks.get());
+  }
+
+  /**
+   * Closes the idle connections of this pool. Connections that are lent out are not affected, and
+   * return to the pool when they are closed.
+   */
+  public void closeIdle() {
+    for (final Iterator<Idle> i = idle.iterator(); i.hasNext(); ) {
+      final Idle x = i.next();
+      i.remove();
+      closeQuietly(x.connection);
+    }
+  }
+
+  private static void closeQuietly(final Connection c) {
+    Statements.forget(c);
+    try {
+      c.close();
+    } catch (final SQLException e) {
+      // the connection is discarded either way
+    }
+  }
+}
@@ -0,0 +1,334 @@
+package fj.control.db;
+
+import fj.Unit;
+import fj.data.List;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static fj.Bottom.error;
+
+/**
+ * A bounded in-process cache of the results of database actions, for reads of rows that change
+ * slowly. Results are cached with {@link DB#cached}, and expire after the time they were cached for or
+ * when the cache is full and they are the least recently used ({@link #lru}) or least frequently used
+ * ({@link #lfu}) result. Writers drop results early with {@link #invalidateKeys} and
+ * {@link #invalidateTags}, which take effect when their transaction commits.
+ * <p/>
+ * Concurrent misses of the same key each run the action; a result read before an invalidation that
+ * completes after it is not cached. A result read in the transaction of a writer is only cached once
+ * the transaction commits, since it may include writes that are rolled back.
+ */
+public final class QueryCache {
+
+  /** A snapshot of the counters of a cache. */
+  public static final class Metrics {
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    private Metrics(final int size, final long hits, final long misses, final long evictions, final long invalidations) {
+      this.size = size;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.invalidations = invalidations;
+    }
+
+    /** The number of results in the cache. */
+    public int size() {
+      return size;
+    }
+
+    /** The number of reads answered from the cache. */
+    public long hits() {
+      return hits;
+    }
+
+    /** The number of reads that went to the database. */
+    public long misses() {
+      return misses;
+    }
+
+    /** The number of results dropped to make room for others. */
+    public long evictions() {
+      return evictions;
+    }
+
+    /** The number of results dropped by invalidation. */
+    public long invalidations() {
+      return invalidations;
+    }
+
+    /** The fraction of reads answered from the cache. */
+    public double hitRatio() {
+      return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+      return "Metrics(size=" + size + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions +
+        ", invalidations=" + invalidations + ")";
+    }
+  }
+
+  // Orders the keys of a cache for eviction.
+  private static abstract class Policy {
+    abstract void add(Object key);
+
+    abstract void touch(Object key);
+
+    abstract void remove(Object key);
+
+    // The key to evict.
+    abstract Object victim();
+  }
+
+  private static final class Lru extends Policy {
+    private final LinkedHashSet<Object> order = new LinkedHashSet<Object>();
+
+    void add(final Object key) {
+      order.add(key);
+    }
+
+    void touch(final Object key) {
+      order.remove(key);
+      order.add(key);
+    }
+
+    void remove(final Object key) {
+      order.remove(key);
+    }
+
+    Object victim() {
+      return order.iterator().next();
+    }
+  }
+
+  // Keys in buckets by use count, each bucket least recently used first, so that every operation is constant time.
+  private static final class Lfu extends Policy {
+    private final Map<Object, Integer> counts = new HashMap<Object, Integer>();
+    private final Map<Integer, LinkedHashSet<Object>> buckets = new HashMap<Integer, LinkedHashSet<Object>>();
+    private int min = 0;
+
+    private void put(final Object key, final int count) {
+      counts.put(key, count);
+      LinkedHashSet<Object> b = buckets.get(count);
+      if (b == null) {
+        b = new LinkedHashSet<Object>();
+        buckets.put(count, b);
+      }
+      b.add(key);
+    }
+
+    // Removes the key from its bucket, returning its count.
+    private int unbucket(final Object key) {
+      final int count = counts.remove(key);
+      final LinkedHashSet<Object> b = buckets.get(count);
+      b.remove(key);
+      if (b.isEmpty()) {
+        buckets.remove(count);
+        if (min == count) {
+          min++;
+        }
+      }
+      return count;
+    }
+
+    void add(final Object key) {
+      put(key, 1);
+      min = 1;
+    }
+
+    void touch(final Object key) {
+      put(key, unbucket(key) + 1);
+    }
+
+    void remove(final Object key) {
+      unbucket(key);
+      if (!counts.isEmpty() && !buckets.containsKey(min)) {
+        min = Integer.MAX_VALUE;
+        for (final int c : buckets.keySet()) {
+          min = Math.min(min, c);
+        }
+      }
+    }
+
+    Object victim() {
+      return buckets.get(min).iterator().next();
+    }
+  }
+
+  private static final class Entry {
+    final Object value;
+    final long expires;
+    final List<String> tags;
+
+    Entry(final Object value, final long expires, final List<String> tags) {
+      this.value = value;
+      this.expires = expires;
+      this.tags = tags;
+    }
+  }
+
+  private final int capacity;
+  private final Policy policy;
+  private final Map<Object, Entry> entries = new HashMap<Object, Entry>();
+  private final Map<String, Set<Object>> tagged = new HashMap<String, Set<Object>>();
+  // counts invalidations, so that a read that overlaps one is not cached
+  private long generation = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  private QueryCache(final int capacity, final Policy policy) {
+    if (capacity < 1) {
+      throw error("Can't create a cache smaller than 1 entry.");
+    }
+    this.capacity = capacity;
+    this.policy = policy;
+  }
+
+  /** A cache of at most the given number of results that evicts the least recently used one. */
+  public static QueryCache lru(final int capacity) {
+    return new QueryCache(capacity, new Lru());
+  }
+
+  /**
+   * A cache of at most the given number of results that evicts the least frequently used one, the
+   * least recently used first among equally used ones.
+   */
+  public static QueryCache lfu(final int capacity) {
+    return new QueryCache(capacity, new Lfu());
+  }
+
+  // Reads the result for the given key from the cache or, running the given action, through it.
+  @SuppressWarnings("unchecked")
+  <A> A get(final Object key, final List<String> tags, final long ttl, final DB<A> dba, final Connection c)
+      throws SQLException {
+    final long start;
+    synchronized (this) {
+      final Entry e = entries.get(key);
+      if (e != null && e.expires - System.nanoTime() > 0) {
+        hits++;
+        policy.touch(key);
+        return (A) e.value;
+      }
+      if (e != null) {
+        remove(key);
+      }
+      misses++;
+      start = generation;
+    }
+    final A a = dba.run(c);
+    // a writer may have read its own writes, so its result is only cached if they are committed
+    if (DbState.writing(c)) {
+      DbState.afterCommit(c, () -> offer(key, tags, ttl, a, start));
+    } else {
+      offer(key, tags, ttl, a, start);
+    }
+    return a;
+  }
+
+  // Caches the given result, read since the given generation, unless it overlapped an invalidation.
+  private synchronized void offer(final Object key, final List<String> tags, final long ttl, final Object a,
+                                  final long start) {
+    if (generation == start) {
+      put(key, new Entry(a, System.nanoTime() + ttl, tags));
+    }
+  }
+
+  private void put(final Object key, final Entry e) {
+    if (entries.containsKey(key)) {
+      remove(key);
+    } else if (entries.size() >= capacity) {
+      remove(policy.victim());
+      evictions++;
+    }
+    entries.put(key, e);
+    policy.add(key);
+    for (final String t : e.tags) {
+      Set<Object> keys = tagged.get(t);
+      if (keys == null) {
+        keys = new HashSet<Object>();
+        tagged.put(t, keys);
+      }
+      keys.add(key);
+    }
+  }
+
+  private void remove(final Object key) {
+    final Entry e = entries.remove(key);
+    policy.remove(key);
+    for (final String t : e.tags) {
+      final Set<Object> keys = tagged.get(t);
+      keys.remove(key);
+      if (keys.isEmpty()) {
+        tagged.remove(t);
+      }
+    }
+  }
+
+  /** Drops the results with the given keys from this cache now. */
+  public synchronized void invalidate(final List<Object> keys) {
+    generation++;
+    for (final Object k : keys) {
+      if (entries.containsKey(k)) {
+        remove(k);
+        invalidations++;
+      }
+    }
+  }
+
+  /** Drops the results with any of the given tags from this cache now. */
+  public synchronized void invalidateTagged(final List<String> tags) {
+    generation++;
+    for (final String t : tags) {
+      final Set<Object> keys = tagged.get(t);
+      if (keys != null) {
+        for (final Object k : new HashSet<Object>(keys)) {
+          remove(k);
+          invalidations++;
+        }
+      }
+    }
+  }
+
+  /** Drops every result from this cache now. */
+  public synchronized void clear() {
+    generation++;
+    invalidations += entries.size();
+    for (final Object k : new HashSet<Object>(entries.keySet())) {
+      remove(k);
+    }
+  }
+
+  /**
+   * A database action that drops the results with the given keys from this cache once its transaction
+   * commits, for writers to run alongside the writes that change those results.
+   */
+  public DB<Unit> invalidateKeys(final List<Object> keys) {
+    return DB.afterCommit(() -> invalidate(keys));
+  }
+
+  /**
+   * A database action that drops the results with any of the given tags from this cache once its
+   * transaction commits, for writers to run alongside the writes that change those results.
+   */
+  public DB<Unit> invalidateTags(final List<String> tags) {
+    return DB.afterCommit(() -> invalidateTagged(tags));
+  }
+
+  /** Returns a snapshot of the counters of this cache. */
+  public synchronized Metrics metrics() {
+    return new Metrics(entries.size(), hits, misses, evictions, invalidations);
+  }
+}
@@ -0,0 +1,130 @@
+package fj.control.db;
+
+import fj.data.Option;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The prepared statements of each physical connection, most recently used first, so that database
+ * actions can reuse statements instead of preparing them again. Statements are only kept for
+ * connections whose end is known: those lent out by a {@link PooledConnector}, whose statements outlive
+ * the loan and are closed when the pool closes the connection, and those running a transaction of a
+ * {@link DbState}, whose statements are closed when the transaction ends. The statements of any other
+ * connection are prepared afresh for each action and closed by it.
+ */
+final class Statements {
+
+  /** The number of statements kept for each connection. */
+  static final int CAPACITY = 64;
+
+  private static final Map<Connection, Map<String, PreparedStatement>> caches =
+      Collections.synchronizedMap(new IdentityHashMap<Connection, Map<String, PreparedStatement>>());
+
+  private Statements() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * A prepared statement for the given SQL on the given connection, with its parameters cleared. The
+   * statement is to be given back with {@link #done} once it has been used.
+   */
+  static PreparedStatement prepare(final Connection c, final String sql) throws SQLException {
+    final Map<String, PreparedStatement> cache = cache(c);
+    if (cache == null) {
+      return c.prepareStatement(sql);
+    }
+    synchronized (cache) {
+      final PreparedStatement cached = cache.get(sql);
+      if (cached != null && !cached.isClosed()) {
+        cached.clearParameters();
+        return cached;
+      }
+      final PreparedStatement ps = PooledConnector.physical(c).orSome(c).prepareStatement(sql);
+      cache.put(sql, ps);
+      return ps;
+    }
+  }
+
+  /** Closes the given statement of the given connection unless it is kept for reuse. */
+  static void done(final Connection c, final PreparedStatement ps) throws SQLException {
+    if (cache(c) == null) {
+      ps.close();
+    }
+  }
+
+  /**
+   * Keeps the statements of the given connection, which is running a transaction, until it is
+   * {@link #release released}.
+   */
+  static void open(final Connection c) {
+    if (PooledConnector.physical(c).isNone()) {
+      caches.put(c, newCache());
+    }
+  }
+
+  // The statements kept for the given connection, or null if it has no known end.
+  private static Map<String, PreparedStatement> cache(final Connection c) {
+    final Option<Connection> physical = PooledConnector.physical(c);
+    synchronized (caches) {
+      if (physical.isNone()) {
+        return caches.get(c);
+      }
+      Map<String, PreparedStatement> cache = caches.get(physical.some());
+      if (cache == null) {
+        cache = newCache();
+        caches.put(physical.some(), cache);
+      }
+      return cache;
+    }
+  }
+
+  private static Map<String, PreparedStatement> newCache() {
+    return new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> eldest) {
+        if (size() > CAPACITY) {
+          closeQuietly(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Closes the statements of the given connection unless it was lent out by a pool, which keeps them
+   * for the next loan.
+   */
+  static void release(final Connection c) {
+    if (PooledConnector.physical(c).isNone()) {
+      forget(c);
+    }
+  }
+
+  /** Closes the statements of the given physical connection. */
+  static void forget(final Connection physical) {
+    final Option<Map<String, PreparedStatement>> cache = Option.fromNull(caches.remove(physical));
+    if (cache.isSome()) {
+      synchronized (cache.some()) {
+        for (final PreparedStatement ps : cache.some().values()) {
+          closeQuietly(ps);
+        }
+        cache.some().clear();
+      }
+    }
+  }
+
+  private static void closeQuietly(final PreparedStatement ps) {
+    try {
+      ps.close();
+    } catch (final SQLException e) {
+      // the statement is discarded either way
+    }
+  }
+}
@@ -0,0 +1,280 @@
+package fj.data;
+
+import static fj.Bottom.error;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.TimeUnit;
+
+import fj.F;
+import fj.Unit;
+import fj.control.parallel.Actor;
+import fj.control.parallel.Strategy;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import fj.function.Effect1;
+
+/**
+ * An output stream fronted by a reusable buffer. Lines and bytes written through the IO actions of a
+ * sink are batched in the buffer, and the buffer is written out when it is full, when its
+ * {@link FlushPolicy} asks for it, on {@link #flush()} and on {@link #close()}, so that many small
+ * writes cost one system call.
+ * <p/>
+ * A sink is not thread-safe; use {@link #actor} to share it between threads.
+ *
+ * @see IOFunctions#writeFile
+ * @see IOFunctions#appendFile
+ */
+public final class BufferedSink {
+
+  /** Decides when a sink writes out its buffer, in addition to when the buffer is full. */
+  public static abstract class FlushPolicy {
+
+    FlushPolicy() {} // sealed
+
+    // Whether a sink holding the given number of bytes, last flushed the given number of nanoseconds ago, flushes.
+    abstract boolean flush(final int buffered, final long sinceFlush);
+
+    /** Flushes when either this policy or the given one does. */
+    public final FlushPolicy or(final FlushPolicy p) {
+      return new FlushPolicy() {
+        @Override
+        boolean flush(final int buffered, final long sinceFlush) {
+          return FlushPolicy.this.flush(buffered, sinceFlush) || p.flush(buffered, sinceFlush);
+        }
+      };
+    }
+
+    /** Flushes only when the buffer is full or a flush is asked for. */
+    public static FlushPolicy whenFull() {
+      return new FlushPolicy() {
+        @Override
+        boolean flush(final int buffered, final long sinceFlush) {
+          return false;
+        }
+      };
+    }
+
+    /** Flushes once at least the given number of bytes is buffered. */
+    public static FlushPolicy bySize(final int bytes) {
+      return new FlushPolicy() {
+        @Override
+        boolean flush(final int buffered, final long sinceFlush) {
+          return buffered >= bytes;
+        }
+      };
+    }
+
+    /**
+     * Flushes on the first write once the given time has passed since the last flush. The time is
+     * checked when writing, so a sink that is not written to is not flushed.
+     */
+    public static FlushPolicy byTime(final long time, final TimeUnit unit) {
+      final long nanos = unit.toNanos(time);
+      return new FlushPolicy() {
+        @Override
+        boolean flush(final int buffered, final long sinceFlush) {
+          return sinceFlush >= nanos;
+        }
+      };
+    }
+  }
+
+  /** The default size of the buffer of a sink. */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static final char[] NEWLINE = { '\n' };
+
+  private final OutputStream out;
+  private final ByteBuffer buffer;
+  private final CharsetEncoder encoder;
+  private final FlushPolicy policy;
+  private long flushed = System.nanoTime();
+  private char pending;
+
+  private BufferedSink(final OutputStream out, final int bufferSize, final Charset charset, final FlushPolicy policy) {
+    this.out = out;
+    this.buffer = ByteBuffer.allocate(bufferSize);
+    this.encoder = charset.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.policy = policy;
+  }
+
+  /**
+   * A sink over the given output stream.
+   *
+   * @param out the stream to write to, which the sink closes when it is closed
+   * @param bufferSize the size of the buffer in bytes
+   * @param encoding the encoding of written lines, {@link Option#none()} means platform default
+   * @param policy when to write out the buffer before it is full
+   */
+  public static BufferedSink sink(final OutputStream out, final int bufferSize, final Option<Charset> encoding, final FlushPolicy policy) {
+    if (bufferSize < 1) {
+      throw error("Can't create a buffer smaller than 1 byte.");
+    }
+    return new BufferedSink(out, bufferSize, encoding.orSome(Charset.defaultCharset()), policy);
+  }
+
+  // Writes the buffered bytes to the output stream.
+  private void drain() throws IOException {
+    if (buffer.position() > 0) {
+      out.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+    }
+  }
+
+  // Encodes the given characters into the buffer. A high surrogate at the end of the characters is
+  // held back until the next write, which completes it or leaves it to be replaced as malformed.
+  private void encode(final CharBuffer chars, final boolean endOfInput) throws IOException {
+    while (pending != 0 && (chars.hasRemaining() || endOfInput)) {
+      final CharBuffer held = CharBuffer.wrap(chars.hasRemaining() ? new char[] { pending, chars.get() } : new char[] { pending });
+      pending = 0;
+      encode(held, endOfInput && !chars.hasRemaining());
+    }
+    while (true) {
+      final CoderResult r = encoder.encode(chars, buffer, endOfInput);
+      if (r.isOverflow()) {
+        drain();
+      } else if (r.isError()) {
+        r.throwException();
+      } else {
+        if (chars.hasRemaining()) {
+          pending = chars.get();
+        }
+        return;
+      }
+    }
+  }
+
+  private void put(final byte[] bytes) throws IOException {
+    if (bytes.length > buffer.remaining()) {
+      drain();
+    }
+    if (bytes.length >= buffer.capacity()) {
+      out.write(bytes);
+    } else {
+      buffer.put(bytes);
+    }
+  }
+
+  private void flushNow() throws IOException {
+    drain();
+    out.flush();
+    flushed = System.nanoTime();
+  }
+
+  private void written() throws IOException {
+    if (policy.flush(buffer.position(), System.nanoTime() - flushed)) {
+      flushNow();
+    }
+  }
+
+  private void line(final String s) throws IOException {
+    encode(CharBuffer.wrap(s), false);
+    encode(CharBuffer.wrap(NEWLINE), false);
+  }
+
+  /** Writes the given string followed by a newline. */
+  public IO<Unit> writeLine(final String s) {
+    return () -> {
+      line(s);
+      written();
+      return Unit.unit();
+    };
+  }
+
+  /** Writes each of the given strings followed by a newline. */
+  public IO<Unit> writeLines(final List<String> lines) {
+    return () -> {
+      for (final String s : lines) {
+        line(s);
+      }
+      written();
+      return Unit.unit();
+    };
+  }
+
+  /** Writes the given bytes. */
+  public IO<Unit> writeBytes(final byte[] bytes) {
+    return () -> {
+      put(bytes);
+      written();
+      return Unit.unit();
+    };
+  }
+
+  /** Writes out the buffer and flushes the output stream. */
+  public IO<Unit> flush() {
+    return () -> {
+      flushNow();
+      return Unit.unit();
+    };
+  }
+
+  /** Writes out the buffer and closes the output stream. */
+  public IO<Unit> close() {
+    return () -> {
+      try {
+        encode(CharBuffer.wrap(new char[0]), true);
+        while (encoder.flush(buffer).isOverflow()) {
+          drain();
+        }
+        flushNow();
+      } finally {
+        out.close();
+      }
+      return Unit.unit();
+    };
+  }
+
+  /**
+   * An iteratee that writes each string of its input as a line. It finishes at the end of the input,
+   * flushing the sink, or with the first exception that a write throws.
+   */
+  public IterV<String, Validation<IOException, Unit>> lines() {
+    return IterV.cont(new F<Input<String>, IterV<String, Validation<IOException, Unit>>>() {
+      @Override
+      public IterV<String, Validation<IOException, Unit>> f(final Input<String> s) {
+        try {
+          if (s.isEl()) {
+            line(s.value());
+            written();
+            return IterV.cont(this);
+          } else if (s.isEof()) {
+            flushNow();
+            return IterV.done(Validation.<IOException, Unit>success(Unit.unit()), Input.<String>eof());
+          } else {
+            return IterV.cont(this);
+          }
+        } catch (final IOException e) {
+          return IterV.done(Validation.<IOException, Unit>fail(e), s);
+        }
+      }
+    });
+  }
+
+  /**
+   * An actor that writes each string it receives as a line, one message at a time and in the order
+   * they are sent, so that several threads can share this sink.
+   *
+   * @param s the strategy that runs the writes
+   * @param onError the effect to perform with the exceptions that the writes throw
+   */
+  public Actor<String> actor(final Strategy<Unit> s, final Effect1<IOException> onError) {
+    return Actor.queueActor(s, line -> {
+      try {
+        writeLine(line).run();
+      } catch (final IOException e) {
+        onError.f(e);
+      }
+    });
+  }
+
+}
@@ -1,16 +1,16 @@
 package fj.data;
 
-import static fj.Bottom.errorF;
-import static fj.Function.constant;
 import static fj.Function.partialApply2;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 
 import fj.*;
@@ -125,6 +125,33 @@ public class IOFunctions {
     };
   }
 
+  /**
+   * An IO monad that opens a {@link BufferedSink} that writes the given file, replacing its content.
+   *
+   * @param f the file to write, must not be <code>null</code>
+   * @param encoding the encoding to use, {@link Option#none()} means platform default
+   * @param policy when the sink writes out its buffer before it is full
+   */
+  public static IO<BufferedSink> writeFile(final File f, final Option<Charset> encoding, final BufferedSink.FlushPolicy policy) {
+    return () -> BufferedSink.sink(new FileOutputStream(f), BufferedSink.DEFAULT_BUFFER_SIZE, encoding, policy);
+  }
+
+  /**
+   * An IO monad that opens a {@link BufferedSink} that appends to the given file.
+   *
+   * @param f the file to append to, must not be <code>null</code>
+   * @param encoding the encoding to use, {@link Option#none()} means platform default
+   * @param policy when the sink writes out its buffer before it is full
+   */
+  public static IO<BufferedSink> appendFile(final File f, final Option<Charset> encoding, final BufferedSink.FlushPolicy policy) {
+    return () -> BufferedSink.sink(new FileOutputStream(f, true), BufferedSink.DEFAULT_BUFFER_SIZE, encoding, policy);
+  }
+
+  /** Runs the given action with the sink that the given IO opens, closing the sink afterwards. */
+  public static <A> IO<A> withSink(final IO<BufferedSink> sink, final F<BufferedSink, IO<A>> body) {
+    return bracket(sink, BufferedSink::close, body);
+  }
+
   public static final <A, B, C> IO<C> bracket(final IO<A> init, final F<A, IO<B>> fin, final F<A, IO<C>> body) {
     return new IO<C>() {
       @Override
@@ -132,22 +159,15 @@ public class IOFunctions {
         final A a = init.run();
         try {
           return body.f(a).run();
-        } catch (final IOException e) {
-          throw e;
         } finally {
-          fin.f(a);
+          fin.f(a).run();
         }
       }
     };
   }
 
   public static final <A> IO<A> unit(final A a) {
-    return new IO<A>() {
-      @Override
-      public A run() throws IOException {
-        return a;
-      }
-    };
+    return new Pure<A>(a);
   }
 
 	public static final <A> IO<A> lazy(final P1<A> p) {
@@ -170,23 +190,10 @@ public class IOFunctions {
    * A function that feeds an iteratee with lines read from a {@link BufferedReader}.
    */
   public static <A> F<BufferedReader, F<IterV<String, A>, IO<IterV<String, A>>>> lineReader() {
-    final F<IterV<String, A>, Boolean> isDone =
-      new F<Iteratee.IterV<String, A>, Boolean>() {
-        final F<P2<A, Input<String>>, P1<Boolean>> done = constant(P.p(true));
-        final F<F<Input<String>, IterV<String, A>>, P1<Boolean>> cont = constant(P.p(false));
-
-        @Override
-        public Boolean f(final IterV<String, A> i) {
-          return i.fold(done, cont)._1();
-        }
-      };
-
     return new F<BufferedReader, F<IterV<String, A>, IO<IterV<String, A>>>>() {
       @Override
       public F<IterV<String, A>, IO<IterV<String, A>>> f(final BufferedReader r) {
         return new F<IterV<String, A>, IO<IterV<String, A>>>() {
-          final F<P2<A, Input<String>>, P1<IterV<String, A>>> done = errorF("iteratee is done"); //$NON-NLS-1$
-
           @Override
           public IO<IterV<String, A>> f(final IterV<String, A> it) {
             // use loop instead of recursion because of missing TCO
@@ -194,12 +201,10 @@ public class IOFunctions {
               @Override
               public IterV<String, A> run() throws IOException {
                 IterV<String, A> i = it;
-                while (!isDone.f(i)) {
+                while (!i.isDone()) {
                   final String s = r.readLine();
                   if (s == null) { return i; }
-                  final Input<String> input = Input.<String>el(s);
-                  final F<F<Input<String>, IterV<String, A>>, P1<IterV<String, A>>> cont = F1Functions.lazy(Function.<Input<String>, IterV<String, A>>apply(input));
-                  i = i.fold(done, cont)._1();
+                  i = i.feed(Input.<String>el(s));
                 }
                 return i;
               }
@@ -215,23 +220,10 @@ public class IOFunctions {
    * (char[] of size {@link #DEFAULT_BUFFER_SIZE}).
    */
   public static <A> F<Reader, F<IterV<char[], A>, IO<IterV<char[], A>>>> charChunkReader() {
-    final F<IterV<char[], A>, Boolean> isDone =
-      new F<Iteratee.IterV<char[], A>, Boolean>() {
-        final F<P2<A, Input<char[]>>, P1<Boolean>> done = constant(P.p(true));
-        final F<F<Input<char[]>, IterV<char[], A>>, P1<Boolean>> cont = constant(P.p(false));
-
-        @Override
-        public Boolean f(final IterV<char[], A> i) {
-          return i.fold(done, cont)._1();
-        }
-      };
-
     return new F<Reader, F<IterV<char[], A>, IO<IterV<char[], A>>>>() {
       @Override
       public F<IterV<char[], A>, IO<IterV<char[], A>>> f(final Reader r) {
         return new F<IterV<char[], A>, IO<IterV<char[], A>>>() {
-          final F<P2<A, Input<char[]>>, P1<IterV<char[], A>>> done = errorF("iteratee is done"); //$NON-NLS-1$
-
           @Override
           public IO<IterV<char[], A>> f(final IterV<char[], A> it) {
             // use loop instead of recursion because of missing TCO
@@ -240,17 +232,14 @@ public class IOFunctions {
               public IterV<char[], A> run() throws IOException {
                 
                 IterV<char[], A> i = it;
-                while (!isDone.f(i)) {
+                while (!i.isDone()) {
                   char[] buffer = new char[DEFAULT_BUFFER_SIZE];
                   final int numRead = r.read(buffer);
                   if (numRead == -1) { return i; }
                   if(numRead < buffer.length) {
                     buffer = Arrays.copyOfRange(buffer, 0, numRead);
                   }
-                  final Input<char[]> input = Input.<char[]>el(buffer);
-                  final F<F<Input<char[]>, IterV<char[], A>>, P1<IterV<char[], A>>> cont =
-                      F1Functions.lazy(Function.<Input<char[]>, IterV<char[], A>>apply(input));
-                  i = i.fold(done, cont)._1();
+                  i = i.feed(Input.<char[]>el(buffer));
                 }
                 return i;
               }
@@ -266,23 +255,10 @@ public class IOFunctions {
    * (chars are read in chunks of size {@link #DEFAULT_BUFFER_SIZE}).
    */
   public static <A> F<Reader, F<IterV<Character, A>, IO<IterV<Character, A>>>> charChunkReader2() {
-    final F<IterV<Character, A>, Boolean> isDone =
-      new F<Iteratee.IterV<Character, A>, Boolean>() {
-        final F<P2<A, Input<Character>>, P1<Boolean>> done = constant(P.p(true));
-        final F<F<Input<Character>, IterV<Character, A>>, P1<Boolean>> cont = constant(P.p(false));
-
-        @Override
-        public Boolean f(final IterV<Character, A> i) {
-          return i.fold(done, cont)._1();
-        }
-      };
-
     return new F<Reader, F<IterV<Character, A>, IO<IterV<Character, A>>>>() {
       @Override
       public F<IterV<Character, A>, IO<IterV<Character, A>>> f(final Reader r) {
         return new F<IterV<Character, A>, IO<IterV<Character, A>>>() {
-          final F<P2<A, Input<Character>>, IterV<Character, A>> done = errorF("iteratee is done"); //$NON-NLS-1$
-
           @Override
           public IO<IterV<Character, A>> f(final IterV<Character, A> it) {
             // use loop instead of recursion because of missing TCO
@@ -291,18 +267,12 @@ public class IOFunctions {
               public IterV<Character, A> run() throws IOException {
                 
                 IterV<Character, A> i = it;
-                while (!isDone.f(i)) {
-                  char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+                final char[] buffer = new char[DEFAULT_BUFFER_SIZE];
+                while (!i.isDone()) {
                   final int numRead = r.read(buffer);
                   if (numRead == -1) { return i; }
-                  if(numRead < buffer.length) {
-                    buffer = Arrays.copyOfRange(buffer, 0, numRead);
-                  }
-                  for(int c = 0; c < buffer.length; c++) {
-                    final Input<Character> input = Input.el(buffer[c]);
-                    final F<F<Input<Character>, IterV<Character, A>>, IterV<Character, A>> cont =
-                        Function.<Input<Character>, IterV<Character, A>>apply(input);
-                    i = i.fold(done, cont);
+                  for(int c = 0; c < numRead && !i.isDone(); c++) {
+                    i = i.feed(Input.el(buffer[c]));
                   }
                 }
                 return i;
@@ -315,30 +285,126 @@ public class IOFunctions {
   }
 
   public static final <A, B> IO<B> map(final IO<A> io, final F<A, B> f) {
-    return new IO<B>() {
-      @Override
-      public B run() throws IOException {
-        return f.f(io.run());
-      }
-    };
+    return new Map<A, B>(io, f);
   }
 
   public static final <A, B> IO<B> bind(final IO<A> io, final F<A, IO<B>> f) {
-    return new IO<B>() {
-      @Override
-      public B run() throws IOException {
-        return f.f(io.run()).run();
+    return new Bind<A, B>(io, f);
+  }
+
+  public static final <A, B> SafeIO<B> mapSafe(final SafeIO<A> io, final F<A, B> f) {
+    return new Safe<B>(map(io, f));
+  }
+
+  public static final <A, B> SafeIO<B> bindSafe(final SafeIO<A> io, final F<A, SafeIO<B>> f) {
+    return new Safe<B>(bind(io, a -> f.f(a)));
+  }
+
+  // The combinators of this class reify the actions they compose as a tree of Pure, Map and Bind instructions. The
+  // tree is run by the loop in interpret, which keeps the pending continuations on an explicit stack in the style of
+  // fj.control.Trampoline, so that arbitrarily deep chains of actions run in constant stack. Any other IO is a leaf
+  // of the tree and is run directly.
+
+  private static final class Pure<A> implements SafeIO<A> {
+    private final A a;
+
+    Pure(final A a) {
+      this.a = a;
+    }
+
+    @Override
+    public A run() {
+      return a;
+    }
+  }
+
+  private static final class Map<A, B> implements IO<B> {
+    private final IO<A> io;
+    private final F<A, B> f;
+
+    Map(final IO<A> io, final F<A, B> f) {
+      this.io = io;
+      this.f = f;
+    }
+
+    @Override
+    public B run() throws IOException {
+      return interpret(this);
+    }
+  }
+
+  private static final class Bind<A, B> implements IO<B> {
+    private final IO<A> io;
+    private final F<A, IO<B>> f;
+
+    Bind(final IO<A> io, final F<A, IO<B>> f) {
+      this.io = io;
+      this.f = f;
+    }
+
+    @Override
+    public B run() throws IOException {
+      return interpret(this);
+    }
+  }
+
+  // An action composed only of safe actions, which therefore can't throw an IOException.
+  private static final class Safe<A> implements SafeIO<A> {
+    private final IO<A> io;
+
+    Safe(final IO<A> io) {
+      this.io = io;
+    }
+
+    @Override
+    public A run() {
+      try {
+        return interpret(io);
+      } catch (final IOException e) {
+        throw new Error(e);
       }
-    };
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <A> A interpret(final IO<A> io) throws IOException {
+    final ArrayDeque<Object> stack = new ArrayDeque<Object>();
+    IO cur = io;
+    while (true) {
+      if (cur instanceof Bind) {
+        stack.push(cur);
+        cur = ((Bind) cur).io;
+      } else if (cur instanceof Map) {
+        stack.push(cur);
+        cur = ((Map) cur).io;
+      } else if (cur instanceof Safe) {
+        cur = ((Safe) cur).io;
+      } else {
+        Object value = cur instanceof Pure ? ((Pure) cur).a : cur.run();
+        cur = null;
+        while (cur == null) {
+          if (stack.isEmpty()) {
+            return (A) value;
+          }
+          final Object k = stack.pop();
+          if (k instanceof Map) {
+            value = ((Map) k).f.f(value);
+          } else {
+            cur = (IO) ((Bind) k).f.f(value);
+          }
+        }
+      }
+    }
   }
 
 	/**
 	 * Evaluate each action in the sequence from left to right, and collect the results.
 	 */
 	public static <A> IO<List<A>> sequence(List<IO<A>> list) {
-		F2<IO<A>, IO<List<A>>, IO<List<A>>> f2 = (io, ioList) ->
+		F2<IO<List<A>>, IO<A>, IO<List<A>>> f2 = (ioList, io) ->
 				IOFunctions.bind(ioList, (xs) -> map(io, x -> List.cons(x, xs)));
-		return list.foldRight(f2, IOFunctions.unit(List.<A>nil()));
+		// a left fold over the reversed list builds the same action as a right fold, in constant stack
+		return list.reverse().foldLeft(f2, IOFunctions.unit(List.<A>nil()));
 	}
 
 
@@ -354,9 +420,11 @@ public class IOFunctions {
 	 * and collect the results.
 	 */
 	public static <A, B> IO<List<B>> traverse(List<A> list, F<A, IO<B>> f) {
-		F2<A, IO<List<B>>, IO<List<B>>> f2 = (a, acc) ->
-				bind(acc, (bs) -> map(f.f(a), b -> bs.append(List.list(b))));
-		return list.foldRight(f2, IOFunctions.unit(List.<B>nil()));
+		// actions are chained in the same order as a right fold would, in constant stack; consing the results and
+		// reversing them once yields the same list as appending each one
+		F2<IO<List<B>>, A, IO<List<B>>> f2 = (acc, a) ->
+				bind(acc, (bs) -> map(f.f(a), b -> bs.cons(b)));
+		return map(list.reverse().foldLeft(f2, IOFunctions.unit(List.<B>nil())), List::reverse);
 	}
 
 	public static <A> IO<A> join(IO<IO<A>> io1) {
@@ -368,18 +436,11 @@ public class IOFunctions {
 	}
 
 	public static <A, B> IO<B> append(final IO<A> io1, final IO<B> io2) {
-		return () -> {
-			io1.run();
-			return io2.run();
-		};
+		return bind(io1, a -> io2);
 	}
 
 	public static <A, B> IO<A> left(final IO<A> io1, final IO<B> io2) {
-		return () -> {
-			A a = io1.run();
-			io2.run();
-			return a;
-		};
+		return bind(io1, a -> map(io2, b -> a));
 	}
 
 	public static <A, B> IO<B> flatMap(final IO<A> io, final F<A, IO<B>> f) {
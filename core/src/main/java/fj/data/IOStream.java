@@ -0,0 +1,423 @@
+package fj.data;
+
+import static fj.Bottom.error;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import fj.F;
+import fj.F2;
+import fj.Unit;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+
+/**
+ * A lazy, effectful sequence of elements that is read from resources such as files or sockets.
+ * Nothing is read until the stream is consumed by one of {@link #foldLeft}, {@link #toList},
+ * {@link #enumerate} or a sink; each consumption acquires the resources of the stream, pulls the
+ * elements one at a time and releases the resources when the consumer finishes, fails or stops early
+ * (as after {@link #take}). Pipelines over an <code>IOStream</code> therefore run in memory bounded by
+ * the elements in flight rather than by the size of the input.
+ *
+ * @param <A> the type of the elements of the stream
+ */
+public abstract class IOStream<A> {
+
+  IOStream() {} // sealed
+
+  // Acquires the resources of this stream, returning a cursor over its elements that releases them on close.
+  abstract Cursor<A> open() throws IOException;
+
+  // A position in an open stream.
+  static abstract class Cursor<A> {
+    // The next element of the stream, or none if it is exhausted.
+    abstract Option<A> next() throws IOException;
+
+    abstract void close() throws IOException;
+  }
+
+  private static <A> IOStream<A> stream(final IO<Cursor<A>> open) {
+    return new IOStream<A>() {
+      @Override
+      Cursor<A> open() throws IOException {
+        return open.run();
+      }
+    };
+  }
+
+  private static <A> Cursor<A> cursor(final IO<Option<A>> next, final IO<Unit> close) {
+    return new Cursor<A>() {
+      @Override
+      Option<A> next() throws IOException {
+        return next.run();
+      }
+
+      @Override
+      void close() throws IOException {
+        close.run();
+      }
+    };
+  }
+
+  private static IO<Unit> closing(final Cursor<?> c) {
+    return () -> {
+      c.close();
+      return Unit.unit();
+    };
+  }
+
+  /** A stream without elements. */
+  public static <A> IOStream<A> nil() {
+    return fromStream(Stream.<A>nil());
+  }
+
+  /** A stream of the elements of the given lazy stream, which holds no resources. */
+  public static <A> IOStream<A> fromStream(final Stream<A> as) {
+    return stream(() -> new Cursor<A>() {
+      Stream<A> rest = as;
+
+      @Override
+      Option<A> next() {
+        if (rest.isEmpty()) {
+          return Option.none();
+        }
+        final A a = rest.head();
+        rest = rest.tail()._1();
+        return Option.some(a);
+      }
+
+      @Override
+      void close() {
+      }
+    });
+  }
+
+  /**
+   * A stream over a resource. The resource is acquired when the stream is consumed, its elements are
+   * read until <code>read</code> yields none, and it is released once the consumer is finished with it.
+   *
+   * @param acquire acquires the resource
+   * @param read reads the next element from the resource
+   * @param release releases the resource
+   */
+  public static <R, A> IOStream<A> resource(final IO<R> acquire, final F<R, IO<Option<A>>> read, final F<R, IO<Unit>> release) {
+    return stream(() -> {
+      final R r = acquire.run();
+      return cursor(read.f(r), release.f(r));
+    });
+  }
+
+  /** A stream of the lines of the given file. */
+  public static IOStream<String> fromFile(final File f, final Option<Charset> encoding) {
+    return resource(IOFunctions.bufferedReader(f, encoding),
+      r -> () -> Option.fromNull(r.readLine()),
+      r -> IOFunctions.closeReader(r));
+  }
+
+  /**
+   * A stream of the bytes of the input stream opened by the given IO, read in chunks of at most the
+   * given size.
+   */
+  public static IOStream<byte[]> fromInputStream(final IO<? extends InputStream> in, final int chunkSize) {
+    if (chunkSize < 1) {
+      throw error("Can't read chunks shorter than 1 byte long.");
+    }
+    return resource(in::run,
+      is -> () -> {
+        final byte[] buffer = new byte[chunkSize];
+        final int n = is.read(buffer);
+        return n == -1 ? Option.<byte[]>none() : Option.some(n == chunkSize ? buffer : Arrays.copyOf(buffer, n));
+      },
+      is -> () -> {
+        is.close();
+        return Unit.unit();
+      });
+  }
+
+  /** A stream of the bytes of the given file, read in chunks of at most the given size. */
+  public static IOStream<byte[]> fromInputStream(final File f, final int chunkSize) {
+    return fromInputStream(() -> new FileInputStream(f), chunkSize);
+  }
+
+  /** Transforms the elements of this stream with the given function. */
+  public final <B> IOStream<B> map(final F<A, B> f) {
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return cursor(() -> c.next().map(f), closing(c));
+    });
+  }
+
+  /** Transforms the elements of this stream with the given effect. */
+  public final <B> IOStream<B> mapIO(final F<A, IO<B>> f) {
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return cursor(() -> {
+        final Option<A> a = c.next();
+        return a.isNone() ? Option.<B>none() : Option.some(f.f(a.some()).run());
+      }, closing(c));
+    });
+  }
+
+  /** The elements of this stream that satisfy the given predicate. */
+  public final IOStream<A> filter(final F<A, Boolean> p) {
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return cursor(() -> {
+        Option<A> a = c.next();
+        while (a.isSome() && !p.f(a.some())) {
+          a = c.next();
+        }
+        return a;
+      }, closing(c));
+    });
+  }
+
+  /** The first n elements of this stream; the rest of the input is not read. */
+  public final IOStream<A> take(final int n) {
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return new Cursor<A>() {
+        int taken = 0;
+
+        @Override
+        Option<A> next() throws IOException {
+          return taken++ < n ? c.next() : Option.<A>none();
+        }
+
+        @Override
+        void close() throws IOException {
+          c.close();
+        }
+      };
+    });
+  }
+
+  /** The longest prefix of this stream whose elements satisfy the given predicate; the rest of the input is not read. */
+  public final IOStream<A> takeWhile(final F<A, Boolean> p) {
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return new Cursor<A>() {
+        boolean stopped = false;
+
+        @Override
+        Option<A> next() throws IOException {
+          if (stopped) {
+            return Option.none();
+          }
+          final Option<A> a = c.next();
+          stopped = a.isNone() || !p.f(a.some());
+          return stopped ? Option.<A>none() : a;
+        }
+
+        @Override
+        void close() throws IOException {
+          c.close();
+        }
+      };
+    });
+  }
+
+  /** The elements of this stream followed by those of the given one, which is opened once this one is exhausted. */
+  public final IOStream<A> append(final IOStream<A> as) {
+    return stream(() -> {
+      final Cursor<A> first = open();
+      return new Cursor<A>() {
+        Cursor<A> current = first;
+        boolean second = false;
+
+        @Override
+        Option<A> next() throws IOException {
+          final Option<A> a = current.next();
+          if (a.isSome() || second) {
+            return a;
+          }
+          second = true;
+          final Cursor<A> done = current;
+          current = IOStream.<A>nil().open();
+          done.close();
+          current = as.open();
+          return current.next();
+        }
+
+        @Override
+        void close() throws IOException {
+          current.close();
+        }
+      };
+    });
+  }
+
+  /**
+   * Replaces each element of this stream with the elements of the stream that the given function
+   * produces for it. Each inner stream is released before the next one is opened.
+   */
+  public final <B> IOStream<B> bind(final F<A, IOStream<B>> f) {
+    return stream(() -> {
+      final Cursor<A> outer = open();
+      return new Cursor<B>() {
+        Cursor<B> inner = null;
+
+        @Override
+        Option<B> next() throws IOException {
+          while (true) {
+            if (inner == null) {
+              final Option<A> a = outer.next();
+              if (a.isNone()) {
+                return Option.none();
+              }
+              inner = f.f(a.some()).open();
+            }
+            final Option<B> b = inner.next();
+            if (b.isSome()) {
+              return b;
+            }
+            final Cursor<B> done = inner;
+            inner = null;
+            done.close();
+          }
+        }
+
+        @Override
+        void close() throws IOException {
+          try {
+            if (inner != null) {
+              inner.close();
+            }
+          } finally {
+            outer.close();
+          }
+        }
+      };
+    });
+  }
+
+  /** Groups the elements of this stream into lists of n elements; the last list holds the remainder. */
+  public final IOStream<List<A>> chunkN(final int n) {
+    if (n < 1) {
+      throw error("Can't create chunks shorter than 1 element long.");
+    }
+    return stream(() -> {
+      final Cursor<A> c = open();
+      return cursor(() -> {
+        List<A> acc = List.nil();
+        int k = 0;
+        for (Option<A> a = c.next(); a.isSome(); a = k < n ? c.next() : Option.<A>none()) {
+          acc = acc.cons(a.some());
+          k++;
+        }
+        return acc.isEmpty() ? Option.<List<A>>none() : Option.some(acc.reverse());
+      }, closing(c));
+    });
+  }
+
+  /** Transforms this stream with the given pipe. */
+  public final <B> IOStream<B> through(final F<IOStream<A>, IOStream<B>> pipe) {
+    return pipe.f(this);
+  }
+
+  /** Consumes this stream with the given sink. */
+  public final <B> IO<B> to(final F<IOStream<A>, IO<B>> sink) {
+    return sink.f(this);
+  }
+
+  /** Folds the elements of this stream, releasing its resources afterwards. */
+  public final <B> IO<B> foldLeft(final F2<B, A, B> f, final B b) {
+    return () -> {
+      final Cursor<A> c = open();
+      try {
+        B acc = b;
+        for (Option<A> a = c.next(); a.isSome(); a = c.next()) {
+          acc = f.f(acc, a.some());
+        }
+        return acc;
+      } finally {
+        c.close();
+      }
+    };
+  }
+
+  /** Performs the given effect for each element of this stream, releasing its resources afterwards. */
+  public final IO<Unit> foreach(final F<A, IO<Unit>> f) {
+    return () -> {
+      final Cursor<A> c = open();
+      try {
+        for (Option<A> a = c.next(); a.isSome(); a = c.next()) {
+          f.f(a.some()).run();
+        }
+        return Unit.unit();
+      } finally {
+        c.close();
+      }
+    };
+  }
+
+  /** Reads the elements of this stream into a list. */
+  public final IO<List<A>> toList() {
+    return IOFunctions.map(foldLeft((acc, a) -> acc.cons(a), List.<A>nil()), List::reverse);
+  }
+
+  /**
+   * Feeds the elements of this stream to the given iteratee. Reading stops, and the resources of
+   * the stream are released, as soon as the iteratee is done.
+   */
+  public final <B> IO<IterV<A, B>> enumerate(final IterV<A, B> i) {
+    return () -> {
+      final Cursor<A> c = open();
+      try {
+        IterV<A, B> it = i;
+        while (!it.isDone()) {
+          final Option<A> a = c.next();
+          if (a.isNone()) {
+            break;
+          }
+          it = it.feed(Input.el(a.some()));
+        }
+        return it;
+      } finally {
+        c.close();
+      }
+    };
+  }
+
+  /** A sink that writes each element of a stream as a line of the given file. */
+  public static F<IOStream<String>, IO<Unit>> toFile(final File f, final Option<Charset> encoding) {
+    return s -> IOFunctions.bracket(
+      () -> {
+        final FileOutputStream fos = new FileOutputStream(f);
+        return new BufferedWriter(encoding.isNone() ? new OutputStreamWriter(fos) : new OutputStreamWriter(fos, encoding.some()));
+      },
+      (Writer w) -> () -> {
+        w.close();
+        return Unit.unit();
+      },
+      w -> s.foreach(line -> () -> {
+        w.write(line);
+        w.write('\n');
+        return Unit.unit();
+      }));
+  }
+
+  /** A sink that writes each chunk of a stream of bytes to the output stream opened by the given IO. */
+  public static F<IOStream<byte[]>, IO<Unit>> toOutputStream(final IO<? extends OutputStream> out) {
+    return s -> IOFunctions.bracket(
+      out::run,
+      (OutputStream os) -> () -> {
+        os.close();
+        return Unit.unit();
+      },
+      os -> s.foreach(bytes -> () -> {
+        os.write(bytes);
+        return Unit.unit();
+      }));
+  }
+
+}
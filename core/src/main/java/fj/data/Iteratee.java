@@ -1,15 +1,17 @@
 package fj.data;
 
+import static fj.Bottom.error;
+
 import fj.F;
-import fj.F1Functions;
-import fj.Function;
+import fj.F2;
 import fj.P;
 import fj.P1;
 import fj.P2;
 import fj.Unit;
+import fj.control.parallel.Strategy;
 
 /**
- * 
+ *
  */
 public final class Iteratee {
 
@@ -20,332 +22,584 @@ public final class Iteratee {
 
     public abstract <Z> Z apply(final P1<Z> empty, final P1<F<E, Z>> el, final P1<Z> eof);
 
+    /** Returns <code>true</code> if this input has no values available. */
+    final boolean isEmpty() {
+      return this == EMPTY;
+    }
+
+    /** Returns <code>true</code> if this input is exhausted. */
+    final boolean isEof() {
+      return this == EOF;
+    }
+
+    /** Returns <code>true</code> if this input carries an element. */
+    final boolean isEl() {
+      return this instanceof El;
+    }
+
+    /** The element of this input, which must satisfy {@link #isEl()}. */
+    final E value() {
+      return ((El<E>) this).element;
+    }
+
+    // empty and eof carry no element, so a single instance of each serves every element type
+    @SuppressWarnings("rawtypes")
+    private static final Input EMPTY = new Input<Object>() {
+      @Override
+      public <Z> Z apply(final P1<Z> empty, final P1<F<Object, Z>> el, final P1<Z> eof) {
+        return empty._1();
+      }
+    };
+
+    @SuppressWarnings("rawtypes")
+    private static final Input EOF = new Input<Object>() {
+      @Override
+      public <Z> Z apply(final P1<Z> empty, final P1<F<Object, Z>> el, final P1<Z> eof) {
+        return eof._1();
+      }
+    };
+
+    private static final class El<E> extends Input<E> {
+      private final E element;
+
+      El(final E element) {
+        this.element = element;
+      }
+
+      @Override
+      public <Z> Z apply(final P1<Z> empty, final P1<F<E, Z>> el, final P1<Z> eof) {
+        return el._1().f(element);
+      }
+    }
+
     /** Input that has no values available */
+    @SuppressWarnings("unchecked")
     public static final <E> Input<E> empty() {
-      return new Input<E>() {
-        @Override
-        public <Z> Z apply(final P1<Z> empty, final P1<F<E, Z>> el, final P1<Z> eof) {
-          return empty._1();
-        }
-      };
+      return EMPTY;
     }
 
     /** Input that is exhausted */
+    @SuppressWarnings("unchecked")
     public static final <E> Input<E> eof() {
-      return new Input<E>() {
-        @Override
-        public <Z> Z apply(final P1<Z> empty, final P1<F<E, Z>> el, final P1<Z> eof) {
-          return eof._1();
-        }
-      };
+      return EOF;
     }
 
     /** Input that has a value available */
     public static final <E> Input<E> el(final E element) {
-      return new Input<E>() {
-        @Override
-        public <Z> Z apply(final P1<Z> empty, final P1<F<E, Z>> el, final P1<Z> eof) {
-          return el._1().f(element);
-        }
-      };
+      return new El<E>(element);
     }
   }
 
-  /** A pure iteratee computation which is either done or needs more input */
+  /**
+   * A pure iteratee computation which is either done or needs more input.
+   * <p/>
+   * Monadic binds are reified rather than composed as nested functions, and are resolved by a loop
+   * when the iteratee is next inspected, so that arbitrarily long chains of binds and arbitrarily long
+   * inputs are processed in constant stack.
+   */
   public static abstract class IterV<E, A> {
 
     IterV() {} // sealed
 
     /** A computation that takes an element from an input to yield a new computation */
     public static <E, A> IterV<E, A> cont(final F<Input<E>, IterV<E, A>> f) {
-      return new IterV<E, A>() {
-        @Override
-        public <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont) {
-          return cont.f(f);
-        }
-      };
+      return new Cont<E, A>(f);
     }
 
     public abstract <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont);
 
     /** A computation that has finished */
     public static <E, A> IterV<E, A> done(final A a, final Input<E> i) {
-      final P2<A, Input<E>> p = P.p(a, i);
-      return new IterV<E, A>() {
-        @Override
-        public <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont) {
-          return done.f(p);
+      return new Done<E, A>(P.p(a, i));
+    }
+
+    // Resolves pending binds, yielding either a Done or a Cont.
+    abstract IterV<E, A> normal();
+
+    /**
+     * Feeds the elements of the given chunk to this iteratee, stopping early if it finishes. The
+     * elements of the chunk after the one that finished the iteratee are not consumed.
+     */
+    IterV<E, A> step(final Array<E> chunk, final int from) {
+      IterV<E, A> i = this;
+      for (int n = from; n < chunk.length(); n++) {
+        i = i.normal();
+        if (i instanceof Done) {
+          return i;
         }
-      };
+        i = ((Cont<E, A>) i).k.f(Input.el(chunk.get(n)));
+      }
+      return i;
     }
 
     public final A run() {
-      final F<IterV<E, A>, Option<A>> runCont =
-        new F<IterV<E, A>, Option<A>>() {
-          final F<P2<A, Input<E>>, Option<A>> done = F1Functions.andThen(P2.<A, Input<E>>__1(), Option.<A>some_());
-          final F<F<Input<E>, IterV<E, A>>, Option<A>> cont = Function.constant(Option.<A>none());
-
-          @Override
-          public Option<A> f(final IterV<E, A> i) {
-            return i.fold(done, cont);
-          }
-        };
-      final F<P2<A, Input<E>>, A> done = P2.<A, Input<E>>__1();
-      final F<F<Input<E>, IterV<E, A>>, A> cont =
-        new F<F<Input<E>, IterV<E, A>>, A>() {
-          @Override
-          public A f(final F<Input<E>, IterV<E, A>> k) {
-            return runCont.f(k.f(Input.<E>eof())).valueE("diverging iteratee"); //$NON-NLS-1$
-          }
-        };
-      return fold(done, cont);
+      final IterV<E, A> i = normal();
+      if (i instanceof Done) {
+        return ((Done<E, A>) i).p._1();
+      }
+      final IterV<E, A> j = ((Cont<E, A>) i).k.f(Input.<E>eof()).normal();
+      if (j instanceof Done) {
+        return ((Done<E, A>) j).p._1();
+      }
+      throw error("diverging iteratee"); //$NON-NLS-1$
+    }
+
+    /** Returns <code>true</code> if this iteratee has finished and will not consume further input. */
+    public final boolean isDone() {
+      return normal() instanceof Done;
+    }
+
+    /** Feeds the given input to this iteratee, or returns this iteratee unchanged if it has already finished. */
+    public final IterV<E, A> feed(final Input<E> input) {
+      final IterV<E, A> i = normal();
+      return i instanceof Done ? i : ((Cont<E, A>) i).k.f(input);
+    }
+
+    /**
+     * Feeds the elements of the given chunk to this iteratee, stopping early if it finishes. Iteratees
+     * built with {@link #foldLeft(F2, Object)} consume the whole chunk in a single loop.
+     */
+    public final IterV<E, A> feed(final Array<E> chunk) {
+      return step(chunk, 0);
+    }
+
+    /**
+     * Runs this iteratee and the given one side by side over a single pass of the input, so that
+     * several aggregates can be computed without reading the input more than once. The zipped
+     * iteratee finishes when both have finished; its remaining input is that of the iteratee
+     * that consumed the most.
+     */
+    public final <B> IterV<E, P2<A, B>> zip(final IterV<E, B> other) {
+      final IterV<E, A> a = normal();
+      final IterV<E, B> b = other.normal();
+      if (a instanceof Done && b instanceof Done) {
+        final Input<E> rest = ((Done<E, A>) a).p._2();
+        return done(P.p(a.run(), b.run()), rest.isEl() ? ((Done<E, B>) b).p._2() : rest);
+      }
+      return cont(input -> a.feed(input).zip(b.feed(input)));
     }
 
     /** TODO more documentation */
     public final <B> IterV<E, B> bind(final F<A, IterV<E, B>> f) {
-      final F<P2<A, Input<E>>, IterV<E, B>> done =
-        new F<P2<A, Input<E>>, IterV<E, B>>() {
-          @Override
-          public IterV<E, B> f(final P2<A, Input<E>> xe) {
-            final Input<E> e = xe._2();
-            final F<P2<B, Input<E>>, IterV<E, B>> done =
-              new F<P2<B, Input<E>>, IterV<E, B>>() {
-                @Override
-                public IterV<E, B> f(final P2<B, Input<E>> y_) {
-                  final B y = y_._1();
-                  return done(y, e);
-                }
-              };
-            final F<F<Input<E>, IterV<E, B>>, IterV<E, B>> cont =
-              new F<F<Input<E>, IterV<E, B>>, IterV<E, B>>() {
-                @Override
-                public IterV<E, B> f(final F<Input<E>, IterV<E, B>> k) {
-                  return k.f(e);
-                }
-              };
-            final A x = xe._1();
-            return f.f(x).fold(done, cont);
-          }
-        };
-      final F<F<Input<E>, IterV<E, A>>, IterV<E, B>> cont =
-        new F<F<Input<E>, IterV<E, A>>, IterV<E, B>>() {
-          @Override
-          public IterV<E, B> f(final F<Input<E>, IterV<E, A>> k) {
-            return cont(new F<Input<E>, IterV<E, B>>() {
-              @Override
-              public IterV<E, B> f(final Input<E> e) {
-                return k.f(e).bind(f);
-              }
-            });
-          }
-        };
-      return this.fold(done, cont);
+      return new Bind<E, A, B>(this, f);
+    }
+
+    /** An iteratee that folds the elements of the input with the given function, starting with the given value. */
+    public static final <E, B> IterV<E, B> foldLeft(final F2<B, E, B> f, final B b) {
+      return new Fold<E, B>(f, b);
     }
 
     /** An iteratee that counts and consumes the elements of the input */
     public static final <E> IterV<E, Integer> length() {
-      final F<Integer, F<Input<E>, IterV<E, Integer>>> step =
-        new F<Integer, F<Input<E>, IterV<E, Integer>>>() {
-          final F<Integer, F<Input<E>, IterV<E, Integer>>> step = this;
-
-          @Override
-          public F<Input<E>, IterV<E, Integer>> f(final Integer acc) {
-            final P1<IterV<E, Integer>> empty =
-              new P1<IterV<E, Integer>>() {
-                @Override
-                public IterV<E, Integer> _1() {
-                  return cont(step.f(acc));
-                }
-              };
-            final P1<F<E, IterV<E, Integer>>> el =
-              new P1<F<E, IterV<E, Integer>>>() {
-                @Override
-                public F<E, IterV<E, Integer>> _1() {
-                  return P.p(cont(step.f(acc + 1))).constant();
-                }
-              };
-            final P1<IterV<E, Integer>> eof =
-              new P1<IterV<E, Integer>>() {
-                @Override
-                public IterV<E, Integer> _1() {
-                  return done(acc, Input.<E>eof());
-                }
-              };
-            return new F<Input<E>, IterV<E, Integer>>() {
-              @Override
-              public IterV<E, Integer> f(final Input<E> s) {
-                return s.apply(empty, el, eof);
-              }
-            };
-          }
-        };
-      return cont(step.f(0));
+      return foldLeft((n, e) -> n + 1, 0);
     }
 
     /** An iteratee that skips the first n elements of the input */
     public static final <E> IterV<E, Unit> drop(final int n) {
-      final F<Input<E>, IterV<E, Unit>> step =
-        new F<Input<E>, IterV<E, Unit>>() {
-          final F<Input<E>, IterV<E, Unit>> step = this;
-
-          final P1<IterV<E, Unit>> empty =
-            new P1<IterV<E, Unit>>() {
-              @Override
-              public IterV<E, Unit> _1() {
-                return cont(step);
-              }
-            };
-          final P1<F<E, IterV<E, Unit>>> el =
-            new P1<F<E, IterV<E, Unit>>>() {
-              @Override
-              public F<E, IterV<E, Unit>> _1() {
-                return P.p(IterV.<E>drop(n - 1)).constant();
-              }
-            };
-          final P1<IterV<E, Unit>> eof =
-            new P1<IterV<E, Unit>>() {
-              @Override
-              public IterV<E, Unit> _1() {
-                return done(Unit.unit(), Input.<E>eof());
-              }
-            };
-
-          @Override
-          public IterV<E, Unit> f(final Input<E> s) {
-            return s.apply(empty, el, eof);
-          }
-        };
       return n == 0
         ? done(Unit.unit(), Input.<E>empty())
-        : cont(step);
+        : cont(new F<Input<E>, IterV<E, Unit>>() {
+            @Override
+            public IterV<E, Unit> f(final Input<E> s) {
+              return s.isEl() ? IterV.<E>drop(n - 1)
+                : s.isEof() ? done(Unit.unit(), Input.<E>eof())
+                : cont(this);
+            }
+          });
     }
 
     /** An iteratee that consumes the head of the input */
     public static final <E> IterV<E, Option<E>> head() {
-      final F<Input<E>, IterV<E, Option<E>>> step =
-        new F<Input<E>, IterV<E, Option<E>>>() {
-          final F<Input<E>, IterV<E, Option<E>>> step = this;
-
-          final P1<IterV<E, Option<E>>> empty =
-            new P1<IterV<E, Option<E>>>() {
-              @Override
-              public IterV<E, Option<E>> _1() {
-                return cont(step);
-              }
-            };
-          final P1<F<E, IterV<E, Option<E>>>> el =
-            new P1<F<E, IterV<E, Option<E>>>>() {
-              @Override
-              public F<E, IterV<E, Option<E>>> _1() {
-                return new F<E, Iteratee.IterV<E, Option<E>>>() {
-                  @Override
-                  public IterV<E, Option<E>> f(final E e) {
-                    return done(Option.<E>some(e), Input.<E>empty());
-                  }
-                };
-              }
-            };
-          final P1<IterV<E, Option<E>>> eof =
-            new P1<IterV<E, Option<E>>>() {
-              @Override
-              public IterV<E, Option<E>> _1() {
-                return done(Option.<E>none(), Input.<E>eof());
-              }
-            };
-
-          @Override
-          public IterV<E, Option<E>> f(final Input<E> s) {
-            return s.apply(empty, el, eof);
-          }
-        };
-      return cont(step);
+      return cont(new F<Input<E>, IterV<E, Option<E>>>() {
+        @Override
+        public IterV<E, Option<E>> f(final Input<E> s) {
+          return s.isEl() ? done(Option.some(s.value()), Input.<E>empty())
+            : s.isEof() ? done(Option.<E>none(), Input.<E>eof())
+            : cont(this);
+        }
+      });
     }
 
     /** An iteratee that returns the first element of the input */
     public static final <E> IterV<E, Option<E>> peek() {
-      final F<Input<E>, IterV<E, Option<E>>> step =
-        new F<Input<E>, IterV<E, Option<E>>>() {
-          final F<Input<E>, IterV<E, Option<E>>> step = this;
-
-          final P1<IterV<E, Option<E>>> empty =
-            new P1<IterV<E, Option<E>>>() {
-              @Override
-              public IterV<E, Option<E>> _1() {
-                return cont(step);
-              }
-            };
-          final P1<F<E, IterV<E, Option<E>>>> el =
-            new P1<F<E, IterV<E, Option<E>>>>() {
-              @Override
-              public F<E, IterV<E, Option<E>>> _1() {
-                return new F<E, Iteratee.IterV<E, Option<E>>>() {
-                  @Override
-                  public IterV<E, Option<E>> f(final E e) {
-                    return done(Option.<E>some(e), Input.<E>el(e));
-                  }
-                };
-              }
-            };
-          final P1<IterV<E, Option<E>>> eof =
-            new P1<IterV<E, Option<E>>>() {
-              @Override
-              public IterV<E, Option<E>> _1() {
-                return done(Option.<E>none(), Input.<E>eof());
-              }
-            };
-
-          @Override
-          public IterV<E, Option<E>> f(final Input<E> s) {
-            return s.apply(empty, el, eof);
-          }
-        };
-      return cont(step);
+      return cont(new F<Input<E>, IterV<E, Option<E>>>() {
+        @Override
+        public IterV<E, Option<E>> f(final Input<E> s) {
+          return s.isEl() ? done(Option.some(s.value()), s)
+            : s.isEof() ? done(Option.<E>none(), Input.<E>eof())
+            : cont(this);
+        }
+      });
     }
 
     /** An iteratee that consumes the input elements and returns them as a list in reverse order,
      * so that the last line is the first element. This allows to build a list from 2 iteratees. */
     public static final <E> IterV<E, List<E>> list() {
-        final F<List<E>, F<Input<E>, IterV<E, List<E>>>> step =
-          new F<List<E>, F<Input<E>, IterV<E, List<E>>>>() {
-            final F<List<E>, F<Input<E>, IterV<E, List<E>>>> step = this;
+      return foldLeft((acc, e) -> acc.cons(e), List.<E>nil());
+    }
+  }
 
-            @Override
-            public F<Input<E>, IterV<E, List<E>>> f(final List<E> acc) {
-              final P1<IterV<E, List<E>>> empty =
-                new P1<IterV<E, List<E>>>() {
-                  @Override
-                  public IterV<E, List<E>> _1() {
-                    return cont(step.f(acc));
-                  }
-                };
-              final P1<F<E, IterV<E, List<E>>>> el =
-                new P1<F<E, IterV<E, List<E>>>>() {
-                  @Override
-                  public F<E, IterV<E, List<E>>> _1() {
-                    return new F<E, Iteratee.IterV<E, List<E>>>() {
-                      @Override
-                      public IterV<E, List<E>> f(final E e) {
-                        return cont(step.f(acc.cons(e)));
-                      }
-                    };
-                  }
-                };
-              final P1<IterV<E, List<E>>> eof =
-                new P1<IterV<E, List<E>>>() {
-                  @Override
-                  public IterV<E, List<E>> _1() {
-                    return done(acc, Input.<E>eof());
-                  }
-                };
-              return new F<Input<E>, IterV<E, List<E>>>() {
-                @Override
-                public IterV<E, List<E>> f(final Input<E> s) {
-                  return s.apply(empty, el, eof);
-                }
-              };
+  private static final class Done<E, A> extends IterV<E, A> {
+    private final P2<A, Input<E>> p;
+
+    Done(final P2<A, Input<E>> p) {
+      this.p = p;
+    }
+
+    @Override
+    public <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont) {
+      return done.f(p);
+    }
+
+    @Override
+    IterV<E, A> normal() {
+      return this;
+    }
+  }
+
+  private static class Cont<E, A> extends IterV<E, A> {
+    final F<Input<E>, IterV<E, A>> k;
+
+    Cont(final F<Input<E>, IterV<E, A>> k) {
+      this.k = k;
+    }
+
+    @Override
+    public final <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont) {
+      return cont.f(k);
+    }
+
+    @Override
+    final IterV<E, A> normal() {
+      return this;
+    }
+  }
+
+  // A left fold, which steps through chunks of input without allocating an iteratee per element.
+  private static final class Fold<E, B> extends Cont<E, B> {
+    private final F2<B, E, B> f;
+    private final B b;
+
+    Fold(final F2<B, E, B> f, final B b) {
+      super(s -> s.isEl() ? new Fold<E, B>(f, f.f(b, s.value()))
+        : s.isEof() ? IterV.<E, B>done(b, Input.<E>eof())
+        : new Fold<E, B>(f, b));
+      this.f = f;
+      this.b = b;
+    }
+
+    @Override
+    IterV<E, B> step(final Array<E> chunk, final int from) {
+      B acc = b;
+      for (int n = from; n < chunk.length(); n++) {
+        acc = f.f(acc, chunk.get(n));
+      }
+      return new Fold<E, B>(f, acc);
+    }
+  }
+
+  // A reified monadic bind. Binds are resolved by the loop in normal() rather than by recursion, reassociating
+  // left-nested binds to the right as they are met, in the style of fj.control.Trampoline.
+  private static final class Bind<E, X, A> extends IterV<E, A> {
+    private final IterV<E, X> sub;
+    private final F<X, IterV<E, A>> k;
+
+    // the resolved iteratee, computed on demand
+    private IterV<E, A> normal;
+
+    Bind(final IterV<E, X> sub, final F<X, IterV<E, A>> k) {
+      this.sub = sub;
+      this.k = k;
+    }
+
+    @Override
+    public <Z> Z fold(final F<P2<A, Input<E>>, Z> done, final F<F<Input<E>, IterV<E, A>>, Z> cont) {
+      return normal().fold(done, cont);
+    }
+
+    @Override
+    IterV<E, A> normal() {
+      if (normal == null) {
+        normal = resolve(this);
+      }
+      return normal;
+    }
+
+    // The input left over by a finished computation is fed to the computation bound to it; when that has finished
+    // too its own left over input is replaced. Inputs waiting to be fed are kept on a stack, innermost first.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E, A> IterV<E, A> resolve(final IterV<E, A> start) {
+      IterV cur = start;
+      List<Input<E>> pending = List.nil();
+      while (true) {
+        if (cur instanceof Bind) {
+          final Bind b = (Bind) cur;
+          final IterV sub = b.sub;
+          if (sub instanceof Bind && ((Bind) sub).normal == null) {
+            final Bind inner = (Bind) sub;
+            cur = new Bind(inner.sub, x -> new Bind((IterV) inner.k.f(x), b.k));
+          } else {
+            final IterV s = sub.normal();
+            if (s instanceof Done) {
+              final P2 p = ((Done) s).p;
+              pending = pending.cons((Input<E>) p._2());
+              cur = (IterV) b.k.f(p._1());
+            } else {
+              final F sk = ((Cont) s).k;
+              cur = new Cont(e -> new Bind((IterV) sk.f(e), b.k));
             }
-          };
-        return cont(step.f(List.<E> nil()));
+          }
+        } else if (pending.isEmpty()) {
+          return cur;
+        } else {
+          final Input<E> e = pending.head();
+          pending = pending.tail();
+          cur = cur instanceof Done ? new Done(P.p(((Done) cur).p._1(), e)) : (IterV) ((Cont) cur).k.f(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * A stream transformer that adapts an iteratee over inner elements <code>I</code> to an iteratee
+   * over outer elements <code>O</code>. The adapted iteratee finishes as soon as the inner one does;
+   * when the outer input is exhausted, the inner iteratee is fed {@link Input#eof()} and its result
+   * becomes the result of the adapted iteratee.
+   *
+   * @param <O> the type of the elements of the outer input
+   * @param <I> the type of the elements fed to the inner iteratee
+   */
+  public static abstract class Enumeratee<O, I> {
+
+    /** Adapts the given iteratee to consume the outer input. */
+    public abstract <A> IterV<O, A> apply(final IterV<I, A> i);
+
+    /** Composes this enumeratee with the given one, which transforms the output of this one. */
+    public final <J> Enumeratee<O, J> andThen(final Enumeratee<I, J> e) {
+      return new Enumeratee<O, J>() {
+        @Override
+        public <A> IterV<O, A> apply(final IterV<J, A> i) {
+          return Enumeratee.this.apply(e.apply(i));
+        }
+      };
+    }
+
+    /** An enumeratee that transforms each element of the input with the given function. */
+    public static <O, I> Enumeratee<O, I> map(final F<O, I> f) {
+      return new Enumeratee<O, I>() {
+        @Override
+        public <A> IterV<O, A> apply(final IterV<I, A> i) {
+          return i.isDone()
+            ? finished(i)
+            : IterV.<O, A>cont(s -> s.isEl() ? apply(i.feed(Input.el(f.f(s.value()))))
+                : s.isEof() ? exhausted(i)
+                : apply(i));
+        }
+      };
+    }
+
+    /** An enumeratee that passes on only the elements of the input that satisfy the given predicate. */
+    public static <E> Enumeratee<E, E> filter(final F<E, Boolean> p) {
+      return new Enumeratee<E, E>() {
+        @Override
+        public <A> IterV<E, A> apply(final IterV<E, A> i) {
+          return i.isDone()
+            ? finished(i)
+            : IterV.<E, A>cont(s -> s.isEl() ? (p.f(s.value()) ? apply(i.feed(s)) : apply(i))
+                : s.isEof() ? exhausted(i)
+                : apply(i));
+        }
+      };
+    }
+
+    /**
+     * An enumeratee that passes on at most the first n elements of the input, then feeds
+     * {@link Input#eof()} to the inner iteratee.
+     */
+    public static <E> Enumeratee<E, E> take(final int n) {
+      return new Enumeratee<E, E>() {
+        @Override
+        public <A> IterV<E, A> apply(final IterV<E, A> i) {
+          return step(n, i);
+        }
+
+        private <A> IterV<E, A> step(final int k, final IterV<E, A> i) {
+          if (i.isDone()) {
+            return finished(i);
+          }
+          if (k <= 0) {
+            return IterV.done(i.run(), Input.<E>empty());
+          }
+          return IterV.cont(s -> s.isEl() ? step(k - 1, i.feed(s))
+            : s.isEof() ? exhausted(i)
+            : step(k, i));
+        }
+      };
+    }
+
+    /**
+     * An enumeratee that groups consecutive elements of the input into lists of n elements; the last
+     * group holds the remainder.
+     */
+    public static <E> Enumeratee<E, List<E>> group(final int n) {
+      if (n < 1) {
+        throw error("Can't create groups shorter than 1 element long.");
+      }
+      return new Enumeratee<E, List<E>>() {
+        @Override
+        public <A> IterV<E, A> apply(final IterV<List<E>, A> i) {
+          return step(List.<E>nil(), 0, i);
+        }
+
+        private <A> IterV<E, A> step(final List<E> acc, final int k, final IterV<List<E>, A> i) {
+          if (i.isDone()) {
+            return finished(i);
+          }
+          return IterV.cont(s -> s.isEl()
+            ? (k + 1 == n
+              ? step(List.<E>nil(), 0, i.feed(Input.el(acc.cons(s.value()).reverse())))
+              : step(acc.cons(s.value()), k + 1, i))
+            : s.isEof() ? exhausted(acc.isEmpty() ? i : i.feed(Input.el(acc.reverse())))
+            : step(acc, k, i));
+        }
+      };
+    }
+
+    /**
+     * An enumeratee that splits the input into lists of the elements between separators, where a
+     * separator is an element that satisfies the given predicate. Separators are dropped; the elements
+     * after the last separator form a final list if there are any.
+     */
+    public static <E> Enumeratee<E, List<E>> splitOn(final F<E, Boolean> p) {
+      return new Enumeratee<E, List<E>>() {
+        @Override
+        public <A> IterV<E, A> apply(final IterV<List<E>, A> i) {
+          return step(List.<E>nil(), i);
+        }
+
+        private <A> IterV<E, A> step(final List<E> acc, final IterV<List<E>, A> i) {
+          if (i.isDone()) {
+            return finished(i);
+          }
+          return IterV.cont(s -> s.isEl()
+            ? (p.f(s.value())
+              ? step(List.<E>nil(), i.feed(Input.el(acc.reverse())))
+              : step(acc.cons(s.value()), i))
+            : s.isEof() ? exhausted(acc.isEmpty() ? i : i.feed(Input.el(acc.reverse())))
+            : step(acc, i));
+        }
+      };
+    }
+
+    /**
+     * An enumeratee that transforms the elements of the input in parallel. Elements are collected into
+     * chunks of the given size and each chunk is mapped as a single task of the given strategy. While a
+     * chunk is being mapped, the next one is collected; results are fed to the inner iteratee in input
+     * order.
+     *
+     * @param s the strategy that maps the chunks
+     * @param chunkSize the number of elements per task
+     * @param f the function to map over the elements
+     */
+    public static <E, B> Enumeratee<E, B> parMap(final Strategy<List<B>> s, final int chunkSize, final F<E, B> f) {
+      if (chunkSize < 1) {
+        throw error("Can't create chunks shorter than 1 element long.");
+      }
+      return new Enumeratee<E, B>() {
+        @Override
+        public <A> IterV<E, A> apply(final IterV<B, A> i) {
+          return step(List.<E>nil(), 0, Option.<P1<List<B>>>none(), i);
+        }
+
+        private P1<List<B>> spark(final List<E> chunk) {
+          return s.par(P.lazy(u -> chunk.reverse().map(f)));
+        }
+
+        private <A> IterV<E, A> step(final List<E> acc, final int k, final Option<P1<List<B>>> pending, final IterV<B, A> i) {
+          if (i.isDone()) {
+            return finished(i);
+          }
+          return IterV.cont(s -> s.isEl()
+            ? (k + 1 == chunkSize
+              ? step(List.<E>nil(), 0, Option.some(spark(acc.cons(s.value()))), feedAll(i, pending))
+              : step(acc.cons(s.value()), k + 1, pending, i))
+            : s.isEof() ? exhausted(feedAll(feedAll(i, pending), acc.isEmpty() ? Option.<P1<List<B>>>none() : Option.some(spark(acc))))
+            : step(acc, k, pending, i));
+        }
+
+        private <A> IterV<B, A> feedAll(final IterV<B, A> i, final Option<P1<List<B>>> chunk) {
+          IterV<B, A> r = i;
+          if (chunk.isSome()) {
+            for (List<B> bs = chunk.some()._1(); !r.isDone() && bs.isNotEmpty(); bs = bs.tail()) {
+              r = r.feed(Input.el(bs.head()));
+            }
+          }
+          return r;
+        }
+      };
+    }
+
+    /**
+     * An enumeratee that runs the given iteratee over the input again and again, passing each of its
+     * results on, such as to turn chunks of text into the messages parsed from them. Each run starts on
+     * the input that the previous one left over. The given iteratee must consume input before it
+     * finishes, and is not run at the end of the input unless it has started consuming.
+     */
+    public static <O, I> Enumeratee<O, I> sequence(final IterV<O, I> step) {
+      return new Enumeratee<O, I>() {
+        @Override
+        public <A> IterV<O, A> apply(final IterV<I, A> i) {
+          return next(step, false, i);
+        }
+
+        private <A> IterV<O, A> next(final IterV<O, I> run, final boolean started, final IterV<I, A> i) {
+          if (i.isDone()) {
+            return finished(i);
+          }
+          return IterV.cont(s -> s.isEl() ? drain(run.feed(s), true, i, false)
+            : s.isEof() ? drain(run, started, i, true)
+            : next(run, started, i));
+        }
+
+        // Passes on the results of the runs that have finished, restarting on their remaining input.
+        private <A> IterV<O, A> drain(final IterV<O, I> run, final boolean started, final IterV<I, A> i, final boolean eof) {
+          IterV<O, I> r = run;
+          boolean consuming = started;
+          IterV<I, A> inner = i;
+          while (true) {
+            if (!r.isDone()) {
+              if (!eof) {
+                return next(r, consuming, inner);
+              }
+              r = consuming ? r.feed(Input.<O>eof()) : r;
+              if (!r.isDone()) {
+                return exhausted(inner);
+              }
+            }
+            final P2<I, Input<O>> d = r.fold(x -> x, k -> null);
+            inner = inner.feed(Input.el(d._1()));
+            if (inner.isDone()) {
+              return finished(inner);
+            }
+            if (d._2().isEl()) {
+              r = step.feed(d._2());
+              consuming = true;
+            } else {
+              return eof ? exhausted(inner) : next(step, false, inner);
+            }
+          }
+        }
+      };
+    }
+
+    // the inner iteratee finished before the outer input was exhausted
+    private static <O, I, A> IterV<O, A> finished(final IterV<I, A> i) {
+      return IterV.done(i.run(), Input.<O>empty());
+    }
+
+    // the outer input is exhausted, so the inner iteratee is run to completion
+    private static <O, I, A> IterV<O, A> exhausted(final IterV<I, A> i) {
+      return IterV.done(i.run(), Input.<O>eof());
     }
   }
 
@@ -1517,7 +1517,11 @@ public abstract class List<A> implements Iterable<A> {
    * @return A list of the given value replicated the given number of times.
    */
   public static <A> List<A> replicate(final int n, final A a) {
-    return n <= 0 ? List.<A>nil() : replicate(n - 1, a).cons(a);
+    List<A> list = List.nil();
+    for (int i = 0; i < n; i++) {
+      list = list.cons(a);
+    }
+    return list;
   }
 
   /**
@@ -1530,7 +1534,11 @@ public abstract class List<A> implements Iterable<A> {
    *         <code>to</code> value (exclusive).
    */
   public static List<Integer> range(final int from, final int to) {
-    return from >= to ? List.<Integer>nil() : cons(from, range(from + 1, to));
+    List<Integer> list = List.nil();
+    for (int i = to; i > from; i--) {
+      list = list.cons(i - 1);
+    }
+    return list;
   }
 
   /**
@@ -0,0 +1,163 @@
+package fj.parser;
+
+import static fj.Bottom.error;
+
+/**
+ * Parser input over a {@link CharSequence} or a <code>char</code> array, addressed by an offset into
+ * it. Parsers over this input (see {@link Parser.CharInputParser}) read characters straight from the
+ * buffer, so that moving through the input allocates one small position object per step, and
+ * scanning a run of characters allocates nothing per character.
+ *
+ * @version %build.number%
+ */
+public abstract class CharInput extends IndexedInput<Character> {
+
+  CharInput(final Memo memo, final int offset) {
+    super(memo, offset);
+  }
+
+  /** The character at the given offset of the buffer. */
+  abstract char charAt(final int index);
+
+  /** The characters between the given offsets of the buffer. */
+  abstract String slice(final int from, final int to);
+
+  abstract CharInput moveTo(final int offset);
+
+  /** Input over the characters between the given offsets of the same buffer, with a memo of its own. */
+  abstract CharInput range(final int from, final int to);
+
+  final Character at(final int index) {
+    return charAt(index);
+  }
+
+  /**
+   * The character at this position.
+   *
+   * @return The character at this position.
+   */
+  public final char headChar() {
+    if (isEmpty()) {
+      throw error("head on empty input");
+    }
+    return charAt(offset);
+  }
+
+  @Override
+  public final CharInput tail() {
+    return drop(1);
+  }
+
+  @Override
+  public final CharInput drop(final int n) {
+    return n <= 0 ? this : moveTo(n >= length() ? memo.end : offset + n);
+  }
+
+  /**
+   * The characters from this position to the end of the input.
+   *
+   * @return The characters from this position to the end of the input.
+   */
+  public final String rest() {
+    return slice(offset, memo.end);
+  }
+
+  @Override
+  public final String toString() {
+    return rest();
+  }
+
+  /**
+   * Input over the characters of the given sequence.
+   *
+   * @param cs The characters of the input.
+   * @return Input at the first of the given characters.
+   */
+  public static CharInput fromCharSequence(final CharSequence cs) {
+    return new SequenceInput(new Memo(0, cs.length()), 0, cs);
+  }
+
+  /**
+   * Input over the characters of the given array.
+   *
+   * @param cs The characters of the input.
+   * @return Input at the first of the given characters.
+   */
+  public static CharInput fromChars(final char[] cs) {
+    return fromChars(cs, 0, cs.length);
+  }
+
+  /**
+   * Input over the characters of the given array between the given offsets. The array is not copied,
+   * and must not change while it is parsed.
+   *
+   * @param cs   The array that holds the input.
+   * @param from The offset of the first character of the input.
+   * @param to   The offset after the last character of the input.
+   * @return Input at the first of the given characters.
+   */
+  public static CharInput fromChars(final char[] cs, final int from, final int to) {
+    if (from < 0 || to > cs.length || from > to) {
+      throw error("Invalid range [" + from + ", " + to + ") of an array of length " + cs.length);
+    }
+    return new ArrayInput(new Memo(from, to), from, cs);
+  }
+
+  /**
+   * Input over the first characters of the given array that more input may follow, so that parsers
+   * which look past its end note that they need more input.
+   */
+  static CharInput partial(final char[] cs, final int length) {
+    return new ArrayInput(new Memo(0, length, true), 0, cs);
+  }
+
+  private static final class SequenceInput extends CharInput {
+    private final CharSequence cs;
+
+    SequenceInput(final Memo memo, final int offset, final CharSequence cs) {
+      super(memo, offset);
+      this.cs = cs;
+    }
+
+    char charAt(final int index) {
+      return cs.charAt(index);
+    }
+
+    String slice(final int from, final int to) {
+      return cs.subSequence(from, to).toString();
+    }
+
+    CharInput moveTo(final int offset) {
+      return new SequenceInput(memo, offset, cs);
+    }
+
+    CharInput range(final int from, final int to) {
+      return new SequenceInput(new Memo(from, to), from, cs);
+    }
+  }
+
+  private static final class ArrayInput extends CharInput {
+    private final char[] cs;
+
+    ArrayInput(final Memo memo, final int offset, final char[] cs) {
+      super(memo, offset);
+      this.cs = cs;
+    }
+
+    char charAt(final int index) {
+      return cs[index];
+    }
+
+    String slice(final int from, final int to) {
+      return new String(cs, from, to - from);
+    }
+
+    CharInput moveTo(final int offset) {
+      return new ArrayInput(memo, offset, cs);
+    }
+
+    CharInput range(final int from, final int to) {
+      return new ArrayInput(new Memo(from, to), from, cs);
+    }
+  }
+}
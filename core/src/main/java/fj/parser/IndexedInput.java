@@ -0,0 +1,191 @@
+package fj.parser;
+
+import fj.P1;
+import fj.data.Array;
+import fj.data.List;
+import fj.data.Stream;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static fj.Bottom.error;
+
+/**
+ * Parser input held in a random-access buffer and addressed by an offset into it. Moving past an
+ * element allocates a new position over the same buffer rather than copying, and every position knows
+ * its offset, so that parsers can remember their results by position (see
+ * {@link Parser.IndexedParser#memo}).
+ *
+ * @version %build.number%
+ */
+public abstract class IndexedInput<A> {
+  final Memo memo;
+  final int offset;
+
+  IndexedInput(final Memo memo, final int offset) {
+    this.memo = memo;
+    this.offset = offset;
+  }
+
+  // The results of memoised parsers over one buffer, by parser and offset, and whether a parser has
+  // looked past the end of a buffer that more input may follow (see Resumable).
+  static final class Memo {
+    final int start;
+    final int end;
+    final boolean partial;
+    boolean starved = false;
+    private final ConcurrentHashMap<Object, Object[]> tables = new ConcurrentHashMap<Object, Object[]>();
+
+    Memo(final int start, final int end) {
+      this(start, end, false);
+    }
+
+    Memo(final int start, final int end, final boolean partial) {
+      this.start = start;
+      this.end = end;
+      this.partial = partial;
+    }
+
+    // The results of the given parser, indexed by offset less the start of the buffer.
+    Object[] table(final Object parser) {
+      final Object[] t = tables.get(parser);
+      if (t != null) {
+        return t;
+      }
+      final Object[] u = tables.putIfAbsent(parser, new Object[end - start + 1]);
+      return u == null ? tables.get(parser) : u;
+    }
+  }
+
+  /** The element at the given offset of the buffer, which lies between this position and the end. */
+  abstract A at(final int index);
+
+  /** This input at the given offset of the same buffer. */
+  abstract IndexedInput<A> moveTo(final int offset);
+
+  /**
+   * The offset of this position in the buffer.
+   *
+   * @return The offset of this position in the buffer.
+   */
+  public final int offset() {
+    return offset;
+  }
+
+  /**
+   * The number of elements from this position to the end of the input.
+   *
+   * @return The number of elements from this position to the end of the input.
+   */
+  public final int length() {
+    return memo.end - offset;
+  }
+
+  /**
+   * Whether there are no elements at this position.
+   *
+   * @return Whether there are no elements at this position.
+   */
+  public final boolean isEmpty() {
+    return atEnd(offset);
+  }
+
+  // Whether the given offset is past the input, noting that the parser needs more of a partial input.
+  final boolean atEnd(final int index) {
+    if (index >= memo.end) {
+      memo.starved |= memo.partial;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * The element at this position.
+   *
+   * @return The element at this position.
+   */
+  public final A head() {
+    if (isEmpty()) {
+      throw error("head on empty input");
+    }
+    return at(offset);
+  }
+
+  /**
+   * The input after the element at this position.
+   *
+   * @return The input after the element at this position.
+   */
+  public IndexedInput<A> tail() {
+    return drop(1);
+  }
+
+  /**
+   * The input after the given number of elements, or at the end if there are fewer.
+   *
+   * @param n The number of elements to move past.
+   * @return The input after the given number of elements.
+   */
+  public IndexedInput<A> drop(final int n) {
+    return n <= 0 ? this : moveTo(n >= length() ? memo.end : offset + n);
+  }
+
+  /**
+   * The elements from this position to the end of the input.
+   *
+   * @return The elements from this position to the end of the input.
+   */
+  public final Stream<A> toStream() {
+    return isEmpty() ? Stream.<A>nil() : Stream.cons(head(), new P1<Stream<A>>() {
+      public Stream<A> _1() {
+        return tail().toStream();
+      }
+    });
+  }
+
+  /**
+   * Input over the elements of the given array.
+   *
+   * @param as The elements of the input.
+   * @return Input at the first of the given elements.
+   */
+  public static <A> IndexedInput<A> fromArray(final Array<A> as) {
+    return new ArrayInput<A>(new Memo(0, as.length()), 0, as);
+  }
+
+  /**
+   * Input over the elements of the given list.
+   *
+   * @param as The elements of the input.
+   * @return Input at the first of the given elements.
+   */
+  public static <A> IndexedInput<A> fromList(final List<A> as) {
+    return fromArray(as.toArray());
+  }
+
+  /**
+   * Input over the elements of the given stream, which must be finite.
+   *
+   * @param as The elements of the input.
+   * @return Input at the first of the given elements.
+   */
+  public static <A> IndexedInput<A> fromStream(final Stream<A> as) {
+    return fromArray(as.toArray());
+  }
+
+  private static final class ArrayInput<A> extends IndexedInput<A> {
+    private final Array<A> as;
+
+    ArrayInput(final Memo memo, final int offset, final Array<A> as) {
+      super(memo, offset);
+      this.as = as;
+    }
+
+    A at(final int index) {
+      return as.get(index);
+    }
+
+    IndexedInput<A> moveTo(final int offset) {
+      return new ArrayInput<A>(memo, offset, as);
+    }
+  }
+}
@@ -22,9 +22,18 @@ import static fj.parser.Result.result;
  */
 public final class Parser<I, A, E> {
   private final F<I, Validation<E, Result<I, A>>> f;
+  // how this parser was built, for the optimiser, or null if it is opaque or built without the
+  // primitives of CharInputParser, which are the only parsers that start a shape
+  final Shape shape;
 
-  private Parser(final F<I, Validation<E, Result<I, A>>> f) {
+  private Parser(final F<I, Validation<E, Result<I, A>>> f, final Shape shape) {
     this.f = f;
+    this.shape = shape;
+  }
+
+  // This parser, described by the given shape.
+  Parser<I, A, E> shaped(final Shape shape) {
+    return new Parser<I, A, E>(f, shape);
   }
 
   /**
@@ -63,7 +72,7 @@ public final class Parser<I, A, E> {
    * @return A parser with the new result type.
    */
   public <B> Parser<I, B, E> map(final F<A, B> f) {
-    return parser(new F<I, Validation<E, Result<I, B>>>() {
+    return new Parser<I, B, E>(new F<I, Validation<E, Result<I, B>>>() {
       public Validation<E, Result<I, B>> f(final I i) {
         return parse(i).map(new F<Result<I, A>, Result<I, B>>() {
           public Result<I, B> f(final Result<I, A> r) {
@@ -71,7 +80,7 @@ public final class Parser<I, A, E> {
           }
         });
       }
-    });
+    }, shape == null ? null : Shape.map(this, f));
   }
 
   /**
@@ -82,7 +91,7 @@ public final class Parser<I, A, E> {
    * @return A parser that fails with the given error if the result value does not meet the given predicate.
    */
   public Parser<I, A, E> filter(final F<A, Boolean> f, final E e) {
-    return parser(new F<I, Validation<E, Result<I, A>>>() {
+    return new Parser<I, A, E>(new F<I, Validation<E, Result<I, A>>>() {
       public Validation<E, Result<I, A>> f(final I i) {
         return parse(i).bind(new F<Result<I, A>, Validation<E, Result<I, A>>>() {
           public Validation<E, Result<I, A>> f(final Result<I, A> r) {
@@ -93,7 +102,7 @@ public final class Parser<I, A, E> {
           }
         });
       }
-    });
+    }, shape == null ? null : Shape.filter(this, f, e));
   }
 
   /**
@@ -103,7 +112,7 @@ public final class Parser<I, A, E> {
    * @return A new parser after performing the map, then final join.
    */
   public <B> Parser<I, B, E> bind(final F<A, Parser<I, B, E>> f) {
-    return parser(new F<I, Validation<E, Result<I, B>>>() {
+    return new Parser<I, B, E>(new F<I, Validation<E, Result<I, B>>>() {
       public Validation<E, Result<I, B>> f(final I i) {
         return parse(i).bind(new F<Result<I, A>, Validation<E, Result<I, B>>>() {
           public Validation<E, Result<I, B>> f(final Result<I, A> r) {
@@ -111,7 +120,7 @@ public final class Parser<I, A, E> {
           }
         });
       }
-    });
+    }, shape == null ? null : Shape.bind(this, f));
   }
 
   /**
@@ -233,11 +242,15 @@ public final class Parser<I, A, E> {
    * @return A parser after binding anonymously.
    */
   public <B> Parser<I, B, E> sequence(final Parser<I, B, E> p) {
-    return bind(new F<A, Parser<I, B, E>>() {
-      public Parser<I, B, E> f(final A a) {
-        return p;
+    return new Parser<I, B, E>(new F<I, Validation<E, Result<I, B>>>() {
+      public Validation<E, Result<I, B>> f(final I i) {
+        return parse(i).bind(new F<Result<I, A>, Validation<E, Result<I, B>>>() {
+          public Validation<E, Result<I, B>> f(final Result<I, A> r) {
+            return p.parse(r.rest());
+          }
+        });
       }
-    });
+    }, shape == null && p.shape == null ? null : Shape.sequence(this, p));
   }
 
   /**
@@ -261,11 +274,11 @@ public final class Parser<I, A, E> {
    * @return A parser that tries this parser and if it fails, then tries the given parser.
    */
   public Parser<I, A, E> or(final P1<Parser<I, A, E>> alt) {
-    return parser(new F<I, Validation<E, Result<I, A>>>() {
+    return new Parser<I, A, E>(new F<I, Validation<E, Result<I, A>>>() {
       public Validation<E, Result<I, A>> f(final I i) {
         return parse(i).f().sequence(alt._1().parse(i));
       }
-    });
+    }, shape == null ? null : Shape.or(this, alt));
   }
 
   /**
@@ -275,7 +288,11 @@ public final class Parser<I, A, E> {
    * @return A parser that tries this parser and if it fails, then tries the given parser.
    */
   public Parser<I, A, E> or(final Parser<I, A, E> alt) {
-    return or(p(alt));
+    return new Parser<I, A, E>(new F<I, Validation<E, Result<I, A>>>() {
+      public Validation<E, Result<I, A>> f(final I i) {
+        return parse(i).f().sequence(alt.parse(i));
+      }
+    }, shape == null && alt.shape == null ? null : Shape.or(this, alt));
   }
 
   /**
@@ -342,7 +359,13 @@ public final class Parser<I, A, E> {
    * @return A parser that repeats application of this parser zero or many times.
    */
   public Parser<I, Stream<A>, E> repeat() {
-    return repeat1().or(new P1<Parser<I, Stream<A>, E>>() {
+    final Parser<I, Stream<A>, E> r = many();
+    return shape == null ? r : new Parser<I, Stream<A>, E>(r.f, Shape.repeat(this));
+  }
+
+  // repeat without a shape, so that the parsers that repetitions build while parsing carry none
+  private Parser<I, Stream<A>, E> many() {
+    return many1().or(new P1<Parser<I, Stream<A>, E>>() {
       public Parser<I, Stream<A>, E> _1() {
         return value(Stream.<A>nil());
       }
@@ -355,15 +378,29 @@ public final class Parser<I, A, E> {
    * @return A parser that repeats application of this parser one or many times.
    */
   public Parser<I, Stream<A>, E> repeat1() {
-      return bind(new F<A, Parser<I, Stream<A>, E>>() {
-          public Parser<I, Stream<A>, E> f(final A a) {
-              return repeat().map(new F<Stream<A>, Stream<A>>() {
-                public Stream<A> f(final Stream<A> as) {
-                    return as.cons(a);
-                }
+    final Parser<I, Stream<A>, E> r = many1();
+    return shape == null ? r : new Parser<I, Stream<A>, E>(r.f, Shape.repeat1(this));
+  }
+
+  // repeat1 without a shape
+  private Parser<I, Stream<A>, E> many1() {
+    return parser(new F<I, Validation<E, Result<I, Stream<A>>>>() {
+      public Validation<E, Result<I, Stream<A>>> f(final I i) {
+        return parse(i).bind(new F<Result<I, A>, Validation<E, Result<I, Stream<A>>>>() {
+          public Validation<E, Result<I, Stream<A>>> f(final Result<I, A> r) {
+            return many().parse(r.rest()).map(new F<Result<I, Stream<A>>, Result<I, Stream<A>>>() {
+              public Result<I, Stream<A>> f(final Result<I, Stream<A>> as) {
+                return as.mapValue(new F<Stream<A>, Stream<A>>() {
+                  public Stream<A> f(final Stream<A> xs) {
+                    return xs.cons(r.value());
+                  }
+                });
+              }
             });
           }
-      });
+        });
+      }
+    });
   }
 
   /**
@@ -387,7 +424,7 @@ public final class Parser<I, A, E> {
    * @return A parser that computes using the given function.
    */
   public static <I, A, E> Parser<I, A, E> parser(final F<I, Validation<E, Result<I, A>>> f) {
-    return new Parser<I, A, E>(f);
+    return new Parser<I, A, E>(f, null);
   }
 
   /**
@@ -500,6 +537,104 @@ public final class Parser<I, A, E> {
     }
   }
 
+  /**
+   * Parsers that accept {@link IndexedInput} input.
+   */
+  public static final class IndexedParser {
+    private IndexedParser() {
+
+    }
+
+    /**
+     * Returns a parser that produces an element from the input if it is available and fails otherwise.
+     *
+     * @param e The error to fail with if no element is available.
+     * @return A parser that produces an element from the input if it is available and fails otherwise.
+     */
+    public static <I, E> Parser<IndexedInput<I>, I, E> element(final P1<E> e) {
+      return parser(new F<IndexedInput<I>, Validation<E, Result<IndexedInput<I>, I>>>() {
+        public Validation<E, Result<IndexedInput<I>, I>> f(final IndexedInput<I> is) {
+          return is.isEmpty() ?
+              Validation.<E, Result<IndexedInput<I>, I>>fail(e._1()) :
+              Validation.<E, Result<IndexedInput<I>, I>>success(result(is.tail(), is.head()));
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an element from the input if it is available and fails otherwise.
+     *
+     * @param e The error to fail with if no element is available.
+     * @return A parser that produces an element from the input if it is available and fails otherwise.
+     */
+    public static <I, E> Parser<IndexedInput<I>, I, E> element(final E e) {
+      return element(p(e));
+    }
+
+    /**
+     * Returns a parser that produces an element from the input that satisfies the given predicate, or fails.
+     *
+     * @param missing The error if no element is available.
+     * @param sat     The error if the element does not satisfy the predicate.
+     * @param f       The predicate that the element should satisfy.
+     * @return A parser that produces an element from the input that satisfies the given predicate, or fails.
+     */
+    public static <I, E> Parser<IndexedInput<I>, I, E> satisfy(final P1<E> missing, final F<I, E> sat,
+                                                               final F<I, Boolean> f) {
+      return parser(new F<IndexedInput<I>, Validation<E, Result<IndexedInput<I>, I>>>() {
+        public Validation<E, Result<IndexedInput<I>, I>> f(final IndexedInput<I> is) {
+          if (is.isEmpty()) {
+            return Validation.fail(missing._1());
+          }
+          final I x = is.head();
+          return f.f(x) ?
+              Validation.<E, Result<IndexedInput<I>, I>>success(result(is.tail(), x)) :
+              Validation.<E, Result<IndexedInput<I>, I>>fail(sat.f(x));
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an element from the input that satisfies the given predicate, or fails.
+     *
+     * @param missing The error if no element is available.
+     * @param sat     The error if the element does not satisfy the predicate.
+     * @param f       The predicate that the element should satisfy.
+     * @return A parser that produces an element from the input that satisfies the given predicate, or fails.
+     */
+    public static <I, E> Parser<IndexedInput<I>, I, E> satisfy(final E missing, final F<I, E> sat,
+                                                               final F<I, Boolean> f) {
+      return satisfy(p(missing), sat, f);
+    }
+
+    /**
+     * Returns a parser that behaves as the given one, but that parses each position of an input at most
+     * once, remembering its result for the next time it is asked to parse there (packrat parsing). A
+     * grammar whose alternatives share prefixes then backtracks in time linear in the input, rather than
+     * exponential, when the shared parts are memoised, at the cost of memory for a table per memoised
+     * parser and input. The given parser must not be left-recursive.
+     *
+     * @param p The parser to memoise.
+     * @return A parser that behaves as the given one and remembers its results by position.
+     */
+    public static <I extends IndexedInput<?>, A, E> Parser<I, A, E> memo(final Parser<I, A, E> p) {
+      return parser(new F<I, Validation<E, Result<I, A>>>() {
+        @SuppressWarnings("unchecked")
+        public Validation<E, Result<I, A>> f(final I i) {
+          final Object[] table = i.memo.table(this);
+          final int k = i.offset - i.memo.start;
+          final Object known = table[k];
+          if (known != null) {
+            return (Validation<E, Result<I, A>>) known;
+          }
+          final Validation<E, Result<I, A>> v = p.parse(i);
+          table[k] = v;
+          return v;
+        }
+      });
+    }
+  }
+
   /**
    * Parsers that accept {@link Stream Stream&lt;Character&gt;} input.
    */
@@ -1164,4 +1299,785 @@ public final class Parser<I, A, E> {
       return whitespace(p(missing), sat);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Parsers that accept {@link CharInput} input. They behave as their namesakes in {@link CharsParser},
+   * except that parsers of several characters produce a <code>String</code>, read from the input buffer
+   * at once.
+   */
+  public static final class CharInputParser {
+    private CharInputParser() {
+
+    }
+
+    /**
+     * Returns a parser that produces a character if one is available or fails with the given error.
+     *
+     * @param e The error to fail with if a character is unavailable.
+     * @return A parser that produces a character if one is available or fails with the given error.
+     */
+    public static <E> Parser<CharInput, Character, E> character(final P1<E> e) {
+      return new Parser<CharInput, Character, E>(new F<CharInput, Validation<E, Result<CharInput, Character>>>() {
+        public Validation<E, Result<CharInput, Character>> f(final CharInput i) {
+          return i.isEmpty() ?
+              Validation.<E, Result<CharInput, Character>>fail(e._1()) :
+              Validation.<E, Result<CharInput, Character>>success(result(i.tail(), i.headChar()));
+        }
+      }, Shape.satisfy(e, null, Shape.ANY));
+    }
+
+    /**
+     * Returns a parser that produces a character if one is available or fails with the given error.
+     *
+     * @param e The error to fail with if a character is unavailable.
+     * @return A parser that produces a character if one is available or fails with the given error.
+     */
+    public static <E> Parser<CharInput, Character, E> character(final E e) {
+      return character(p(e));
+    }
+
+    /**
+     * Returns a parser that produces a character that satisfies the given predicate, or fails.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the character does not satisfy the predicate.
+     * @param f       The predicate that the character should satisfy.
+     * @return A parser that produces a character that satisfies the given predicate, or fails.
+     */
+    public static <E> Parser<CharInput, Character, E> satisfy(final P1<E> missing, final F<Character, E> sat,
+                                                              final F<Character, Boolean> f) {
+      return new Parser<CharInput, Character, E>(new F<CharInput, Validation<E, Result<CharInput, Character>>>() {
+        public Validation<E, Result<CharInput, Character>> f(final CharInput i) {
+          if (i.isEmpty()) {
+            return Validation.fail(missing._1());
+          }
+          final Character c = i.headChar();
+          return f.f(c) ?
+              Validation.<E, Result<CharInput, Character>>success(result(i.tail(), c)) :
+              Validation.<E, Result<CharInput, Character>>fail(sat.f(c));
+        }
+      }, Shape.satisfy(missing, sat, f));
+    }
+
+    /**
+     * Returns a parser that produces a character that satisfies the given predicate, or fails.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the character does not satisfy the predicate.
+     * @param f       The predicate that the character should satisfy.
+     * @return A parser that produces a character that satisfies the given predicate, or fails.
+     */
+    public static <E> Parser<CharInput, Character, E> satisfy(final E missing, final F<Character, E> sat,
+                                                              final F<Character, Boolean> f) {
+      return satisfy(p(missing), sat, f);
+    }
+
+    /**
+     * Returns a parser that produces the given character or fails otherwise.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the produced character is not the one given.
+     * @param c       The character to produce in the parser.
+     * @return A parser that produces the given character or fails otherwise.
+     */
+    public static <E> Parser<CharInput, Character, E> character(final P1<E> missing, final F<Character, E> sat,
+                                                                final char c) {
+      return new Parser<CharInput, Character, E>(new F<CharInput, Validation<E, Result<CharInput, Character>>>() {
+        public Validation<E, Result<CharInput, Character>> f(final CharInput i) {
+          if (i.isEmpty()) {
+            return Validation.fail(missing._1());
+          }
+          final char x = i.headChar();
+          return x == c ?
+              Validation.<E, Result<CharInput, Character>>success(result(i.tail(), x)) :
+              Validation.<E, Result<CharInput, Character>>fail(sat.f(x));
+        }
+      }, Shape.satisfy(missing, sat, Shape.is(c)));
+    }
+
+    /**
+     * Returns a parser that produces the given character or fails otherwise.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the produced character is not the one given.
+     * @param c       The character to produce in the parser.
+     * @return A parser that produces the given character or fails otherwise.
+     */
+    public static <E> Parser<CharInput, Character, E> character(final E missing, final F<Character, E> sat,
+                                                                final char c) {
+      return character(p(missing), sat, c);
+    }
+
+    /**
+     * Returns a parser that produces the given number of characters, or fails with the given error.
+     *
+     * @param missing The error if the given number of characters is unavailable.
+     * @param n       The number of characters to produce in the parse result.
+     * @return A parser that produces the given number of characters, or fails with the given error.
+     */
+    public static <E> Parser<CharInput, String, E> characters(final P1<E> missing, final int n) {
+      return parser(new F<CharInput, Validation<E, Result<CharInput, String>>>() {
+        public Validation<E, Result<CharInput, String>> f(final CharInput i) {
+          if (n <= 0) {
+            return success(result(i, ""));
+          }
+          return i.atEnd(n > i.length() ? i.offset + i.length() : i.offset + n - 1) ?
+              Validation.<E, Result<CharInput, String>>fail(missing._1()) :
+              Validation.<E, Result<CharInput, String>>success(result(i.drop(n), i.slice(i.offset, i.offset + n)));
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces the given number of characters, or fails with the given error.
+     *
+     * @param missing The error if the given number of characters is unavailable.
+     * @param n       The number of characters to produce in the parse result.
+     * @return A parser that produces the given number of characters, or fails with the given error.
+     */
+    public static <E> Parser<CharInput, String, E> characters(final E missing, final int n) {
+      return characters(p(missing), n);
+    }
+
+    /**
+     * Returns a parser that produces the given string or fails otherwise.
+     *
+     * @param missing The error if the input could not supply more characters.
+     * @param sat     The error if a character was produced that is not the given string.
+     * @param s       The string to produce.
+     * @return A parser that produces the given string or fails otherwise.
+     */
+    public static <E> Parser<CharInput, String, E> string(final P1<E> missing, final F<Character, E> sat,
+                                                          final String s) {
+      return new Parser<CharInput, String, E>(new F<CharInput, Validation<E, Result<CharInput, String>>>() {
+        public Validation<E, Result<CharInput, String>> f(final CharInput i) {
+          final int n = s.length();
+          for (int k = 0; k < n; k++) {
+            if (i.atEnd(i.offset + k)) {
+              return Validation.fail(missing._1());
+            }
+            final char x = i.charAt(i.offset + k);
+            if (x != s.charAt(k)) {
+              return Validation.fail(sat.f(x));
+            }
+          }
+          return success(result(i.drop(n), s));
+        }
+      }, s.isEmpty() ? null : Shape.prefix(Shape.is(s.charAt(0))));
+    }
+
+    /**
+     * Returns a parser that produces the given string or fails otherwise.
+     *
+     * @param missing The error if the input could not supply more characters.
+     * @param sat     The error if a character was produced that is not the given string.
+     * @param s       The string to produce.
+     * @return A parser that produces the given string or fails otherwise.
+     */
+    public static <E> Parser<CharInput, String, E> string(final E missing, final F<Character, E> sat,
+                                                          final String s) {
+      return string(p(missing), sat, s);
+    }
+
+    /**
+     * Returns a parser that produces the longest run of characters, possibly empty, that satisfy the
+     * given predicate. It scans the input buffer and allocates only the resulting string.
+     *
+     * @param f The predicate that the characters should satisfy.
+     * @return A parser that produces the longest run of characters that satisfy the given predicate.
+     */
+    public static <E> Parser<CharInput, String, E> takeWhile(final F<Character, Boolean> f) {
+      return parser(new F<CharInput, Validation<E, Result<CharInput, String>>>() {
+        public Validation<E, Result<CharInput, String>> f(final CharInput i) {
+          int k = i.offset;
+          while (!i.atEnd(k) && f.f(i.charAt(k))) {
+            k++;
+          }
+          return success(result(i.moveTo(k), i.slice(i.offset, k)));
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces the longest run of at least one character that satisfy the given
+     * predicate, or fails.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the first character does not satisfy the predicate.
+     * @param f       The predicate that the characters should satisfy.
+     * @return A parser that produces the longest run of characters that satisfy the given predicate.
+     */
+    public static <E> Parser<CharInput, String, E> takeWhile1(final P1<E> missing, final F<Character, E> sat,
+                                                              final F<Character, Boolean> f) {
+      final Parser<CharInput, String, E> run = takeWhile(f);
+      return new Parser<CharInput, String, E>(new F<CharInput, Validation<E, Result<CharInput, String>>>() {
+        public Validation<E, Result<CharInput, String>> f(final CharInput i) {
+          if (i.isEmpty()) {
+            return Validation.fail(missing._1());
+          }
+          final char c = i.headChar();
+          return f.f(c) ?
+              run.parse(i) :
+              Validation.<E, Result<CharInput, String>>fail(sat.f(c));
+        }
+      }, Shape.prefix(f));
+    }
+
+    /**
+     * Returns a parser that produces the longest run of at least one character that satisfy the given
+     * predicate, or fails.
+     *
+     * @param missing The error if no character is available.
+     * @param sat     The error if the first character does not satisfy the predicate.
+     * @param f       The predicate that the characters should satisfy.
+     * @return A parser that produces the longest run of characters that satisfy the given predicate.
+     */
+    public static <E> Parser<CharInput, String, E> takeWhile1(final E missing, final F<Character, E> sat,
+                                                              final F<Character, Boolean> f) {
+      return takeWhile1(p(missing), sat, f);
+    }
+
+    /**
+     * Rebuilds the given parser into one that behaves the same but runs faster, by analysing how it was
+     * built from the primitives of this class and the combinators of {@link Parser}:
+     * <ul>
+     * <li>alternatives between single characters become one lookup in a table of the characters,</li>
+     * <li>repetitions of single characters become loops that scan the input buffer, and other
+     * repetitions become loops rather than chains of binds,</li>
+     * <li>of a chain of alternatives built with {@link Parser#or(Parser)}, those that cannot start with
+     * the next character are skipped.</li>
+     * </ul>
+     * Character predicates are evaluated for every character when the parser is rebuilt, and must be
+     * pure. Parsers built by other means, including the alternatives of {@link Parser#or(P1)} and the
+     * parsers returned by the functions of {@link Parser#bind(F)}, are kept as they are.
+     *
+     * @param p The parser to optimise.
+     * @return A parser that behaves as the given one.
+     */
+    public static <A, E> Parser<CharInput, A, E> optimize(final Parser<CharInput, A, E> p) {
+      return Shape.optimize(p);
+    }
+
+    /**
+     * Returns a parser that produces a digit (0 to 9).
+     *
+     * @param missing The error if there is no character in the input to produce a digit with.
+     * @param sat     The error if the produced character is not a digit.
+     * @return A parser that produces a digit (0 to 9).
+     */
+    public static <E> Parser<CharInput, Digit, E> digit(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isDigit(c);
+        }
+      }).map(new F<Character, Digit>() {
+        public Digit f(final Character c) {
+          return Digit.fromChar(c).some();
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a digit (0 to 9).
+     *
+     * @param missing The error if there is no character in the input to produce a digit with.
+     * @param sat     The error if the produced character is not a digit.
+     * @return A parser that produces a digit (0 to 9).
+     */
+    public static <E> Parser<CharInput, Digit, E> digit(final E missing, final F<Character, E> sat) {
+      return digit(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a lower-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a lower-case character with.
+     * @param sat     The error if the produced character is not a lower-case character.
+     * @return A parser that produces a lower-case character.
+     * @see Character#isLowerCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> lower(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isLowerCase(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a lower-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a lower-case character with.
+     * @param sat     The error if the produced character is not a lower-case character.
+     * @return A parser that produces a lower-case character.
+     * @see Character#isLowerCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> lower(final E missing, final F<Character, E> sat) {
+      return lower(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a upper-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a upper-case character with.
+     * @param sat     The error if the produced character is not a upper-case character.
+     * @return A parser that produces a upper-case character.
+     * @see Character#isUpperCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> upper(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isUpperCase(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a upper-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a upper-case character with.
+     * @param sat     The error if the produced character is not a upper-case character.
+     * @return A parser that produces a upper-case character.
+     * @see Character#isUpperCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> upper(final E missing, final F<Character, E> sat) {
+      return upper(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a defined character.
+     *
+     * @param missing The error if there is no character in the input to produce a defined character with.
+     * @param sat     The error if the produced character is not a defined character.
+     * @return A parser that produces a defined character.
+     * @see Character#isDefined(char)
+     */
+    public static <E> Parser<CharInput, Character, E> defined(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isDefined(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a defined character.
+     *
+     * @param missing The error if there is no character in the input to produce a defined character with.
+     * @param sat     The error if the produced character is not a defined character.
+     * @return A parser that produces a defined character.
+     * @see Character#isDefined(char)
+     */
+    public static <E> Parser<CharInput, Character, E> defined(final E missing, final F<Character, E> sat) {
+      return defined(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a high-surrogate character.
+     *
+     * @param missing The error if there is no character in the input to produce a high-surrogate character with.
+     * @param sat     The error if the produced character is not a high-surrogate character.
+     * @return A parser that produces a high-surrogate character.
+     * @see Character#isHighSurrogate(char)
+     */
+    public static <E> Parser<CharInput, Character, E> highSurrogate(final P1<E> missing,
+                                                                            final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isHighSurrogate(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a high-surrogate character.
+     *
+     * @param missing The error if there is no character in the input to produce a high-surrogate character with.
+     * @param sat     The error if the produced character is not a high-surrogate character.
+     * @return A parser that produces a high-surrogate character.
+     * @see Character#isHighSurrogate(char)
+     */
+    public static <E> Parser<CharInput, Character, E> highSurrogate(final E missing,
+                                                                            final F<Character, E> sat) {
+      return highSurrogate(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces an identifier-ignorable character.
+     *
+     * @param missing The error if there is no character in the input to produce an identifier-ignorable character with.
+     * @param sat     The error if the produced character is not an identifier-ignorable character.
+     * @return A parser that produces an identifier-ignorable character.
+     * @see Character#isIdentifierIgnorable(char)
+     */
+    public static <E> Parser<CharInput, Character, E> identifierIgnorable(final P1<E> missing,
+                                                                                  final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isIdentifierIgnorable(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an identifier-ignorable character.
+     *
+     * @param missing The error if there is no character in the input to produce an identifier-ignorable character with.
+     * @param sat     The error if the produced character is not an identifier-ignorable character.
+     * @return A parser that produces an identifier-ignorable character.
+     * @see Character#isIdentifierIgnorable(char)
+     */
+    public static <E> Parser<CharInput, Character, E> identifierIgnorable(final E missing,
+                                                                                  final F<Character, E> sat) {
+      return identifierIgnorable(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces an ISO control character.
+     *
+     * @param missing The error if there is no character in the input to produce an ISO control character with.
+     * @param sat     The error if the produced character is not an ISO control character.
+     * @return A parser that produces an ISO control character.
+     * @see Character#isISOControl(char)
+     */
+    public static <E> Parser<CharInput, Character, E> isoControl(final P1<E> missing,
+                                                                         final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isISOControl(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an ISO control character.
+     *
+     * @param missing The error if there is no character in the input to produce an ISO control character with.
+     * @param sat     The error if the produced character is not an ISO control character.
+     * @return A parser that produces an ISO control character.
+     * @see Character#isISOControl(char)
+     */
+    public static <E> Parser<CharInput, Character, E> isoControl(final E missing, final F<Character, E> sat) {
+      return isoControl(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a Java identifier part character.
+     *
+     * @param missing The error if there is no character in the input to produce a Java identifier part character with.
+     * @param sat     The error if the produced character is not a Java identifier part character.
+     * @return A parser that produces a Java identifier part character.
+     * @see Character#isJavaIdentifierPart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> javaIdentifierPart(final P1<E> missing,
+                                                                                 final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isJavaIdentifierPart(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a Java identifier part character.
+     *
+     * @param missing The error if there is no character in the input to produce a Java identifier part character with.
+     * @param sat     The error if the produced character is not a Java identifier part character.
+     * @return A parser that produces a Java identifier part character.
+     * @see Character#isJavaIdentifierPart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> javaIdentifierPart(final E missing,
+                                                                                 final F<Character, E> sat) {
+      return javaIdentifierPart(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a Java identifier start character.
+     *
+     * @param missing The error if there is no character in the input to produce a Java identifier start character with.
+     * @param sat     The error if the produced character is not a Java identifier start character.
+     * @return A parser that produces a Java identifier start character.
+     * @see Character#isJavaIdentifierStart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> javaIdentifierStart(final P1<E> missing,
+                                                                                  final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isJavaIdentifierStart(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a Java identifier start character.
+     *
+     * @param missing The error if there is no character in the input to produce a Java identifier start character with.
+     * @param sat     The error if the produced character is not a Java identifier start character.
+     * @return A parser that produces a Java identifier start character.
+     * @see Character#isJavaIdentifierStart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> javaIdentifierStart(final E missing,
+                                                                                  final F<Character, E> sat) {
+      return javaIdentifierStart(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces an alpha character.
+     *
+     * @param missing The error if there is no character in the input to produce an alpha character with.
+     * @param sat     The error if the produced character is not an alpha character.
+     * @return A parser that produces an alpha character.
+     * @see Character#isLetter(char)
+     */
+    public static <E> Parser<CharInput, Character, E> alpha(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isLetter(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an alpha character.
+     *
+     * @param missing The error if there is no character in the input to produce an alpha character with.
+     * @param sat     The error if the produced character is not an alpha character.
+     * @return A parser that produces an alpha character.
+     * @see Character#isLetter(char)
+     */
+    public static <E> Parser<CharInput, Character, E> alpha(final E missing, final F<Character, E> sat) {
+      return alpha(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces an alpha-numeric character.
+     *
+     * @param missing The error if there is no character in the input to produce an alpha-numeric character with.
+     * @param sat     The error if the produced character is not an alpha-numeric character.
+     * @return A parser that produces an alpha-numeric character.
+     * @see Character#isLetterOrDigit(char)
+     */
+    public static <E> Parser<CharInput, Character, E> alphaNum(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isLetterOrDigit(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces an alpha-numeric character.
+     *
+     * @param missing The error if there is no character in the input to produce an alpha-numeric character with.
+     * @param sat     The error if the produced character is not an alpha-numeric character.
+     * @return A parser that produces an alpha-numeric character.
+     * @see Character#isLetterOrDigit(char)
+     */
+    public static <E> Parser<CharInput, Character, E> alphaNum(final E missing, final F<Character, E> sat) {
+      return alphaNum(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a low-surrogate character.
+     *
+     * @param missing The error if there is no character in the input to produce a low-surrogate character with.
+     * @param sat     The error if the produced character is not a low-surrogate character.
+     * @return A parser that produces a low-surrogate character.
+     * @see Character#isLowSurrogate(char)
+     */
+    public static <E> Parser<CharInput, Character, E> lowSurrogate(final P1<E> missing,
+                                                                           final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isLowSurrogate(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a low-surrogate character.
+     *
+     * @param missing The error if there is no character in the input to produce a low-surrogate character with.
+     * @param sat     The error if the produced character is not a low-surrogate character.
+     * @return A parser that produces a low-surrogate character.
+     * @see Character#isLowSurrogate(char)
+     */
+    public static <E> Parser<CharInput, Character, E> lowSurrogate(final E missing, final F<Character, E> sat) {
+      return lowSurrogate(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a mirrored character.
+     *
+     * @param missing The error if there is no character in the input to produce a mirrored character with.
+     * @param sat     The error if the produced character is not a mirrored character.
+     * @return A parser that produces a mirrored character.
+     * @see Character#isMirrored(char)
+     */
+    public static <E> Parser<CharInput, Character, E> mirrored(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isMirrored(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a mirrored character.
+     *
+     * @param missing The error if there is no character in the input to produce a mirrored character with.
+     * @param sat     The error if the produced character is not a mirrored character.
+     * @return A parser that produces a mirrored character.
+     * @see Character#isMirrored(char)
+     */
+    public static <E> Parser<CharInput, Character, E> mirrored(final E missing, final F<Character, E> sat) {
+      return mirrored(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a space character.
+     *
+     * @param missing The error if there is no character in the input to produce a space character with.
+     * @param sat     The error if the produced character is not a space character.
+     * @return A parser that produces a space character.
+     * @see Character#isSpace(char)
+     */
+    public static <E> Parser<CharInput, Character, E> space(final P1<E> missing, final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isSpaceChar(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a space character.
+     *
+     * @param missing The error if there is no character in the input to produce a space character with.
+     * @param sat     The error if the produced character is not a space character.
+     * @return A parser that produces a space character.
+     * @see Character#isSpace(char)
+     */
+    public static <E> Parser<CharInput, Character, E> space(final E missing, final F<Character, E> sat) {
+      return space(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a title-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a title-case character with.
+     * @param sat     The error if the produced character is not a title-case character.
+     * @return A parser that produces a title-case character.
+     * @see Character#isTitleCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> titleCase(final P1<E> missing,
+                                                                        final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isTitleCase(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a title-case character.
+     *
+     * @param missing The error if there is no character in the input to produce a title-case character with.
+     * @param sat     The error if the produced character is not a title-case character.
+     * @return A parser that produces a title-case character.
+     * @see Character#isTitleCase(char)
+     */
+    public static <E> Parser<CharInput, Character, E> titleCase(final E missing, final F<Character, E> sat) {
+      return titleCase(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a unicode identifier part character.
+     *
+     * @param missing The error if there is no character in the input to produce a unicode identifier part character with.
+     * @param sat     The error if the produced character is not a unicode identifier part character.
+     * @return A parser that produces a unicode identifier part character.
+     * @see Character#isUnicodeIdentifierPart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> unicodeIdentiferPart(final P1<E> missing,
+                                                                                   final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isUnicodeIdentifierPart(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a unicode identifier part character.
+     *
+     * @param missing The error if there is no character in the input to produce a unicode identifier part character with.
+     * @param sat     The error if the produced character is not a unicode identifier part character.
+     * @return A parser that produces a unicode identifier part character.
+     * @see Character#isUnicodeIdentifierPart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> unicodeIdentiferPart(final E missing,
+                                                                                   final F<Character, E> sat) {
+      return unicodeIdentiferPart(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a unicode identifier start character.
+     *
+     * @param missing The error if there is no character in the input to produce a unicode identifier start character with.
+     * @param sat     The error if the produced character is not a unicode identifier start character.
+     * @return A parser that produces a unicode identifier start character.
+     * @see Character#isUnicodeIdentifierStart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> unicodeIdentiferStart(final P1<E> missing,
+                                                                                    final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isUnicodeIdentifierStart(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a unicode identifier start character.
+     *
+     * @param missing The error if there is no character in the input to produce a unicode identifier start character with.
+     * @param sat     The error if the produced character is not a unicode identifier start character.
+     * @return A parser that produces a unicode identifier start character.
+     * @see Character#isUnicodeIdentifierStart(char)
+     */
+    public static <E> Parser<CharInput, Character, E> unicodeIdentiferStart(final E missing,
+                                                                                    final F<Character, E> sat) {
+      return unicodeIdentiferStart(p(missing), sat);
+    }
+
+    /**
+     * Returns a parser that produces a white-space character.
+     *
+     * @param missing The error if there is no character in the input to produce a white-space character with.
+     * @param sat     The error if the produced character is not a white-space character.
+     * @return A parser that produces a white-space character.
+     * @see Character#isWhitespace(char)
+     */
+    public static <E> Parser<CharInput, Character, E> whitespace(final P1<E> missing,
+                                                                         final F<Character, E> sat) {
+      return satisfy(missing, sat, new F<Character, Boolean>() {
+        public Boolean f(final Character c) {
+          return Character.isWhitespace(c);
+        }
+      });
+    }
+
+    /**
+     * Returns a parser that produces a white-space character.
+     *
+     * @param missing The error if there is no character in the input to produce a white-space character with.
+     * @param sat     The error if the produced character is not a white-space character.
+     * @return A parser that produces a white-space character.
+     * @see Character#isWhitespace(char)
+     */
+    public static <E> Parser<CharInput, Character, E> whitespace(final E missing, final F<Character, E> sat) {
+      return whitespace(p(missing), sat);
+    }
+  }
+}
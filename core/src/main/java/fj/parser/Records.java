@@ -0,0 +1,148 @@
+package fj.parser;
+
+import fj.F;
+import fj.P2;
+import fj.control.parallel.ParModule;
+import fj.control.parallel.Promise;
+import fj.data.List;
+import fj.data.Validation;
+
+import java.util.Arrays;
+
+import static fj.Bottom.error;
+import static fj.P.p;
+import static fj.data.Validation.fail;
+import static fj.data.Validation.success;
+
+/**
+ * Parsing of input made of independent records, such as the lines of a CSV file or of newline-delimited
+ * JSON, in parallel. The input is split on a delimiter character in one pass over the buffer, the
+ * records are grouped into batches of about the same length, and the batches are parsed in parallel
+ * with the same parser, each record over a view of the buffer rather than a copy.
+ * <p/>
+ * The text between two delimiters is a record, as is the text before the first and after the last,
+ * except that an empty record at the end of the input is ignored, so that input may end with a
+ * delimiter. Each record must be consumed entirely by the parser.
+ *
+ * @version %build.number%
+ */
+public final class Records {
+  /** The number of characters of input that a batch of records is filled up to by default. */
+  public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+  private Records() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Parses the records of the given input in parallel, in batches of the default size.
+   *
+   * @param m          The parallel module that parses batches of records.
+   * @param p          The parser of one record.
+   * @param unconsumed The error for a record that the parser does not consume entirely, given the rest of
+   *                   the record.
+   * @param delimiter  The character between records.
+   * @param input      The records to parse.
+   * @return The results of the records in order, or the first failure in the input with its offset.
+   * @see #parse(ParModule, int, Parser, F, char, CharInput)
+   */
+  public static <A, E> Promise<Validation<P2<Integer, E>, List<A>>> parse(final ParModule m,
+                                                                          final Parser<CharInput, A, E> p,
+                                                                          final F<CharInput, E> unconsumed,
+                                                                          final char delimiter,
+                                                                          final CharInput input) {
+    return parse(m, DEFAULT_BATCH_SIZE, p, unconsumed, delimiter, input);
+  }
+
+  /**
+   * Parses the records of the given input in parallel. The records are grouped into batches of at least
+   * the given number of characters, but for the last, and each batch is parsed sequentially by one task
+   * of the given parallel module. On failure, the offset is that of the record the parser failed on,
+   * or, for a record that it did not consume entirely, that of the rest of the record.
+   *
+   * @param m          The parallel module that parses batches of records.
+   * @param batchSize  The number of characters of input to fill a batch of records up to.
+   * @param p          The parser of one record.
+   * @param unconsumed The error for a record that the parser does not consume entirely, given the rest of
+   *                   the record.
+   * @param delimiter  The character between records.
+   * @param input      The records to parse.
+   * @return The results of the records in order, or the first failure in the input with its offset.
+   */
+  public static <A, E> Promise<Validation<P2<Integer, E>, List<A>>> parse(final ParModule m,
+                                                                          final int batchSize,
+                                                                          final Parser<CharInput, A, E> p,
+                                                                          final F<CharInput, E> unconsumed,
+                                                                          final char delimiter,
+                                                                          final CharInput input) {
+    if (batchSize < 1) {
+      throw error("Can't parse records in batches smaller than 1 character.");
+    }
+    return m.parMap(batches(input, delimiter, batchSize), rs -> parse(p, unconsumed, input, rs))
+        .fmap(Records::merge);
+  }
+
+  /**
+   * Splits the given input into records, as {@link #parse(ParModule, int, Parser, F, char, CharInput)}
+   * does, and groups them into batches of at least the given number of characters. Each batch holds
+   * the start and end offsets of its records, in pairs.
+   */
+  static List<int[]> batches(final CharInput input, final char delimiter, final int batchSize) {
+    final List.Buffer<int[]> batches = List.Buffer.empty();
+    final int end = input.memo.end;
+    int[] batch = new int[16];
+    int size = 0;
+    int batchStart = input.offset;
+    int from = input.offset;
+    for (int k = input.offset; k <= end; k++) {
+      if (k == end ? k > from : input.charAt(k) == delimiter) {
+        if (size == batch.length) {
+          batch = Arrays.copyOf(batch, size * 2);
+        }
+        batch[size++] = from;
+        batch[size++] = k;
+        from = k + 1;
+        if (k - batchStart >= batchSize) {
+          batches.snoc(Arrays.copyOf(batch, size));
+          size = 0;
+          batchStart = from;
+        }
+      }
+    }
+    if (size > 0) {
+      batches.snoc(Arrays.copyOf(batch, size));
+    }
+    return batches.toList();
+  }
+
+  private static <A, E> Validation<P2<Integer, E>, List<A>> parse(final Parser<CharInput, A, E> p,
+                                                                   final F<CharInput, E> unconsumed,
+                                                                   final CharInput input,
+                                                                   final int[] records) {
+    final List.Buffer<A> as = List.Buffer.empty();
+    for (int k = 0; k < records.length; k += 2) {
+      final Validation<E, Result<CharInput, A>> v = p.parse(input.range(records[k], records[k + 1]));
+      if (v.isFail()) {
+        return fail(p(records[k], v.fail()));
+      }
+      final CharInput rest = v.success().rest();
+      if (!rest.isEmpty()) {
+        return fail(p(rest.offset(), unconsumed.f(rest)));
+      }
+      as.snoc(v.success().value());
+    }
+    return success(as.toList());
+  }
+
+  private static <A, E> Validation<P2<Integer, E>, List<A>> merge(
+      final List<Validation<P2<Integer, E>, List<A>>> batches) {
+    final List.Buffer<A> as = List.Buffer.empty();
+    for (final Validation<P2<Integer, E>, List<A>> b : batches) {
+      if (b.isFail()) {
+        return fail(b.fail());
+      }
+      as.append(b.success());
+    }
+    return success(as.toList());
+  }
+}
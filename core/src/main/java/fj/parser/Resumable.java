@@ -0,0 +1,197 @@
+package fj.parser;
+
+import fj.P;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import fj.data.Option;
+import fj.data.Validation;
+
+import java.util.Arrays;
+
+/**
+ * A parse over input that arrives in chunks, such as from a socket. A resumable parse is either done,
+ * with the result of the parser, or partial, waiting for the next chunk of input or for the end of
+ * the input.
+ * <p/>
+ * When a chunk arrives, the parser is run over the input received so far. If it finishes without
+ * looking past the end of that input, its result is final; if it looks past the end, which parsers of
+ * {@link Parser.CharInputParser} and {@link Parser.IndexedParser} note, the parse waits for more input
+ * and runs again when it arrives. Parsers that read the input directly rather than through those
+ * primitives must go through {@link IndexedInput#isEmpty()} for their results to be resumable. Each run
+ * restarts the parser, so a parse should cover one message, with the caller resuming a fresh parse on the
+ * remaining input, as {@link #iteratee} does.
+ *
+ * @version %build.number%
+ */
+public abstract class Resumable<A, E> {
+
+  Resumable() {} // sealed
+
+  /**
+   * A parse with the given parser that has not received any input yet.
+   *
+   * @param p The parser to run.
+   * @return A partial parse with the given parser.
+   */
+  public static <A, E> Resumable<A, E> resumable(final Parser<CharInput, A, E> p) {
+    return new Partial<A, E>(p, new Buffer(new char[16], 0), 0);
+  }
+
+  /**
+   * Gives the next chunk of input to this parse, or returns this parse if it is done.
+   *
+   * @param chunk The next chunk of input.
+   * @return The parse after the given chunk.
+   */
+  public abstract Resumable<A, E> feed(final CharSequence chunk);
+
+  /**
+   * Ends the input of this parse, so that the parser runs to completion over what it has received.
+   *
+   * @return The finished parse.
+   */
+  public abstract Resumable<A, E> end();
+
+  /**
+   * Whether this parse is done.
+   *
+   * @return Whether this parse is done.
+   */
+  public final boolean isDone() {
+    return result().isSome();
+  }
+
+  /**
+   * The result of the parser if this parse is done, whose remaining input holds the input after the
+   * part the parser consumed.
+   *
+   * @return The result of the parser if this parse is done, or none.
+   */
+  public abstract Option<Validation<E, Result<CharInput, A>>> result();
+
+  private static final class Done<A, E> extends Resumable<A, E> {
+    private final Validation<E, Result<CharInput, A>> result;
+
+    Done(final Validation<E, Result<CharInput, A>> result) {
+      this.result = result;
+    }
+
+    public Resumable<A, E> feed(final CharSequence chunk) {
+      return this;
+    }
+
+    public Resumable<A, E> end() {
+      return this;
+    }
+
+    public Option<Validation<E, Result<CharInput, A>>> result() {
+      return Option.some(result);
+    }
+  }
+
+  // The characters received by a parse, shared by its successive partial parses. The parse that holds
+  // all of them appends a chunk in place, and any other copies them first, so that a chunk costs its
+  // own length, amortised, rather than that of all the input so far.
+  private static final class Buffer {
+    private char[] chars;
+    private int size;
+
+    Buffer(final char[] chars, final int size) {
+      this.chars = chars;
+      this.size = size;
+    }
+
+    // Appends the given chunk if this buffer holds the given number of characters, returning the array
+    // that then holds them, or null if a parse has already appended to it.
+    synchronized char[] append(final int length, final CharSequence chunk) {
+      if (size != length) {
+        return null;
+      }
+      if (chars.length - size < chunk.length()) {
+        chars = Arrays.copyOf(chars, Math.max(2 * chars.length, size + chunk.length()));
+      }
+      for (int k = 0; k < chunk.length(); k++) {
+        chars[size + k] = chunk.charAt(k);
+      }
+      size += chunk.length();
+      return chars;
+    }
+
+    // A buffer of the first given number of characters of this one.
+    synchronized Buffer copy(final int length) {
+      return new Buffer(Arrays.copyOf(chars, Math.max(2 * length, 16)), length);
+    }
+
+    synchronized char[] chars() {
+      return chars;
+    }
+  }
+
+  private static final class Partial<A, E> extends Resumable<A, E> {
+    private final Parser<CharInput, A, E> p;
+    // the first length characters of the buffer are those received so far
+    private final Buffer buffer;
+    private final int length;
+
+    Partial(final Parser<CharInput, A, E> p, final Buffer buffer, final int length) {
+      this.p = p;
+      this.buffer = buffer;
+      this.length = length;
+    }
+
+    public Resumable<A, E> feed(final CharSequence chunk) {
+      if (chunk.length() == 0) {
+        return this;
+      }
+      Buffer b = buffer;
+      char[] cs = b.append(length, chunk);
+      if (cs == null) {
+        b = buffer.copy(length);
+        cs = b.append(length, chunk);
+      }
+      final Partial<A, E> more = new Partial<A, E>(p, b, length + chunk.length());
+      final CharInput i = CharInput.partial(cs, more.length);
+      final Validation<E, Result<CharInput, A>> r = p.parse(i);
+      return i.memo.starved ? more : new Done<A, E>(r);
+    }
+
+    public Resumable<A, E> end() {
+      return new Done<A, E>(p.parse(CharInput.fromChars(buffer.chars(), 0, length)));
+    }
+
+    public Option<Validation<E, Result<CharInput, A>>> result() {
+      return Option.none();
+    }
+  }
+
+  /**
+   * An iteratee that parses the chunks of its input with the given parser. It finishes when the parser
+   * does, leaving the input the parser did not consume as its remaining input, so that
+   * {@link fj.data.Iteratee.Enumeratee#sequence} can parse a stream of messages with it.
+   *
+   * @param p The parser to run.
+   * @return An iteratee that parses its input with the given parser.
+   */
+  public static <A, E> IterV<String, Validation<E, A>> iteratee(final Parser<CharInput, A, E> p) {
+    return step(resumable(p));
+  }
+
+  private static <A, E> IterV<String, Validation<E, A>> step(final Resumable<A, E> r) {
+    return IterV.cont(s -> s.apply(
+        P.lazy(u -> step(r)),
+        P.lazy(u -> chunk -> finish(r.feed(chunk), false)),
+        P.lazy(u -> finish(r.end(), true))));
+  }
+
+  // A failed parse consumes the input it received.
+  private static <A, E> IterV<String, Validation<E, A>> finish(final Resumable<A, E> r, final boolean eof) {
+    final Option<Validation<E, Result<CharInput, A>>> result = r.result();
+    if (result.isNone()) {
+      return step(r);
+    }
+    final Validation<E, Result<CharInput, A>> v = result.some();
+    final String rest = v.isFail() ? "" : v.success().rest().rest();
+    return IterV.done(v.map(Result::value),
+        !rest.isEmpty() ? Input.el(rest) : eof ? Input.<String>eof() : Input.<String>empty());
+  }
+}
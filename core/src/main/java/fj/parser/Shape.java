@@ -0,0 +1,351 @@
+package fj.parser;
+
+import fj.F;
+import fj.P1;
+import fj.data.List;
+import fj.data.Stream;
+import fj.data.Validation;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static fj.data.Validation.success;
+import static fj.parser.Result.result;
+
+/**
+ * How a parser was built from the primitives of {@link Parser.CharInputParser} and the combinators of
+ * {@link Parser}, so that {@link Parser.CharInputParser#optimize} can analyse and rebuild it. Parsers
+ * built in any other way are opaque: they are kept as they are, and are assumed to possibly match any
+ * input, including none.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class Shape {
+  private static final int SATISFY = 0;
+  private static final int PREFIX = 1;
+  private static final int OR = 2;
+  private static final int LAZY_OR = 3;
+  private static final int BIND = 4;
+  private static final int SEQUENCE = 5;
+  private static final int MAP = 6;
+  private static final int FILTER = 7;
+  private static final int REPEAT = 8;
+  private static final int REPEAT1 = 9;
+
+  static final F<Character, Boolean> ANY = new F<Character, Boolean>() {
+    public Boolean f(final Character c) {
+      return true;
+    }
+  };
+
+  private final int kind;
+  // the parsers this one was built from
+  private final Parser a;
+  private final Parser b;
+  private final P1 lazy;
+  // the function of a bind, map or filter, or the predicate of a character
+  private final F f;
+  // the errors of a character parser, or of a filter
+  private final P1 missing;
+  private final F sat;
+  private final Object e;
+
+  private Shape(final int kind, final Parser a, final Parser b, final P1 lazy, final F f, final P1 missing,
+                final F sat, final Object e) {
+    this.kind = kind;
+    this.a = a;
+    this.b = b;
+    this.lazy = lazy;
+    this.f = f;
+    this.missing = missing;
+    this.sat = sat;
+    this.e = e;
+  }
+
+  static Shape satisfy(final P1 missing, final F sat, final F<Character, Boolean> p) {
+    return new Shape(SATISFY, null, null, null, p, missing, sat, null);
+  }
+
+  // A primitive that is opaque but for consuming a first character that satisfies the given predicate.
+  static Shape prefix(final F<Character, Boolean> p) {
+    return new Shape(PREFIX, null, null, null, p, null, null, null);
+  }
+
+  static Shape or(final Parser a, final Parser b) {
+    return new Shape(OR, a, b, null, null, null, null, null);
+  }
+
+  static Shape or(final Parser a, final P1 b) {
+    return new Shape(LAZY_OR, a, null, b, null, null, null, null);
+  }
+
+  static Shape bind(final Parser a, final F f) {
+    return new Shape(BIND, a, null, null, f, null, null, null);
+  }
+
+  static Shape sequence(final Parser a, final Parser b) {
+    return new Shape(SEQUENCE, a, b, null, null, null, null, null);
+  }
+
+  static Shape map(final Parser a, final F f) {
+    return new Shape(MAP, a, null, null, f, null, null, null);
+  }
+
+  static Shape filter(final Parser a, final F f, final Object e) {
+    return new Shape(FILTER, a, null, null, f, null, null, e);
+  }
+
+  static Shape repeat(final Parser a) {
+    return new Shape(REPEAT, a, null, null, null, null, null, null);
+  }
+
+  static Shape repeat1(final Parser a) {
+    return new Shape(REPEAT1, a, null, null, null, null, null, null);
+  }
+
+  static F<Character, Boolean> is(final char c) {
+    return new F<Character, Boolean>() {
+      public Boolean f(final Character x) {
+        return x == c;
+      }
+    };
+  }
+
+  // The characters that a parser can start with, or null for any, and whether it can match no input.
+  private static final class First {
+    final long[] chars;
+    final boolean nullable;
+
+    First(final long[] chars, final boolean nullable) {
+      this.chars = chars;
+      this.nullable = nullable;
+    }
+
+    boolean excludes(final int c) {
+      return !nullable && chars != null && (c < 0 || (chars[c >>> 6] & (1L << c)) == 0);
+    }
+  }
+
+  private static final First UNKNOWN = new First(null, true);
+
+  /**
+   * Rebuilds the given parser so that it behaves the same but alternatives between characters become
+   * table lookups, repetitions of characters become scanning loops, other repetitions become loops,
+   * and alternatives that cannot match the next character are skipped.
+   */
+  static <A, E> Parser<CharInput, A, E> optimize(final Parser<CharInput, A, E> p) {
+    return new Shape.Optimizer().compile(p);
+  }
+
+  private static final class Optimizer {
+    private final Map<Parser, Parser> compiled = new IdentityHashMap<Parser, Parser>();
+    private final Map<Parser, First> firsts = new IdentityHashMap<Parser, First>();
+    private final Map<F, long[]> tables = new IdentityHashMap<F, long[]>();
+
+    // The characters that satisfy the given predicate, which must be pure.
+    long[] table(final F<Character, Boolean> p) {
+      long[] t = tables.get(p);
+      if (t == null) {
+        t = new long[1024];
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+          if (p.f((char) c)) {
+            t[c >>> 6] |= 1L << c;
+          }
+        }
+        tables.put(p, t);
+      }
+      return t;
+    }
+
+    First first(final Parser p) {
+      First r = firsts.get(p);
+      if (r == null) {
+        r = analyse(p);
+        firsts.put(p, r);
+      }
+      return r;
+    }
+
+    private First analyse(final Parser p) {
+      final Shape s = p.shape;
+      if (s == null) {
+        return UNKNOWN;
+      }
+      switch (s.kind) {
+        case SATISFY:
+        case PREFIX:
+          return new First(table(s.f), false);
+        case OR: {
+          final First x = first(s.a);
+          final First y = first(s.b);
+          if (x.chars == null || y.chars == null) {
+            return new First(null, x.nullable || y.nullable);
+          }
+          final long[] u = new long[1024];
+          for (int k = 0; k < u.length; k++) {
+            u[k] = x.chars[k] | y.chars[k];
+          }
+          return new First(u, x.nullable || y.nullable);
+        }
+        case BIND:
+        case SEQUENCE: {
+          final First x = first(s.a);
+          return x.nullable ? UNKNOWN : x;
+        }
+        case MAP:
+        case FILTER:
+        case REPEAT1:
+          return first(s.a);
+        default:
+          return UNKNOWN;
+      }
+    }
+
+    <A, E> Parser<CharInput, A, E> compile(final Parser<CharInput, A, E> p) {
+      Parser r = compiled.get(p);
+      if (r == null) {
+        r = rebuild(p);
+        compiled.put(p, r);
+      }
+      return r;
+    }
+
+    private Parser rebuild(final Parser p) {
+      final Shape s = p.shape;
+      if (s == null) {
+        return p;
+      }
+      switch (s.kind) {
+        case SATISFY:
+          return lookup(s.missing, s.sat, table(s.f)).shaped(s);
+        case OR:
+          return alternatives(p);
+        case LAZY_OR:
+          return compile(s.a).or(s.lazy);
+        case BIND:
+          return compile(s.a).bind(s.f);
+        case SEQUENCE:
+          return compile(s.a).sequence(compile(s.b));
+        case MAP:
+          return compile(s.a).map(s.f);
+        case FILTER:
+          return compile(s.a).filter(s.f, s.e);
+        case REPEAT:
+        case REPEAT1: {
+          final Shape t = s.a.shape;
+          final Parser q = t != null && t.kind == SATISFY ?
+              scan(t.missing, t.sat, table(t.f), s.kind == REPEAT1) :
+              loop(compile(s.a), s.kind == REPEAT1);
+          return q.shaped(s);
+        }
+        default:
+          return p;
+      }
+    }
+
+    // The alternatives of a chain of ors, in order.
+    private List<Parser> flatten(final Parser p) {
+      final Shape s = p.shape;
+      return s != null && s.kind == OR ? flatten(s.a).snoc(s.b) : List.single(p);
+    }
+
+    private Parser alternatives(final Parser p) {
+      final List<Parser> alts = flatten(p);
+      if (alts.forall(q -> q.shape != null && q.shape.kind == SATISFY)) {
+        // one lookup in the union of the characters, failing as the last alternative does
+        final long[] u = new long[1024];
+        for (final Parser q : alts) {
+          final long[] t = table(q.shape.f);
+          for (int k = 0; k < u.length; k++) {
+            u[k] |= t[k];
+          }
+        }
+        final Shape last = alts.last().shape;
+        return lookup(last.missing, last.sat, u).shaped(p.shape);
+      }
+      final Parser[] ps = new Parser[alts.length()];
+      final First[] fs = new First[ps.length];
+      int k = 0;
+      for (final Parser q : alts) {
+        ps[k] = compile(q);
+        fs[k] = first(q);
+        k++;
+      }
+      return dispatch(ps, fs).shaped(p.shape);
+    }
+  }
+
+  private static boolean has(final long[] t, final char c) {
+    return (t[c >>> 6] & (1L << c)) != 0;
+  }
+
+  private static Parser lookup(final P1 missing, final F sat, final long[] t) {
+    return Parser.parser((F) new F<CharInput, Validation>() {
+      public Validation f(final CharInput i) {
+        if (i.isEmpty()) {
+          return Validation.fail(missing._1());
+        }
+        final char c = i.headChar();
+        return has(t, c) ? success(result(i.tail(), c)) : Validation.fail(sat.f(c));
+      }
+    });
+  }
+
+  private static Parser scan(final P1 missing, final F sat, final long[] t, final boolean one) {
+    return Parser.parser((F) new F<CharInput, Validation>() {
+      public Validation f(final CharInput i) {
+        if (one) {
+          if (i.isEmpty()) {
+            return Validation.fail(missing._1());
+          }
+          if (!has(t, i.headChar())) {
+            return Validation.fail(sat.f(i.headChar()));
+          }
+        }
+        int k = i.offset;
+        while (!i.atEnd(k) && has(t, i.charAt(k))) {
+          k++;
+        }
+        return success(result(i.moveTo(k), Stream.fromString(i.slice(i.offset, k))));
+      }
+    });
+  }
+
+  private static Parser loop(final Parser p, final boolean one) {
+    return Parser.parser((F) new F<Object, Validation>() {
+      public Validation f(final Object i) {
+        final List.Buffer<Object> as = List.Buffer.empty();
+        Object rest = i;
+        for (Validation<Object, Result> v = p.parse(i); ; v = p.parse(rest)) {
+          if (v.isFail()) {
+            if (one && rest == i) {
+              return v;
+            }
+            break;
+          }
+          as.snoc(v.success().value());
+          rest = v.success().rest();
+        }
+        return success(result(rest, as.toList().toStream()));
+      }
+    });
+  }
+
+  // Tries the given alternatives in turn, skipping those that cannot match the next character but the last.
+  private static Parser dispatch(final Parser[] ps, final First[] fs) {
+    return Parser.parser((F) new F<CharInput, Validation>() {
+      public Validation f(final CharInput i) {
+        final int c = i.isEmpty() ? -1 : i.headChar();
+        final int last = ps.length - 1;
+        for (int k = 0; k < last; k++) {
+          if (!fs[k].excludes(c)) {
+            final Validation v = ps[k].parse(i);
+            if (v.isSuccess()) {
+              return v;
+            }
+          }
+        }
+        return ps[last].parse(i);
+      }
+    });
+  }
+}
@@ -1,17 +1,23 @@
 package fj.test;
 
 import static fj.Bottom.decons;
+import static fj.Bottom.error;
 import fj.F;
+import fj.P2;
 import fj.Show;
 import fj.data.List;
 import fj.data.Option;
+import fj.data.TreeMap;
 import static fj.data.Option.some;
+import static fj.P.p;
 import static fj.Show.listShow;
+import static fj.Ord.stringOrd;
 import static fj.Show.showS;
 import static fj.test.Arg.argShow;
 
 import java.io.StringWriter;
 import java.io.PrintWriter;
+import java.util.Arrays;
 
 /**
  * An enumeration of the possible results after checking a property. A <code>CheckResult</code> may
@@ -33,6 +39,11 @@ public final class CheckResult {
   private final Option<Throwable> ex;
   private final int succeeded;
   private final int discarded;
+  private final Option<P2<Long, Integer>> replay;
+  private final TreeMap<String, Integer> labels;
+  // the durations of the succeeded trials in nanoseconds, sorted
+  private final long[] nanos;
+  private final Option<Trial> slowest;
 
   private enum R {
     Passed, Proven, Falsified, Exhausted, PropException, GenException
@@ -40,11 +51,64 @@ public final class CheckResult {
 
   private CheckResult(final R r, final Option<List<Arg<?>>> args, final Option<Throwable> ex, final int succeeded,
                       final int discarded) {
+    this(r, args, ex, succeeded, discarded, Option.<P2<Long, Integer>>none(), TreeMap.<String, Integer>empty(stringOrd),
+        new long[0], Option.<Trial>none());
+  }
+
+  private CheckResult(final R r, final Option<List<Arg<?>>> args, final Option<Throwable> ex, final int succeeded,
+                      final int discarded, final Option<P2<Long, Integer>> replay, final TreeMap<String, Integer> labels,
+                      final long[] nanos, final Option<Trial> slowest) {
     this.r = r;
     this.args = args;
     this.ex = ex;
     this.succeeded = succeeded;
     this.discarded = discarded;
+    this.replay = replay;
+    this.labels = labels;
+    this.nanos = nanos;
+    this.slowest = slowest;
+  }
+
+  /**
+   * A trial of a property: its duration, its size and its arguments.
+   */
+  public static final class Trial {
+    private final long nanos;
+    private final int size;
+    private final List<Arg<?>> args;
+
+    Trial(final long nanos, final int size, final List<Arg<?>> args) {
+      this.nanos = nanos;
+      this.size = size;
+      this.args = args;
+    }
+
+    /**
+     * Returns the duration of this trial.
+     *
+     * @return The duration of this trial in nanoseconds.
+     */
+    public long nanos() {
+      return nanos;
+    }
+
+    /**
+     * Returns the size of this trial.
+     *
+     * @return The size of this trial.
+     */
+    public int size() {
+      return size;
+    }
+
+    /**
+     * Returns the arguments of this trial.
+     *
+     * @return The arguments of this trial.
+     */
+    public List<Arg<?>> args() {
+      return args;
+    }
   }
 
   /**
@@ -120,6 +184,44 @@ public final class CheckResult {
     return new CheckResult(R.GenException, Option.<List<Arg<?>>>none(), some(ex), succeeded, discarded);
   }
 
+  // This result with the given counts, for merging the results of workers that checked a property together.
+  CheckResult counts(final int succeeded, final int discarded) {
+    return new CheckResult(r, args, ex, succeeded, discarded, replay, labels, nanos, slowest);
+  }
+
+  // This result, noting the seed and size of the trial that produced it.
+  CheckResult replay(final long seed, final int size) {
+    return new CheckResult(r, args, ex, succeeded, discarded, some(p(seed, size)), labels, nanos, slowest);
+  }
+
+  // This result with the given statistics of the succeeded trials, whose durations are sorted.
+  CheckResult stats(final TreeMap<String, Integer> labels, final long[] nanos, final Option<Trial> slowest) {
+    return new CheckResult(r, args, ex, succeeded, discarded, replay, labels, nanos, slowest);
+  }
+
+  // This result with the statistics of the given results merged, for merging the results of workers.
+  CheckResult stats(final List<CheckResult> rs) {
+    TreeMap<String, Integer> ls = TreeMap.empty(stringOrd);
+    long[] ns = new long[0];
+    Option<Trial> t = Option.none();
+    for (final CheckResult c : rs) {
+      for (final P2<String, Integer> l : c.labels)
+        ls = ls.set(l._1(), ls.get(l._1()).orSome(0) + l._2());
+      final long[] merged = Arrays.copyOf(ns, ns.length + c.nanos.length);
+      System.arraycopy(c.nanos, 0, merged, ns.length, c.nanos.length);
+      ns = merged;
+      if (c.slowest.isSome() && (t.isNone() || c.slowest.some().nanos() > t.some().nanos()))
+        t = c.slowest;
+    }
+    Arrays.sort(ns);
+    return stats(ls, ns, t);
+  }
+
+  // Whether this result is a falsification or an exception.
+  boolean isFailure() {
+    return r == R.Falsified || r == R.PropException || r == R.GenException;
+  }
+
   /**
    * Returns <code>true</code> if this result is passed, <code>false</code> otherwise.
    *
@@ -219,6 +321,52 @@ public final class CheckResult {
     return discarded;
   }
 
+  /**
+   * Returns the seed and size of the trial that produced this result, if it is a failure found by a
+   * check that seeds its trials (see {@link Property#check(Corpus, String, Rand, int, int, int, int)}),
+   * otherwise, no seed is returned. The trial is replayed with {@link Property#replay(long, int)}.
+   *
+   * @return The seed and size of the trial that produced this result, if it is known.
+   */
+  public Option<P2<Long, Integer>> replay() {
+    return replay;
+  }
+
+  /**
+   * Returns the number of succeeded trials with each of the labels that they were given, with
+   * {@link Property#label(String)}, {@link Property#classify(boolean, String)} or
+   * {@link Property#collect(Object)}.
+   *
+   * @return The number of succeeded trials with each label.
+   */
+  public TreeMap<String, Integer> labels() {
+    return labels;
+  }
+
+  /**
+   * Returns the duration that the given fraction of the succeeded trials took no longer than, if any
+   * trials succeeded; the duration of the median trial for 0.5, and of the slowest for 1.
+   *
+   * @param q The fraction of the trials, between 0 and 1.
+   * @return The duration that the given fraction of the succeeded trials took no longer than, in
+   *         nanoseconds.
+   */
+  public Option<Long> percentile(final double q) {
+    if (q < 0 || q > 1)
+      throw error("Percentile out of range: " + q);
+    return nanos.length == 0 ? Option.<Long>none() :
+        some(nanos[Math.max(0, (int) Math.ceil(q * nanos.length) - 1)]);
+  }
+
+  /**
+   * Returns the slowest of the succeeded trials, if any trials succeeded.
+   *
+   * @return The slowest of the succeeded trials.
+   */
+  public Option<Trial> slowest() {
+    return slowest;
+  }
+
   /**
    * A rendering of a check result that summarises in one line.
    *
@@ -231,6 +379,10 @@ public final class CheckResult {
         return r.succeeded() == 1 ? "test" : "tests";
       }
 
+      private String seed(final CheckResult r) {
+        return r.replay().isSome() ? " (seed " + r.replay().some()._1() + ", size " + r.replay().some()._2() + ')' : "";
+      }
+
       private String arguments(final CheckResult r) {
         final List<Arg<?>> args = r.args().some();
         return args.length() == 1 ? "argument: " + sa.showS(args.head()) : "arguments: " + listShow(sa).showS(args);
@@ -244,7 +396,7 @@ public final class CheckResult {
           return "OK, passed " + r.succeeded() + ' ' + test(r) +
               (r.discarded() > 0 ? " (" + r.discarded() + " discarded)" : "") + '.';
         else if (r.isFalsified())
-          return "Falsified after " + r.succeeded() + " passed " + test(r) + " with " + arguments(r);
+          return "Falsified after " + r.succeeded() + " passed " + test(r) + " with " + arguments(r) + seed(r);
         else if (r.isExhausted())
           return "Gave up after " + r.succeeded() + " passed " + test(r) + " and " + r.discarded() +
               " discarded tests.";
@@ -252,12 +404,12 @@ public final class CheckResult {
           final StringWriter sw = new StringWriter();
           final PrintWriter pw = new PrintWriter(sw);
           r.exception().some().printStackTrace(pw);
-          return "Exception on property evaluation with " + arguments(r) + System.getProperty("line.separator") + sw;
+          return "Exception on property evaluation with " + arguments(r) + seed(r) + System.getProperty("line.separator") + sw;
         } else if (r.isGenException()) {
           final StringWriter sw = new StringWriter();
           final PrintWriter pw = new PrintWriter(sw);
           r.exception().some().printStackTrace(pw);
-          return "Exception on argument generation " + System.getProperty("line.separator") + sw;
+          return "Exception on argument generation" + seed(r) + ' ' + System.getProperty("line.separator") + sw;
         } else
           throw decons(r.getClass());
       }
@@ -275,6 +427,49 @@ public final class CheckResult {
    */
   public static final Show<CheckResult> summaryEx = summaryEx(argShow);
 
+  /**
+   * A rendering of the statistics of the succeeded trials of a check result: the percentage of the
+   * trials with each label, one per line, and the percentiles of the durations of the trials, with
+   * the slowest trial.
+   *
+   * @param sa The rendering of arguments.
+   * @return A rendering of the statistics of the succeeded trials of a check result.
+   */
+  public static Show<CheckResult> statistics(final Show<Arg<?>> sa) {
+    return showS(r -> {
+      final StringBuilder b = new StringBuilder();
+      final String nl = System.getProperty("line.separator");
+      for (final P2<String, Integer> l : r.labels())
+        b.append(Math.round(100.0 * l._2() / r.succeeded())).append("% ").append(l._1()).append(nl);
+      if (r.slowest().isSome()) {
+        final Trial t = r.slowest().some();
+        b.append("Trials took ").append(duration(r.percentile(0.5).some())).append(" (median), ")
+            .append(duration(r.percentile(0.9).some())).append(" (90%), ")
+            .append(duration(r.percentile(0.99).some())).append(" (99%), ")
+            .append(duration(t.nanos())).append(" (slowest, size ").append(t.size());
+        if (t.args().isNotEmpty())
+          b.append(", ").append(t.args().length() == 1 ? "argument: " + sa.showS(t.args().head()) :
+              "arguments: " + listShow(sa).showS(t.args()));
+        b.append(')');
+      }
+      return b.toString();
+    });
+  }
+
+  /**
+   * A rendering of the statistics of the succeeded trials of a check result.
+   *
+   * @see #statistics(Show)
+   */
+  public static final Show<CheckResult> statistics = statistics(argShow);
+
+  private static String duration(final long nanos) {
+    return nanos < 1000L ? nanos + " ns" :
+        nanos < 1000000L ? String.format("%.1f us", nanos / 1e3) :
+        nanos < 1000000000L ? String.format("%.1f ms", nanos / 1e6) :
+        String.format("%.1f s", nanos / 1e9);
+  }
+
   /**
    * A rendering of a check result that summarises in one line but throws an exception in the result
    * is a failure (falsified, property exception or generator exception).
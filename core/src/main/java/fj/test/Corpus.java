@@ -0,0 +1,137 @@
+package fj.test;
+
+import fj.P2;
+import fj.data.List;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static fj.Bottom.error;
+import static fj.P.p;
+
+/**
+ * A corpus of the failures of properties, each the seed and size of the trial that failed, by the
+ * name of the property. A property {@link Property#check(Corpus, String, Rand, int, int, int, int)
+ * checked} against a corpus replays its recorded failures before any random trials, and records a new
+ * failure in the corpus, so that a known regression fails again at once.
+ * <p/>
+ * A corpus may be kept in a file, one failure per line, as the name of the property, the seed and the
+ * size separated by tabs. Blank lines and lines that start with <code>#</code> are ignored. Failures
+ * are appended to the file as they are recorded, so that it may be kept under version control.
+ *
+ * @version %build.number%
+ */
+public final class Corpus {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final File file;
+  private final Map<String, List<P2<Long, Integer>>> entries = new HashMap<String, List<P2<Long, Integer>>>();
+
+  private Corpus(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Returns a corpus that is kept in memory only.
+   *
+   * @return An empty corpus that is kept in memory only.
+   */
+  public static Corpus memory() {
+    return new Corpus(null);
+  }
+
+  /**
+   * Returns a corpus that is kept in the given file, with the failures already in the file, if it
+   * exists.
+   *
+   * @param f The file to read the corpus from and to append failures to.
+   * @return A corpus that is kept in the given file.
+   */
+  public static Corpus file(final File f) {
+    final Corpus c = new Corpus(f);
+    if (f.exists()) {
+      try {
+        final BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), UTF_8));
+        try {
+          String line;
+          for (int n = 1; (line = r.readLine()) != null; n++) {
+            if (line.trim().isEmpty() || line.startsWith("#"))
+              continue;
+            final String[] fields = line.split("\t");
+            if (fields.length != 3)
+              throw error("Malformed corpus entry at " + f + ':' + n + ": " + line);
+            try {
+              c.put(fields[0], Long.parseLong(fields[1].trim()), Integer.parseInt(fields[2].trim()));
+            } catch (NumberFormatException e) {
+              throw error("Malformed corpus entry at " + f + ':' + n + ": " + line);
+            }
+          }
+        } finally {
+          r.close();
+        }
+      } catch (IOException e) {
+        throw error("Can't read corpus " + f + ": " + e);
+      }
+    }
+    return c;
+  }
+
+  /**
+   * Returns the failures of the property of the given name, in the order they were recorded.
+   *
+   * @param name The name of a property.
+   * @return The seeds and sizes of the failures of the property of the given name.
+   */
+  public synchronized List<P2<Long, Integer>> entries(final String name) {
+    final List<P2<Long, Integer>> es = entries.get(name);
+    return es == null ? List.<P2<Long, Integer>>nil() : es;
+  }
+
+  /**
+   * Records a failure of the property of the given name, unless it is already recorded, appending it
+   * to the file of this corpus, if any.
+   *
+   * @param name The name of a property, which can't contain tabs or line breaks.
+   * @param seed The seed of the failing trial.
+   * @param size The size of the failing trial.
+   * @return Whether the failure was not already recorded.
+   */
+  public synchronized boolean add(final String name, final long seed, final int size) {
+    if (name.indexOf('\t') >= 0 || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0)
+      throw error("Property names in a corpus can't contain tabs or line breaks: " + name);
+    if (!put(name, seed, size))
+      return false;
+    if (file != null) {
+      try {
+        final Writer w = new OutputStreamWriter(new FileOutputStream(file, true), UTF_8);
+        try {
+          w.write(name + '\t' + seed + '\t' + size + System.getProperty("line.separator"));
+        } finally {
+          w.close();
+        }
+      } catch (IOException e) {
+        throw error("Can't write corpus " + file + ": " + e);
+      }
+    }
+    return true;
+  }
+
+  private boolean put(final String name, final long seed, final int size) {
+    final List<P2<Long, Integer>> es = entries(name);
+    for (final P2<Long, Integer> e : es) {
+      if (e._1() == seed && e._2() == size)
+        return false;
+    }
+    entries.put(name, es.snoc(p(seed, size)));
+    return true;
+  }
+}
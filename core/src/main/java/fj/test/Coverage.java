@@ -0,0 +1,146 @@
+package fj.test;
+
+import fj.F;
+import fj.P1;
+import fj.data.List;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import static fj.test.Gen.value;
+
+/**
+ * Probes of the branches that a property covers, and the mutations of inputs that a
+ * {@link Property#guided(Gen, F, Shrink, F) coverage-guided} property makes. A probe is a call to
+ * {@link #probe(String)}, placed in the code under test or in the property itself, or a
+ * {@link Property#label(String) label} of a property. Probes cost a thread-local lookup when no
+ * guided property is running, so they may be left in place.
+ * <p/>
+ * A guided property keeps the inputs that reached probes, or moved between probes, that no input had
+ * before, and draws most of its inputs by mutating those, so that it goes deeper into the branches
+ * they reached than inputs drawn at random from a generator would.
+ *
+ * @version %build.number%
+ */
+public final class Coverage {
+  private static final ThreadLocal<Trace> trace = new ThreadLocal<Trace>();
+
+  // The number of shrinks of an input that shrinking picks from.
+  private static final int SHRINKS = 32;
+
+  private Coverage() {
+    throw new UnsupportedOperationException();
+  }
+
+  // The probes that one trial reached, and the moves between them.
+  private static final class Trace {
+    final Set<String> hits;
+    String last = "";
+
+    Trace(final Set<String> hits) {
+      this.hits = hits;
+    }
+  }
+
+  /**
+   * Notes that the probe of the given name was reached, if a coverage-guided property is running on
+   * this thread, and otherwise, does nothing.
+   *
+   * @param name The name of the probe.
+   */
+  public static void probe(final String name) {
+    final Trace t = trace.get();
+    if (t != null) {
+      t.hits.add(name);
+      t.hits.add(t.last + " -> " + name);
+      t.last = name;
+    }
+  }
+
+  // Evaluates the given value, adding the probes it reaches to the given set.
+  static <A> A recording(final Set<String> hits, final P1<A> p) {
+    final Trace previous = trace.get();
+    trace.set(new Trace(hits));
+    try {
+      return p._1();
+    } finally {
+      trace.set(previous);
+    }
+  }
+
+  /**
+   * A mutation that picks one of the first shrinks of an input, or the input itself if it has none.
+   *
+   * @param s The shrink strategy to mutate with.
+   * @return A mutation of inputs through the given shrink strategy.
+   */
+  public static <A> F<A, Gen<A>> shrinking(final Shrink<A> s) {
+    return a -> {
+      final List<A> as = s.shrink(a).take(SHRINKS).toList();
+      return as.isEmpty() ? value(a) : Gen.choose(0, as.length() - 1).map(as::index);
+    };
+  }
+
+  /**
+   * A mutation of lists that inserts an element from the given generator, replaces an element with
+   * one, or removes an element, at a random position.
+   *
+   * @param ga The generator of the elements to insert.
+   * @return A mutation of lists.
+   */
+  public static <A> F<List<A>, Gen<List<A>>> lists(final Gen<A> ga) {
+    return as -> Gen.gen(i -> r -> {
+      final ArrayList<A> xs = new ArrayList<A>(as.toCollection());
+      final int op = xs.isEmpty() ? 0 : r.choose(0, 2);
+      final int k = r.choose(0, op == 0 ? xs.size() : xs.size() - 1);
+      if (op == 0)
+        xs.add(k, ga.gen(i, r));
+      else if (op == 1)
+        xs.set(k, ga.gen(i, r));
+      else
+        xs.remove(k);
+      return List.iterableList(xs);
+    });
+  }
+
+  /**
+   * A mutation of strings that inserts a character from the given generator, replaces a character
+   * with one, or removes a character, at a random position.
+   *
+   * @param gc The generator of the characters to insert.
+   * @return A mutation of strings.
+   */
+  public static F<String, Gen<String>> strings(final Gen<Character> gc) {
+    final F<List<Character>, Gen<List<Character>>> m = lists(gc);
+    return s -> m.f(List.fromString(s)).map(List::asString);
+  }
+
+  // The inputs of a guided property that reached new probes, and the probes reached so far.
+  static final class Pool<A> {
+    private final ArrayList<A> inputs = new ArrayList<A>();
+    private final Set<String> seen = new HashSet<String>();
+
+    // A fresh input one time in four, and otherwise a mutation of a kept input, the newest half
+    // the time.
+    A next(final Gen<A> g, final F<A, Gen<A>> mutate, final int i, final Rand r) {
+      final int k;
+      final A a;
+      synchronized (this) {
+        k = inputs.isEmpty() || r.choose(0, 3) == 0 ? -1 :
+            r.choose(0, 1) == 0 ? inputs.size() - 1 : r.choose(0, inputs.size() - 1);
+        a = k < 0 ? null : inputs.get(k);
+      }
+      return k < 0 ? g.gen(i, r) : mutate.f(a).gen(i, r);
+    }
+
+    // Keeps the given input if it reached probes that no input had.
+    synchronized boolean offer(final A a, final Set<String> hits) {
+      if (seen.containsAll(hits))
+        return false;
+      seen.addAll(hits);
+      inputs.add(a);
+      return true;
+    }
+  }
+}
@@ -4,16 +4,12 @@ import static fj.Bottom.error;
 import fj.Effect;
 import fj.F;
 import fj.Function;
-import static fj.Function.flip;
-import static fj.Function.curry;
 import fj.P2;
 import static fj.P2.__1;
 import fj.Unit;
-import fj.F2;
 import static fj.data.Array.array;
 import fj.data.List;
 import static fj.data.List.nil;
-import static fj.data.List.replicate;
 import fj.data.Option;
 import fj.function.Effect1;
 
@@ -83,10 +79,16 @@ static Arbitrary&lt;Person&gt; personArbitrary() {
  * @version %build.number%
  */
 public final class Gen<A> {
-  private final F<Integer, F<Rand, A>> f;
+  // A generator is a step that takes the size and random generator directly, so that generating a
+  // value through a chain of maps and binds is a chain of calls, without closures to allocate.
+  private interface Step<A> {
+    A gen(int size, Rand r);
+  }
+
+  private final Step<A> step;
 
-  private Gen(final F<Integer, F<Rand, A>> f) {
-    this.f = f;
+  private Gen(final Step<A> step) {
+    this.step = step;
   }
 
   /**
@@ -97,7 +99,7 @@ public final class Gen<A> {
    * @return A generated value.
    */
   public A gen(final int i, final Rand r) {
-    return f.f(i).f(r);
+    return step.gen(i, r);
   }
 
   /**
@@ -107,15 +109,8 @@ public final class Gen<A> {
    * @return A new generator after applying the mapping function.
    */
   public <B> Gen<B> map(final F<A, B> f) {
-    return new Gen<B>(new F<Integer, F<Rand, B>>() {
-      public F<Rand, B> f(final Integer i) {
-        return new F<Rand, B>() {
-          public B f(final Rand r) {
-            return f.f(gen(i, r));
-          }
-        };
-      }
-    });
+    final Step<A> s = step;
+    return new Gen<B>((i, r) -> f.f(s.gen(i, r)));
   }
 
   /**
@@ -125,17 +120,16 @@ public final class Gen<A> {
    * @return A generator that produces values that meet the given predicate.
    */
   public Gen<A> filter(final F<A, Boolean> f) {
-    return gen(curry(new F2<Integer, Rand, A>() {
-      public A f(final Integer i, final Rand r) {
-        A a;
+    final Step<A> s = step;
+    return new Gen<A>((i, r) -> {
+      A a;
 
-        do {
-          a = gen(i, r);
-        } while(!f.f(a));
+      do {
+        a = s.gen(i, r);
+      } while(!f.f(a));
 
-        return a;
-      }
-    }));
+      return a;
+    });
   }
 
   /**
@@ -147,7 +141,7 @@ public final class Gen<A> {
    * @return The unit value.
    */
   public Unit foreach(final Integer i, final Rand r, final F<A, Unit> f) {
-    return f.f(this.f.f(i).f(r));
+    return f.f(step.gen(i, r));
   }
 
   /**
@@ -158,7 +152,7 @@ public final class Gen<A> {
    * @param f The side-effect to execute on the generated value.
    */
   public void foreach(final Integer i, final Rand r, final Effect1<A> f) {
-    f.f(this.f.f(i).f(r));
+    f.f(step.gen(i, r));
   }
 
   /**
@@ -168,15 +162,8 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B> Gen<B> bind(final F<A, Gen<B>> f) {
-    return new Gen<B>(new F<Integer, F<Rand, B>>() {
-      public F<Rand, B> f(final Integer i) {
-        return new F<Rand, B>() {
-          public B f(final Rand r) {
-            return f.f(gen(i, r)).f.f(i).f(r);
-          }
-        };
-      }
-    });
+    final Step<A> s = step;
+    return new Gen<B>((i, r) -> f.f(s.gen(i, r)).step.gen(i, r));
   }
 
   /**
@@ -188,7 +175,11 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C> Gen<C> bind(final Gen<B> gb, final F<A, F<B, C>> f) {
-    return gb.apply(map(f));
+    final Step<A> s = step;
+    return new Gen<C>((i, r) -> {
+      final A a = s.gen(i, r);
+      return f.f(a).f(gb.step.gen(i, r));
+    });
   }
 
   /**
@@ -201,7 +192,12 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D> Gen<D> bind(final Gen<B> gb, final Gen<C> gc, final F<A, F<B, F<C, D>>> f) {
-    return gc.apply(bind(gb, f));
+    final Step<A> s = step;
+    return new Gen<D>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      return f.f(a).f(b).f(gc.step.gen(i, r));
+    });
   }
 
   /**
@@ -215,7 +211,13 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D, E> Gen<E> bind(final Gen<B> gb, final Gen<C> gc, final Gen<D> gd, final F<A, F<B, F<C, F<D, E>>>> f) {
-    return gd.apply(bind(gb, gc, f));
+    final Step<A> s = step;
+    return new Gen<E>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      final C c = gc.step.gen(i, r);
+      return f.f(a).f(b).f(c).f(gd.step.gen(i, r));
+    });
   }
 
   /**
@@ -230,7 +232,14 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D, E, F$> Gen<F$> bind(final Gen<B> gb, final Gen<C> gc, final Gen<D> gd, final Gen<E> ge, final F<A, F<B, F<C, F<D, F<E, F$>>>>> f) {
-    return ge.apply(bind(gb, gc, gd, f));
+    final Step<A> s = step;
+    return new Gen<F$>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      final C c = gc.step.gen(i, r);
+      final D d = gd.step.gen(i, r);
+      return f.f(a).f(b).f(c).f(d).f(ge.step.gen(i, r));
+    });
   }
 
   /**
@@ -246,7 +255,15 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D, E, F$, G> Gen<G> bind(final Gen<B> gb, final Gen<C> gc, final Gen<D> gd, final Gen<E> ge, final Gen<F$> gf, final F<A, F<B, F<C, F<D, F<E, F<F$, G>>>>>> f) {
-    return gf.apply(bind(gb, gc, gd, ge, f));
+    final Step<A> s = step;
+    return new Gen<G>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      final C c = gc.step.gen(i, r);
+      final D d = gd.step.gen(i, r);
+      final E e = ge.step.gen(i, r);
+      return f.f(a).f(b).f(c).f(d).f(e).f(gf.step.gen(i, r));
+    });
   }
 
   /**
@@ -263,7 +280,16 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D, E, F$, G, H> Gen<H> bind(final Gen<B> gb, final Gen<C> gc, final Gen<D> gd, final Gen<E> ge, final Gen<F$> gf, final Gen<G> gg, final F<A, F<B, F<C, F<D, F<E, F<F$, F<G, H>>>>>>> f) {
-    return gg.apply(bind(gb, gc, gd, ge, gf, f));
+    final Step<A> s = step;
+    return new Gen<H>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      final C c = gc.step.gen(i, r);
+      final D d = gd.step.gen(i, r);
+      final E e = ge.step.gen(i, r);
+      final F$ x = gf.step.gen(i, r);
+      return f.f(a).f(b).f(c).f(d).f(e).f(x).f(gg.step.gen(i, r));
+    });
   }
 
   /**
@@ -281,7 +307,17 @@ public final class Gen<A> {
    * @return A new generator after binding the given function.
    */
   public <B, C, D, E, F$, G, H, I> Gen<I> bind(final Gen<B> gb, final Gen<C> gc, final Gen<D> gd, final Gen<E> ge, final Gen<F$> gf, final Gen<G> gg, final Gen<H> gh, final F<A, F<B, F<C, F<D, F<E, F<F$, F<G, F<H, I>>>>>>>> f) {
-    return gh.apply(bind(gb, gc, gd, ge, gf, gg, f));
+    final Step<A> s = step;
+    return new Gen<I>((i, r) -> {
+      final A a = s.gen(i, r);
+      final B b = gb.step.gen(i, r);
+      final C c = gc.step.gen(i, r);
+      final D d = gd.step.gen(i, r);
+      final E e = ge.step.gen(i, r);
+      final F$ x = gf.step.gen(i, r);
+      final G g = gg.step.gen(i, r);
+      return f.f(a).f(b).f(c).f(d).f(e).f(x).f(g).f(gh.step.gen(i, r));
+    });
   }
 
   /**
@@ -291,14 +327,10 @@ public final class Gen<A> {
    * @return A new generator after function application.
    */
   public <B> Gen<B> apply(final Gen<F<A, B>> gf) {
-    return gf.bind(new F<F<A, B>, Gen<B>>() {
-      public Gen<B> f(final F<A, B> f) {
-        return map(new F<A, B>() {
-          public B f(final A a) {
-            return f.f(a);
-          }
-        });
-      }
+    final Step<A> s = step;
+    return new Gen<B>((i, r) -> {
+      final F<A, B> f = gf.step.gen(i, r);
+      return f.f(s.gen(i, r));
     });
   }
 
@@ -309,15 +341,8 @@ public final class Gen<A> {
    * @return A new generator that uses the given size.
    */
   public Gen<A> resize(final int s) {
-    return new Gen<A>(new F<Integer, F<Rand, A>>() {
-      public F<Rand, A> f(final Integer i) {
-        return new F<Rand, A>() {
-          public A f(final Rand r) {
-            return f.f(s).f(r);
-          }
-        };
-      }
-    });
+    final Step<A> t = step;
+    return new Gen<A>((i, r) -> t.gen(s, r));
   }
 
   /**
@@ -327,7 +352,7 @@ public final class Gen<A> {
    * @return A new generator that uses the given function.
    */
   public static <A> Gen<A> gen(final F<Integer, F<Rand, A>> f) {
-    return new Gen<A>(f);
+    return new Gen<A>((i, r) -> f.f(i).f(r));
   }
 
   /**
@@ -337,15 +362,12 @@ public final class Gen<A> {
    * @return A generator of lists after sequencing the given generators.
    */
   public static <A> Gen<List<A>> sequence(final List<Gen<A>> gs) {
-    return gs.foldRight(new F<Gen<A>, F<Gen<List<A>>, Gen<List<A>>>>() {
-      public F<Gen<List<A>>, Gen<List<A>>> f(final Gen<A> ga) {
-        return new F<Gen<List<A>>, Gen<List<A>>>() {
-          public Gen<List<A>> f(final Gen<List<A>> gas) {
-            return ga.bind(gas, List.<A>cons());
-          }
-        };
-      }
-    }, value(List.<A>nil()));
+    return new Gen<List<A>>((i, r) -> {
+      final List.Buffer<A> as = List.Buffer.empty();
+      for (final Gen<A> g : gs)
+        as.snoc(g.step.gen(i, r));
+      return as.toList();
+    });
   }
 
   /**
@@ -356,7 +378,15 @@ public final class Gen<A> {
    * @return A generator of lists after sequencing the given generator.
    */
   public static <A> Gen<List<A>> sequenceN(final int n, final Gen<A> g) {
-    return sequence(replicate(n, g));
+    return new Gen<List<A>>((i, r) -> replicate(n, g.step, i, r));
+  }
+
+  // The given number of values of the given step, in the order they are generated.
+  private static <A> List<A> replicate(final int n, final Step<A> s, final int i, final Rand r) {
+    final List.Buffer<A> as = List.Buffer.empty();
+    for (int k = 0; k < n; k++)
+      as.snoc(s.gen(i, r));
+    return as.toList();
   }
 
   /**
@@ -367,11 +397,7 @@ public final class Gen<A> {
    * @return A new generator.
    */
   public static <A> Gen<A> parameterised(final F<Integer, F<Rand, Gen<A>>> f) {
-    return new Gen<A>(curry(new F2<Integer, Rand, A>() {
-      public A f(final Integer i, final Rand r) {
-        return f.f(i).f(r).gen(i, r);
-      }
-    }));
+    return new Gen<A>((i, r) -> f.f(i).f(r).step.gen(i, r));
   }
 
   /**
@@ -381,7 +407,7 @@ public final class Gen<A> {
    * @return A new generator.
    */
   public static <A> Gen<A> sized(final F<Integer, Gen<A>> f) {
-    return parameterised(flip(Function.<Rand, F<Integer, Gen<A>>>constant(f)));
+    return new Gen<A>((i, r) -> f.f(i).step.gen(i, r));
   }
 
   /**
@@ -391,15 +417,7 @@ public final class Gen<A> {
    * @return A generator that always produces the given value.
    */
   public static <A> Gen<A> value(final A a) {
-    return new Gen<A>(new F<Integer, F<Rand, A>>() {
-      public F<Rand, A> f(final Integer i) {
-        return new F<Rand, A>() {
-          public A f(final Rand r) {
-            return a;
-          }
-        };
-      }
-    });
+    return new Gen<A>((i, r) -> a);
   }
 
   /**
@@ -412,11 +430,7 @@ public final class Gen<A> {
   public static Gen<Integer> choose(final int from, final int to) {
     final int f = min(from, to);
     final int t = max(from, to);
-    return parameterised(curry(new F2<Integer, Rand, Gen<Integer>>() {
-      public Gen<Integer> f(final Integer i, final Rand r) {
-        return value(r.choose(f, t));
-      }
-    }));
+    return new Gen<Integer>((i, r) -> r.choose(f, t));
   }
 
   /**
@@ -429,31 +443,71 @@ public final class Gen<A> {
   public static Gen<Double> choose(final double from, final double to) {
     final double f = min(from, to);
     final double t = max(from, to);
-    return parameterised(new F<Integer, F<Rand, Gen<Double>>>() {
-      public F<Rand, Gen<Double>> f(final Integer i) {
-        return new F<Rand, Gen<Double>>() {
-          public Gen<Double> f(final Rand r) {
-            return value(r.choose(f, t));
-          }
-        };
+    return new Gen<Double>((i, r) -> r.choose(f, t));
+  }
+
+  /**
+   * Returns a generator that produces values between the given range (inclusive).
+   *
+   * @param from The value for the generator to produce values from.
+   * @param to   The value for the generator to produce values from.
+   * @return A generator that produces values between the given range (inclusive).
+   */
+  public static Gen<Long> chooseLong(final long from, final long to) {
+    final long f = min(from, to);
+    final long t = max(from, to);
+    if (t - f >= 0 && t - f < Integer.MAX_VALUE) {
+      final int n = (int) (t - f);
+      return new Gen<Long>((i, r) -> f + r.choose(0, n));
+    }
+    // a wider range is drawn from 64 random bits, redrawing those that would bias the values
+    final long n = t - f + 1;
+    return new Gen<Long>((i, r) -> {
+      if (n > 0) {
+        long u = bits(r) >>> 1;
+        long x;
+        while (u + (n - 1) - (x = u % n) < 0) {
+          u = bits(r) >>> 1;
+        }
+        return f + x;
+      }
+      // the range holds at least half of the longs
+      long x = bits(r);
+      while (x < f || x > t) {
+        x = bits(r);
       }
+      return x;
     });
   }
 
+  // 64 random bits, drawn 16 at a time so that a random generator never has to choose from more than
+  // the range of an int.
+  private static long bits(final Rand r) {
+    return (long) r.choose(0, 0xFFFF) << 48 | (long) r.choose(0, 0xFFFF) << 32 |
+        (long) r.choose(0, 0xFFFF) << 16 | r.choose(0, 0xFFFF);
+  }
+
+  /**
+   * Returns a generator that produces values between the given range (inclusive).
+   *
+   * @param from The value for the generator to produce values from.
+   * @param to   The value for the generator to produce values from.
+   * @return A generator that produces values between the given range (inclusive).
+   */
+  public static Gen<Character> chooseChar(final char from, final char to) {
+    final char f = (char) min(from, to);
+    final char t = (char) max(from, to);
+    return new Gen<Character>((i, r) -> (char) r.choose(f, t));
+  }
+
   /**
    * Returns a generator that never returns a value.
    *
    * @return A generator that never returns a value.
    */
   public static <A> Gen<A> fail() {
-    return new Gen<A>(new F<Integer, F<Rand, A>>() {
-      public F<Rand, A> f(final Integer i) {
-        return new F<Rand, A>() {
-          public A f(final Rand r) {
-            throw error("Failing generator");
-          }
-        };
-      }
+    return new Gen<A>((i, r) -> {
+      throw error("Failing generator");
     });
   }
 
@@ -490,11 +544,8 @@ public final class Gen<A> {
 
     final F<P2<Integer, Gen<A>>, Integer> f = __1();
 
-    return choose(1, intAdditionMonoid.sumLeft(gs.map(f))).bind(new F<Integer, Gen<A>>() {
-      public Gen<A> f(final Integer i) {
-        return new Pick().pick(i, gs);
-      }
-    });
+    final int total = intAdditionMonoid.sumLeft(gs.map(f));
+    return new Gen<A>((i, r) -> new Pick().pick(r.choose(1, total), gs).step.gen(i, r));
   }
 
   /**
@@ -523,11 +574,7 @@ public final class Gen<A> {
    * @return A generator that produces values from the given arguments.
    */
   public static <A> Gen<A> elements(final A... as) {
-    return array(as).isEmpty() ? Gen.<A>fail() : choose(0, as.length - 1).map(new F<Integer, A>() {
-      public A f(final Integer i) {
-        return as[i];
-      }
-    });
+    return array(as).isEmpty() ? Gen.<A>fail() : new Gen<A>((i, r) -> as[r.choose(0, as.length - 1)]);
   }
 
   /**
@@ -554,15 +601,7 @@ public final class Gen<A> {
    * @return A generator of lists whose values come from the given generator.
    */
   public static <A> Gen<List<A>> listOf(final Gen<A> g, final int x) {
-    return sized(new F<Integer, Gen<List<A>>>() {
-      public Gen<List<A>> f(final Integer size) {
-        return choose(x, size).bind(new F<Integer, Gen<List<A>>>() {
-          public Gen<List<A>> f(final Integer n) {
-            return sequenceN(n, g);
-          }
-        });
-      }
-    });
+    return new Gen<List<A>>((i, r) -> replicate(r.choose(x, i), g.step, i, r));
   }
 
   /**
@@ -635,18 +674,6 @@ public final class Gen<A> {
    * @return A generator for functions.
    */
   public static <A, B> Gen<F<A, B>> promote(final F<A, Gen<B>> f) {
-    return new Gen<F<A, B>>(new F<Integer, F<Rand, F<A, B>>>() {
-      public F<Rand, F<A, B>> f(final Integer i) {
-        return new F<Rand, F<A, B>>() {
-          public F<A, B> f(final Rand r) {
-            return new F<A, B>() {
-              public B f(final A a) {
-                return f.f(a).f.f(i).f(r);
-              }
-            };
-          }
-        };
-      }
-    });
+    return new Gen<F<A, B>>((i, r) -> a -> f.f(a).step.gen(i, r));
   }
 }
@@ -1,5 +1,6 @@
 package fj.test;
 
+import static fj.Bottom.error;
 import static fj.Function.curry;
 import static fj.Function.compose2;
 import static fj.P.p;
@@ -11,12 +12,15 @@ import fj.F5;
 import fj.F6;
 import fj.F7;
 import fj.F8;
+import fj.Ord;
 import fj.P;
 import fj.P1;
 import fj.P2;
 import static fj.P2.__2;
+import fj.control.parallel.Strategy;
 import fj.data.List;
 import fj.data.Option;
+import fj.data.TreeMap;
 import static fj.data.Option.none;
 import fj.data.Stream;
 import static fj.test.Arg.arg;
@@ -29,6 +33,17 @@ import static fj.test.CheckResult.proven;
 import static fj.test.Result.noResult;
 import static java.lang.Math.round;
 
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Represents an algebraic property about a program that may be {@link #check(Rand, int, int, int,
  * int) checked} for its truth value. For example, it is true that "for all integers (call it x) and
@@ -130,6 +145,50 @@ public final class Property {
     }));
   }
 
+  /**
+   * Labels this property, so that the {@link CheckResult#labels() result} of a check counts the
+   * succeeded trials that evaluated it, and so that evaluating it reaches the
+   * {@link Coverage#probe(String) probe} of the given name, which guides a
+   * {@link #guided(Gen, F, Shrink, F) coverage-guided} property.
+   *
+   * @param label The label of this property.
+   * @return This property, labelled with the given label.
+   */
+  public Property label(final String label) {
+    return prop(i -> r -> {
+      final Set<String> ls = labels.get();
+      if (ls != null)
+        ls.add(label);
+      Coverage.probe(label);
+      return f.f(i).f(r);
+    });
+  }
+
+  /**
+   * Labels this property with the given label if the given condition holds, to classify the
+   * arguments of trials.
+   *
+   * @param b     The condition of the label.
+   * @param label The label of this property if the condition holds.
+   * @return This property, labelled with the given label if the given condition holds.
+   * @see #label(String)
+   */
+  public Property classify(final boolean b, final String label) {
+    return b ? label(label) : this;
+  }
+
+  /**
+   * Labels this property with the string rendering of the given value, to collect the distribution
+   * of a value of the arguments of trials.
+   *
+   * @param a The value to label this property with.
+   * @return This property, labelled with the given value.
+   * @see #label(String)
+   */
+  public <A> Property collect(final A a) {
+    return label(String.valueOf(a));
+  }
+
   /**
    * Checks this property using the given arguments and produces a result.
    *
@@ -141,23 +200,53 @@ public final class Property {
    * @param maxSize       The maximum size to use for checking.
    * @return A result after checking this property.
    */
-  @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
   public CheckResult check(final Rand r,
                            final int minSuccessful,
                            final int maxDiscarded,
                            final int minSize,
                            final int maxSize) {
+    return check(r, minSuccessful, maxDiscarded, minSize, maxSize, false, new AtomicInteger(), new AtomicBoolean());
+  }
+
+  // Checks this property until a result is reached or another worker sets the given flag, in which
+  // case the counts so far are returned as passed. Sets the flag on reaching any result but passed.
+  // Discarded trials are counted against the maximum in the given counter, which workers share.
+  // If seeded, each trial draws from a splittable generator seeded from the given one, and a failure
+  // notes the seed and size of its trial.
+  @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
+  private CheckResult check(final Rand r,
+                            final int minSuccessful,
+                            final int maxDiscarded,
+                            final int minSize,
+                            final int maxSize,
+                            final boolean seeded,
+                            final AtomicInteger discards,
+                            final AtomicBoolean stop) {
     int s = 0;
     int d = 0;
     float sz = minSize;
+    long seed = 0L;
+    float size = minSize;
     CheckResult res;
+    final Trials trials = new Trials();
 
     while (true) {
-      final float size = s == 0 && d == 0 ? minSize : sz + (maxSize - sz) / (minSuccessful - s);
+      if (stop.get()) {
+        res = passed(s, d);
+        break;
+      }
+      size = s == 0 && d == 0 ? minSize : sz + (maxSize - sz) / (minSuccessful - s);
+      if (seeded) {
+        seed = seed(r);
+      }
       try {
-        final Result x = f.f(round(size)).f(r);
+        final Set<String> ls = new HashSet<String>();
+        final long start = System.nanoTime();
+        final Result x = trial(ls, round(size), seeded ? Rand.splittable(seed) : r);
+        if (x.isProven() || x.isUnfalsified())
+          trials.add(ls, System.nanoTime() - start, round(size), x.args());
         if (x.isNoResult())
-          if (d + 1 >= maxDiscarded) {
+          if (discards.incrementAndGet() >= maxDiscarded) {
             res = exhausted(s, d + 1);
             break;
           } else {
@@ -188,9 +277,226 @@ public final class Property {
       }
     }
 
+    res = trials.stats(res);
+    if (seeded && res.isFailure()) {
+      res = res.replay(seed, round(size));
+    }
+    if (!res.isPassed()) {
+      stop.set(true);
+    }
     return res;
   }
 
+  /**
+   * Checks this property using the given arguments, with the trials split between the given number
+   * of workers that the given strategy runs in parallel. Each worker runs its share of the successful
+   * trials over the whole range of sizes, drawing from a {@link Rand#split() split} of a
+   * {@link Rand#splittable(long) splittable} generator whose seed is taken from the given random
+   * generator, so that a deterministic generator gives deterministic seeds. The workers share the
+   * maximum number of discarded trials. Once a worker falsifies, proves or exhausts the property, or an
+   * exception is thrown, the other workers stop.
+   * <p/>
+   * The result is that of the lowest-numbered worker that did not pass, or passed, with the counts of
+   * all the workers.
+   *
+   * @param strategy      The strategy to run the workers with.
+   * @param workers       The number of workers to split the trials between.
+   * @param r             The random generator to take the seeds of the workers from.
+   * @param minSuccessful The minimum number of successful tests before a result is reached.
+   * @param maxDiscarded  The maximum number of tests discarded because they did not satisfy
+   *                      pre-conditions (i.e. {@link #implies(boolean, P1)}).
+   * @param minSize       The minimum size to use for checking.
+   * @param maxSize       The maximum size to use for checking.
+   * @return A result after checking this property.
+   */
+  public CheckResult checkParallel(final Strategy<CheckResult> strategy,
+                                   final int workers,
+                                   final Rand r,
+                                   final int minSuccessful,
+                                   final int maxDiscarded,
+                                   final int minSize,
+                                   final int maxSize) {
+    final int n = Math.max(1, Math.min(workers, minSuccessful));
+    final AtomicInteger discards = new AtomicInteger();
+    final AtomicBoolean stop = new AtomicBoolean();
+    final Rand base = Rand.splittable(seed(r));
+    final List.Buffer<P1<CheckResult>> checks = List.Buffer.empty();
+    for (int k = 0; k < n; k++) {
+      final Rand worker = base.split();
+      final int successful = share(minSuccessful, n, k);
+      checks.snoc(P.lazy(u -> check(worker, successful, maxDiscarded, minSize, maxSize, false, discards, stop)));
+    }
+    final List<CheckResult> results = strategy.parList(checks.toList())._1();
+    int s = 0;
+    int d = 0;
+    for (final CheckResult c : results) {
+      s += c.succeeded();
+      d += c.discarded();
+    }
+    for (final CheckResult c : results) {
+      if (!c.isPassed()) {
+        return c.counts(s, d).stats(results);
+      }
+    }
+    return passed(s, d).stats(results);
+  }
+
+  /**
+   * Checks this property using a {@link Rand#Rand(F, F) standard random generator}, with the trials
+   * split between as many workers as there are available processors.
+   *
+   * @param strategy      The strategy to run the workers with.
+   * @param minSuccessful The minimum number of successful tests before a result is reached.
+   * @param maxDiscarded  The maximum number of tests discarded because they did not satisfy
+   *                      pre-conditions (i.e. {@link #implies(boolean, P1)}).
+   * @param minSize       The minimum size to use for checking.
+   * @param maxSize       The maximum size to use for checking.
+   * @return A result after checking this property.
+   * @see #checkParallel(Strategy, int, Rand, int, int, int, int)
+   */
+  public CheckResult checkParallel(final Strategy<CheckResult> strategy,
+                                   final int minSuccessful,
+                                   final int maxDiscarded,
+                                   final int minSize,
+                                   final int maxSize) {
+    return checkParallel(strategy, Runtime.getRuntime().availableProcessors(), Rand.standard, minSuccessful,
+        maxDiscarded, minSize, maxSize);
+  }
+
+  // The labels of the trial of this property that is running on each thread.
+  private static final ThreadLocal<Set<String>> labels = new ThreadLocal<Set<String>>();
+
+  // Runs a trial of this property, adding the labels it is given to the given set.
+  private Result trial(final Set<String> ls, final int size, final Rand r) {
+    final Set<String> previous = labels.get();
+    labels.set(ls);
+    try {
+      return f.f(size).f(r);
+    } finally {
+      labels.set(previous);
+    }
+  }
+
+  // The statistics of the succeeded trials of a check.
+  private static final class Trials {
+    private final java.util.TreeMap<String, Integer> labels = new java.util.TreeMap<String, Integer>();
+    private long[] nanos = new long[64];
+    private int n;
+    private CheckResult.Trial slowest;
+
+    void add(final Set<String> ls, final long took, final int size, final Option<List<Arg<?>>> args) {
+      for (final String l : ls) {
+        final Integer c = labels.get(l);
+        labels.put(l, c == null ? 1 : c + 1);
+      }
+      if (n == nanos.length)
+        nanos = Arrays.copyOf(nanos, n * 2);
+      nanos[n++] = took;
+      if (slowest == null || took > slowest.nanos())
+        slowest = new CheckResult.Trial(took, size, args.orSome(List.<Arg<?>>nil()));
+    }
+
+    CheckResult stats(final CheckResult res) {
+      TreeMap<String, Integer> ls = TreeMap.empty(Ord.stringOrd);
+      for (final Map.Entry<String, Integer> l : labels.entrySet())
+        ls = ls.set(l.getKey(), l.getValue());
+      final long[] ns = Arrays.copyOf(nanos, n);
+      Arrays.sort(ns);
+      return res.stats(ls, ns, Option.fromNull(slowest));
+    }
+  }
+
+  // A seed for a splittable generator, drawn from the given random generator.
+  private static long seed(final Rand r) {
+    return (long) r.choose(0, Integer.MAX_VALUE - 1) << 32 ^ r.choose(0, Integer.MAX_VALUE - 1);
+  }
+
+  /**
+   * Runs the one trial of this property that the given seed and size identify, as noted by the
+   * {@link CheckResult#replay() result} of a failed check against a {@link Corpus corpus}.
+   *
+   * @param seed The seed of the splittable random generator of the trial.
+   * @param size The size of the trial.
+   * @return The result of the trial, with counts of at most one.
+   */
+  @SuppressWarnings({"ThrowableResultOfMethodCallIgnored"})
+  public CheckResult replay(final long seed, final int size) {
+    CheckResult res;
+    try {
+      final Result x = f.f(size).f(Rand.splittable(seed));
+      if (x.isNoResult())
+        res = exhausted(0, 1);
+      else if (x.isProven())
+        res = proven(x.args().some(), 1, 0);
+      else if (x.isUnfalsified())
+        res = passed(1, 0);
+      else if (x.isFalsified())
+        res = falsified(x.args().some(), 0, 0);
+      else
+        res = propException(x.args().some(), x.exception().some(), 0, 0);
+    } catch (final Throwable t) {
+      res = genException(t, 0, 0);
+    }
+    return res.isFailure() ? res.replay(seed, size) : res;
+  }
+
+  /**
+   * Checks this property against the given corpus of failures, then using the given arguments. The
+   * failures recorded in the corpus for the given name are {@link #replay(long, int) replayed} first,
+   * in the order they were found, and the first that still fails is the result, without any random
+   * trials. Otherwise, each trial draws from a {@link Rand#splittable(long) splittable} generator whose
+   * seed is taken from the given random generator, and if the property fails, the seed and size of
+   * the failing trial are added to the corpus.
+   *
+   * @param corpus        The corpus of failures to replay and to record failures in.
+   * @param name          The name of this property in the corpus.
+   * @param r             The random generator to take the seeds of the trials from.
+   * @param minSuccessful The minimum number of successful tests before a result is reached.
+   * @param maxDiscarded  The maximum number of tests discarded because they did not satisfy
+   *                      pre-conditions (i.e. {@link #implies(boolean, P1)}).
+   * @param minSize       The minimum size to use for checking.
+   * @param maxSize       The maximum size to use for checking.
+   * @return A result after checking this property.
+   */
+  public CheckResult check(final Corpus corpus,
+                           final String name,
+                           final Rand r,
+                           final int minSuccessful,
+                           final int maxDiscarded,
+                           final int minSize,
+                           final int maxSize) {
+    for (final P2<Long, Integer> e : corpus.entries(name)) {
+      final CheckResult c = replay(e._1(), e._2());
+      if (c.isFailure()) {
+        return c;
+      }
+    }
+    final CheckResult c = check(r, minSuccessful, maxDiscarded, minSize, maxSize, true, new AtomicInteger(), new AtomicBoolean());
+    if (c.isFailure()) {
+      corpus.add(name, c.replay().some()._1(), c.replay().some()._2());
+    }
+    return c;
+  }
+
+  /**
+   * Checks this property against the given corpus of failures, then using a {@link Rand#Rand(F, F)
+   * standard random generator}, 100 minimum successful checks, 500 maximum discarded tests, minimum
+   * size of 0, maximum size of 100.
+   *
+   * @param corpus The corpus of failures to replay and to record failures in.
+   * @param name   The name of this property in the corpus.
+   * @return A result after checking this property.
+   * @see #check(Corpus, String, Rand, int, int, int, int)
+   */
+  public CheckResult check(final Corpus corpus, final String name) {
+    return check(corpus, name, Rand.standard, 100, 500, 0, 100);
+  }
+
+  // The share of the given total of the given worker of n.
+  private static int share(final int total, final int n, final int k) {
+    return total / n + (k < total % n ? 1 : 0);
+  }
+
   /**
    * Checks this property using a {@link Rand#Rand(F, F) standard random generator} and the given
    * arguments to produce a result.
@@ -370,6 +676,129 @@ public final class Property {
     });
   }
 
+  /**
+   * Returns a property that is falsified if evaluating the given property, from forcing it to its
+   * result, takes longer than the given time, and otherwise has its result. A falsified result has the
+   * time taken and the given time, in nanoseconds, as its last argument.
+   *
+   * @param time The most time that evaluating the given property may take.
+   * @param unit The unit of the given time.
+   * @param p    The property to evaluate.
+   * @return A property that is falsified if evaluating the given property takes too long.
+   */
+  public static Property withinTime(final long time, final TimeUnit unit, final P1<Property> p) {
+    final long bound = unit.toNanos(time);
+    return prop(i -> r -> {
+      final long start = System.nanoTime();
+      final Result x = p._1().prop(i, r);
+      final long took = System.nanoTime() - start;
+      return took > bound && x.passed() ?
+          Result.falsified(x.args().orSome(List.<Arg<?>>nil()).snoc(arg(String.format("took %d ns, over %d ns", took, bound), 0))) :
+          x;
+    });
+  }
+
+  /**
+   * Returns a property that is falsified if evaluating the given property, from forcing it to its
+   * result, allocates more than the given number of bytes on the calling thread, as the
+   * {@link ThreadMXBean} of the virtual machine measures it, and otherwise has its result. Allocation on
+   * other threads is not counted. A falsified result has the bytes allocated and the given bytes as its
+   * last argument.
+   *
+   * @param bytes The most bytes that evaluating the given property may allocate.
+   * @param p     The property to evaluate.
+   * @return A property that is falsified if evaluating the given property allocates too much.
+   */
+  public static Property withinAllocation(final long bytes, final P1<Property> p) {
+    return prop(i -> r -> {
+      final long start = allocatedBytes();
+      final Result x = p._1().prop(i, r);
+      final long allocated = allocatedBytes() - start;
+      return allocated > bytes && x.passed() ?
+          Result.falsified(x.args().orSome(List.<Arg<?>>nil()).snoc(arg(String.format("allocated %d bytes, over %d bytes", allocated, bytes), 0))) :
+          x;
+    });
+  }
+
+  private static long allocatedBytes() {
+    final java.lang.management.ThreadMXBean b = ManagementFactory.getThreadMXBean();
+    if (!(b instanceof ThreadMXBean) || !((ThreadMXBean) b).isThreadAllocatedMemorySupported())
+      throw error("Allocation can't be measured in this virtual machine.");
+    final ThreadMXBean t = (ThreadMXBean) b;
+    if (!t.isThreadAllocatedMemoryEnabled())
+      t.setThreadAllocatedMemoryEnabled(true);
+    return t.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Returns a property of how the time that the given function takes grows with the size of its
+   * argument. The function is timed on arguments from the given generator at sizes that double from
+   * the given minimum up to the given maximum, taking the fastest of {@value #SCALING_RUNS} runs at
+   * each size, each on a new argument, after runs at the largest size to warm up. The exponent
+   * <code>k</code> of the growth is the slope of a least-squares fit of the logarithms of the times
+   * against those of the sizes, so that time grows as <code>n<sup>k</sup></code>; for example, about 1
+   * for a linear function, a little more for <code>n log n</code>, and 2 for a quadratic one.
+   * <p/>
+   * The property is falsified, with the fitted exponent as its argument, if the exponent is greater
+   * than the given one, and otherwise proven, so that a check measures it once.
+   *
+   * @param g        The generator of arguments to the function.
+   * @param body     The function to time.
+   * @param minSize  The smallest size to time the function at, at least 1.
+   * @param maxSize  The largest size to time the function at, at least twice the smallest.
+   * @param exponent The greatest exponent of the growth of the time that the function may take.
+   * @return A property of how the time that the given function takes grows with size.
+   */
+  public static <A, B> Property scaling(final Gen<A> g, final F<A, B> body, final int minSize, final int maxSize,
+                                        final double exponent) {
+    if (minSize < 1 || maxSize / 2 < minSize)
+      throw error("Can't fit growth between sizes " + minSize + " and " + maxSize + '.');
+    return prop(i -> r -> {
+      for (int k = 0; k < SCALING_RUNS; k++)
+        time(g, body, maxSize, r);
+      final List.Buffer<P2<Double, Double>> points = List.Buffer.empty();
+      for (int n = minSize; n <= maxSize && n > 0; n *= 2) {
+        long best = Long.MAX_VALUE;
+        for (int k = 0; k < SCALING_RUNS; k++)
+          best = Math.min(best, time(g, body, n, r));
+        points.snoc(p(Math.log(n), Math.log(Math.max(best, 1L))));
+      }
+      final double k = slope(points.toList());
+      final List<Arg<?>> args = List.<Arg<?>>single(arg(String.format("growth exponent %.2f", k), 0));
+      return k > exponent ? Result.falsified(args) : Result.proven(args);
+    });
+  }
+
+  /**
+   * The number of times that {@link #scaling(Gen, F, int, int, double)} runs the function at each size.
+   */
+  public static final int SCALING_RUNS = 5;
+
+  // Sinks the results of timed functions, so that their work can't be optimised away.
+  private static volatile int sink;
+
+  private static <A, B> long time(final Gen<A> g, final F<A, B> body, final int size, final Rand r) {
+    final A a = g.gen(size, r);
+    final long start = System.nanoTime();
+    final B b = body.f(a);
+    final long took = System.nanoTime() - start;
+    sink += b == null ? 0 : System.identityHashCode(b);
+    return took;
+  }
+
+  // The slope of the least-squares line through the given points.
+  private static double slope(final List<P2<Double, Double>> points) {
+    final int n = points.length();
+    double sx = 0, sy = 0, sxx = 0, sxy = 0;
+    for (final P2<Double, Double> q : points) {
+      sx += q._1();
+      sy += q._2();
+      sxx += q._1() * q._1();
+      sxy += q._1() * q._2();
+    }
+    return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+  }
+
   /**
    * Returns a property from the given function.
    *
@@ -501,6 +930,111 @@ public final class Property {
     });
   }
 
+  /**
+   * Returns a property where its result is derived from universal quantification across the
+   * application of its arguments, shrinking a counter-example with the given search of a
+   * {@link Shrinker}, such as {@link Shrinker#lists(Shrink)}. The search evaluates candidates with
+   * {@link Rand#split() splits} of the random generator of the check, so that it may evaluate them in
+   * parallel.
+   * <p/>
+   * A falsified result reports the smallest counter-example, with the number of steps of the search's
+   * {@link Shrinker.Outcome#path() path} as its number of shrinks, but not the path itself. The failure
+   * is replayed from its {@link CheckResult#replay() seed}, which draws the same counter-example, and
+   * the search run on that counter-example gives an outcome whose path may be
+   * {@link Shrinker.Outcome#replay(F) replayed}.
+   *
+   * @param g      The generator to produces values from to produce the property with.
+   * @param search The search that shrinks a counter-example, given whether a value is one.
+   * @param f      The function to produce properties with results.
+   * @return A property where its result is derived from universal quantification across the
+   *         application of its arguments.
+   */
+  public static <A> Property forall(final Gen<A> g, final F2<A, F<A, Boolean>, Shrinker.Outcome<A>> search,
+                                    final F<A, P1<Property>> f) {
+    return prop(i -> r -> {
+      final F<A, Result> run = a -> {
+        final Rand s;
+        synchronized (r) {
+          s = r.split();
+        }
+        return exception(f.f(a)).prop(i, s);
+      };
+      final A a = g.gen(i, r);
+      final Result x = run.f(a);
+      if (!x.failed()) {
+        return noResult(x.toOption().map(y -> y.provenAsUnfalsified().addArg(arg(a, 0))));
+      }
+      final Shrinker.Outcome<A> o = search.f(a, b -> run.f(b).failed());
+      final Result y = run.f(o.value());
+      return y.failed() ?
+          y.provenAsUnfalsified().addArg(arg(o.value(), o.path().length() - 1)) :
+          x.provenAsUnfalsified().addArg(arg(a, 0));
+    });
+  }
+
+  /**
+   * Returns a property where its result is derived from universal quantification across the
+   * application of its arguments, shrinking a counter-example with the given search of a
+   * {@link Shrinker}.
+   *
+   * @param aa     The arbitrary to produces values from to produce the property with.
+   * @param search The search that shrinks a counter-example, given whether a value is one.
+   * @param f      The function to produce properties with results.
+   * @return A property where its result is derived from universal quantification across the
+   *         application of its arguments.
+   * @see #forall(Gen, F2, F)
+   */
+  public static <A> Property property(final Arbitrary<A> aa, final F2<A, F<A, Boolean>, Shrinker.Outcome<A>> search,
+                                      final F<A, Property> f) {
+    return forall(aa.gen, search, a -> P.p(f.f(a)));
+  }
+
+  /**
+   * Returns a property where its result is derived from universal quantification across the
+   * application of its arguments, drawn under the guidance of the {@link Coverage#probe(String)
+   * probes} that they reach. The property keeps the arguments that reach probes, or move between
+   * probes, that no argument had before, and one time in four draws an argument from the given
+   * generator; otherwise it applies the given mutation to a kept argument. The kept arguments are
+   * those of every check of the property, so that a later check starts from them.
+   *
+   * @param g      The generator to produces values from to produce the property with.
+   * @param mutate The mutation of kept arguments, such as {@link Coverage#lists(Gen)}.
+   * @param shrink The shrink strategy to use upon falsification.
+   * @param f      The function to produce properties with results.
+   * @return A property where its result is derived from universal quantification across the
+   *         application of its arguments.
+   */
+  public static <A> Property guided(final Gen<A> g, final F<A, Gen<A>> mutate, final Shrink<A> shrink,
+                                    final F<A, P1<Property>> f) {
+    final Coverage.Pool<A> pool = new Coverage.Pool<A>();
+    return forall(Gen.gen(i -> r -> pool.next(g, mutate, i, r)), shrink, a -> P.p(prop(i -> r -> {
+      final Set<String> hits = new HashSet<String>();
+      try {
+        return Coverage.recording(hits, P.lazy(u -> exception(f.f(a)).prop(i, r)));
+      } catch (final Throwable t) {
+        return Result.exception(List.<Arg<?>>nil(), t);
+      } finally {
+        pool.offer(a, hits);
+      }
+    })));
+  }
+
+  /**
+   * Returns a property where its result is derived from universal quantification across the
+   * application of its arguments, drawn under the guidance of the probes that they reach, and
+   * mutated through the given shrink strategy.
+   *
+   * @param aa The arbitrary to produces values from to produce the property with.
+   * @param sa The shrink strategy to mutate arguments with and to use upon falsification.
+   * @param f  The function to produce properties with results.
+   * @return A property where its result is derived from universal quantification across the
+   *         application of its arguments.
+   * @see #guided(Gen, F, Shrink, F)
+   */
+  public static <A> Property guided(final Arbitrary<A> aa, final Shrink<A> sa, final F<A, Property> f) {
+    return guided(aa.gen, Coverage.shrinking(sa), sa, a -> P.p(f.f(a)));
+  }
+
   /**
    * Returns a property where its result is derived from universal quantification across the
    * application of its arguments.
@@ -1,12 +1,14 @@
 package fj.test;
 
 import fj.F;
+import fj.SplitMixRng;
 import fj.data.Option;
 import static fj.data.Option.some;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A random number generator.
@@ -16,10 +18,18 @@ import java.util.Random;
 public final class Rand {
   private final F<Option<Long>, F<Integer, F<Integer, Integer>>> f;
   private final F<Option<Long>, F<Double, F<Double, Double>>> g;
+  // the state of a splittable generator, which draws from it directly
+  private final SplitMix random;
 
   private Rand(final F<Option<Long>, F<Integer, F<Integer, Integer>>> f, final F<Option<Long>, F<Double, F<Double, Double>>> g) {
+    this(f, g, null);
+  }
+
+  private Rand(final F<Option<Long>, F<Integer, F<Integer, Integer>>> f, final F<Option<Long>, F<Double, F<Double, Double>>> g,
+               final SplitMix random) {
     this.f = f;
     this.g = g;
+    this.random = random;
   }
 
   /**
@@ -42,7 +52,7 @@ public final class Rand {
    * @return A random value in the given range.
    */
   public int choose(final int from, final int to) {
-    return f.f(Option.<Long>none()).f(from).f(to);
+    return random != null ? chooseInt(random, from, to) : f.f(Option.<Long>none()).f(from).f(to);
   }
 
   /**
@@ -65,7 +75,19 @@ public final class Rand {
    * @return A random value in the given range.
    */
   public double choose(final double from, final double to) {
-    return g.f(Option.<Long>none()).f(from).f(to);
+    return random != null ? chooseDouble(random, from, to) : g.f(Option.<Long>none()).f(from).f(to);
+  }
+
+  /**
+   * Splits this random generator into a new one whose values are independent of those of this one, for
+   * another thread to draw from. A {@link #splittable(long) splittable} generator gives a new one
+   * whose values are determined by the seed of this one; other generators are shared between threads,
+   * and give themselves.
+   *
+   * @return A random generator for another thread to draw from.
+   */
+  public Rand split() {
+    return random != null ? splittable(random.split()) : this;
   }
 
   /**
@@ -115,14 +137,9 @@ public final class Rand {
   }
 
 
-  private static final F<Long, Random> fr = new F<Long, Random>() {
-    public Random f(final Long x) {
-      return new Random(x);
-    }
-  };
-
   /**
-   * A standard random generator that uses {@link Random}.
+   * A standard random generator that uses {@link Random} for a given seed, and otherwise the
+   * {@link ThreadLocalRandom} of the calling thread, so that threads do not contend for it.
    */
   public static final Rand standard = new Rand(new F<Option<Long>, F<Integer, F<Integer, Integer>>>() {
     public F<Integer, F<Integer, Integer>> f(final Option<Long> seed) {
@@ -132,7 +149,7 @@ public final class Rand {
             public Integer f(final Integer to) {
               final int f = min(from, to);
               final int t = max(from, to);
-              return f + seed.map(fr).orSome(new Random()).nextInt(t - f + 1);
+              return f + (seed.isSome() ? new Random(seed.some()) : ThreadLocalRandom.current()).nextInt(t - f + 1);
             }
           };
         }
@@ -146,11 +163,93 @@ public final class Rand {
             public Double f(final Double to) {
               final double f = min(from, to);
               final double t = max(from, to);
-              return seed.map(fr).orSome(new Random()).nextDouble() * (t - f) + f;
+              return (seed.isSome() ? new Random(seed.some()) : ThreadLocalRandom.current()).nextDouble() * (t - f) + f;
             }
           };
         }
       };
     }
   });
+
+  // The mutable state of a generator with the SplitMix64 algorithm of {@link SplitMixRng}, so that
+  // drawing a value does not allocate. It draws the same values as java.util.SplittableRandom.
+  private static final class SplitMix {
+    private long seed;
+    private final long gamma;
+
+    SplitMix(final long seed, final long gamma) {
+      this.seed = seed;
+      this.gamma = gamma;
+    }
+
+    private long nextSeed() {
+      return seed += gamma;
+    }
+
+    long nextLong() {
+      return SplitMixRng.mix64(nextSeed());
+    }
+
+    // A value in [origin, bound), where origin < bound, without bias.
+    long nextLong(final long origin, final long bound) {
+      long r = nextLong();
+      final long n = bound - origin;
+      final long m = n - 1;
+      if ((n & m) == 0L) {
+        return (r & m) + origin;
+      } else if (n > 0L) {
+        for (long u = r >>> 1; u + m - (r = u % n) < 0L; u = nextLong() >>> 1) {
+          // rejects the values of the last partial range
+        }
+        return r + origin;
+      } else {
+        while (r < origin || r >= bound) {
+          r = nextLong();
+        }
+        return r;
+      }
+    }
+
+    double nextDouble() {
+      return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    SplitMix split() {
+      return new SplitMix(nextLong(), SplitMixRng.mixGamma(nextSeed()));
+    }
+  }
+
+  /**
+   * A random generator with the SplitMix64 algorithm of {@link SplitMixRng} and the given seed,
+   * which draws values without allocating, and whose values are reproducible from the seed. Choosing a
+   * value moves the generator on, so the generator must be used by one thread at a time, with
+   * {@link #split()} giving generators for other threads. Choosing a value with a given seed draws
+   * from a new generator with that seed.
+   *
+   * @param seed The seed of the generator.
+   * @return A splittable random generator with the given seed.
+   */
+  public static Rand splittable(final long seed) {
+    return splittable(splitMix(seed));
+  }
+
+  private static SplitMix splitMix(final long seed) {
+    return new SplitMix(seed, SplitMixRng.GOLDEN_GAMMA);
+  }
+
+  private static Rand splittable(final SplitMix random) {
+    return new Rand(seed -> from -> to -> chooseInt(seed.isSome() ? splitMix(seed.some()) : random, from, to),
+        seed -> from -> to -> chooseDouble(seed.isSome() ? splitMix(seed.some()) : random, from, to),
+        random);
+  }
+
+  private static int chooseInt(final SplitMix random, final int from, final int to) {
+    return (int) random.nextLong(min(from, to), (long) max(from, to) + 1);
+  }
+
+  private static double chooseDouble(final SplitMix random, final double from, final double to) {
+    final double f = min(from, to);
+    final double t = max(from, to);
+    return random.nextDouble() * (t - f) + f;
+  }
 }
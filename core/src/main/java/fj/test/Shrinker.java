@@ -0,0 +1,425 @@
+package fj.test;
+
+import fj.F;
+import fj.F2;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Stream;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static fj.Bottom.error;
+
+/**
+ * An engine that shrinks counter-examples within a budget of steps and time. Where
+ * {@link Property#forall(Gen, Shrink, F)} tries the candidates of a {@link Shrink} one by one until
+ * none fails, an engine stops when its budget is spent, keeping the smallest counter-example found so
+ * far. It can also evaluate candidates in batches in parallel, taking the first failing candidate of a
+ * batch in order, so that the result does not depend on timing.
+ * <p/>
+ * Besides shrinking with any {@link Shrink}, an engine searches numbers by bisection towards zero, and
+ * lists and strings by removing chunks of halving length before shrinking their elements, which
+ * finds small counter-examples in far fewer steps than the shrinks of {@link Shrink} for large values.
+ * Every search records its path, the counter-examples it moved through, so that a failure can be
+ * {@link Outcome#replay replayed} from its smallest counter-example first.
+ *
+ * @version %build.number%
+ */
+public final class Shrinker {
+  private final int maxSteps;
+  private final long maxNanos;
+  private final Strategy<Boolean> strategy;
+  private final int batch;
+
+  private Shrinker(final int maxSteps, final long maxNanos, final Strategy<Boolean> strategy, final int batch) {
+    this.maxSteps = maxSteps;
+    this.maxNanos = maxNanos;
+    this.strategy = strategy;
+    this.batch = batch;
+  }
+
+  /**
+   * An engine without a budget that evaluates candidates one at a time.
+   *
+   * @return An engine without a budget that evaluates candidates one at a time.
+   */
+  public static Shrinker shrinker() {
+    return new Shrinker(Integer.MAX_VALUE, Long.MAX_VALUE, null, 1);
+  }
+
+  /**
+   * This engine, stopping after evaluating the given number of candidates.
+   *
+   * @param n The number of candidates to evaluate at most.
+   * @return This engine, stopping after evaluating the given number of candidates.
+   */
+  public Shrinker steps(final int n) {
+    if (n < 0) {
+      throw error("Can't shrink with a negative number of steps.");
+    }
+    return new Shrinker(n, maxNanos, strategy, batch);
+  }
+
+  /**
+   * This engine, stopping once the given time has passed since a search started.
+   *
+   * @param time The time to search for at most.
+   * @param unit The unit of the time.
+   * @return This engine, stopping once the given time has passed.
+   */
+  public Shrinker within(final long time, final TimeUnit unit) {
+    return new Shrinker(maxSteps, unit.toNanos(time), strategy, batch);
+  }
+
+  /**
+   * This engine, evaluating candidates in batches of the given size with the given strategy.
+   *
+   * @param strategy The strategy to evaluate the candidates of a batch with.
+   * @param batch    The number of candidates to evaluate together.
+   * @return This engine, evaluating candidates in parallel.
+   */
+  public Shrinker parallel(final Strategy<Boolean> strategy, final int batch) {
+    if (batch < 1) {
+      throw error("Can't shrink in batches smaller than 1 candidate.");
+    }
+    return new Shrinker(maxSteps, maxNanos, strategy, batch);
+  }
+
+  /**
+   * The result of a search: the smallest counter-example found, the counter-examples the search moved
+   * through to it, the number of candidates it evaluated, and whether it finished before its budget
+   * was spent.
+   */
+  public static final class Outcome<A> {
+    private final List<A> path;
+    private final int steps;
+    private final boolean complete;
+
+    private Outcome(final List<A> path, final int steps, final boolean complete) {
+      this.path = path;
+      this.steps = steps;
+      this.complete = complete;
+    }
+
+    /** The smallest counter-example found. */
+    public A value() {
+      return path.last();
+    }
+
+    /** The counter-examples the search moved through, from the one it started with to the smallest. */
+    public List<A> path() {
+      return path;
+    }
+
+    /** The number of candidates the search evaluated. */
+    public int steps() {
+      return steps;
+    }
+
+    /** Whether the search found no smaller counter-example before its budget was spent. */
+    public boolean complete() {
+      return complete;
+    }
+
+    /** This outcome with its counter-examples mapped by the given function. */
+    public <B> Outcome<B> map(final F<A, B> f) {
+      return new Outcome<B>(path.map(f), steps, complete);
+    }
+
+    /**
+     * Replays this outcome, such as after a change to the code under test, returning the smallest
+     * counter-example of its path that still fails.
+     *
+     * @param fails Whether a value is a counter-example.
+     * @return The smallest counter-example of the path of this outcome that still fails, if any.
+     */
+    public Option<A> replay(final F<A, Boolean> fails) {
+      return path.reverse().find(fails);
+    }
+
+    @Override
+    public String toString() {
+      return "Outcome(" + value() + ", shrinks=" + (path.length() - 1) + ", steps=" + steps + ", complete=" + complete + ")";
+    }
+  }
+
+  // The state of one search: its budget and its path so far.
+  private final class Run<A> {
+    private final long start = System.nanoTime();
+    private final F<A, Boolean> fails;
+    private final List.Buffer<A> path = List.Buffer.empty();
+    private int steps = 0;
+    private A current;
+
+    Run(final A a, final F<A, Boolean> fails) {
+      this.fails = fails;
+      move(a);
+    }
+
+    void move(final A a) {
+      current = a;
+      path.snoc(a);
+    }
+
+    boolean spent() {
+      return steps >= maxSteps || System.nanoTime() - start >= maxNanos;
+    }
+
+    private boolean fails(final A a) {
+      try {
+        return fails.f(a);
+      } catch (final Throwable t) {
+        return true;
+      }
+    }
+
+    // The index of the first of the given candidates that fails, or -1, evaluating as many as the budget allows.
+    int first(final java.util.List<A> candidates) {
+      final int n = Math.min(candidates.size(), maxSteps - steps);
+      if (strategy == null || n == 1) {
+        for (int k = 0; k < n; k++) {
+          if (spent()) {
+            return -1;
+          }
+          steps++;
+          if (fails(candidates.get(k))) {
+            return k;
+          }
+        }
+        return -1;
+      }
+      List<A> as = List.nil();
+      for (int k = n - 1; k >= 0; k--) {
+        as = as.cons(candidates.get(k));
+      }
+      steps += n;
+      final List<Boolean> results = strategy.parMap(this::fails, as)._1();
+      int k = 0;
+      for (final boolean b : results) {
+        if (b) {
+          return k;
+        }
+        k++;
+      }
+      return -1;
+    }
+
+    // Moves to the first failing candidate of the given stream, returning whether there was one.
+    boolean step(final Stream<A> candidates) {
+      Stream<A> cs = candidates;
+      while (!cs.isEmpty() && !spent()) {
+        final java.util.List<A> b = new ArrayList<A>(batch);
+        for (int k = 0; k < batch && !cs.isEmpty(); k++) {
+          b.add(cs.head());
+          cs = cs.tail()._1();
+        }
+        final int k = first(b);
+        if (k >= 0) {
+          move(b.get(k));
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void greedy(final Shrink<A> s) {
+      while (!spent() && step(s.shrink(current))) {
+      }
+    }
+
+    Outcome<A> outcome() {
+      return new Outcome<A>(path.toList(), steps, !spent());
+    }
+  }
+
+  /**
+   * Shrinks the given counter-example with the given shrink, moving to the first failing candidate of
+   * each shrink until none fails or the budget is spent.
+   *
+   * @param a     The counter-example to shrink.
+   * @param s     The shrink to take candidates from.
+   * @param fails Whether a value is a counter-example.
+   * @return The outcome of the search.
+   */
+  public <A> Outcome<A> shrink(final A a, final Shrink<A> s, final F<A, Boolean> fails) {
+    final Run<A> r = new Run<A>(a, fails);
+    r.greedy(s);
+    return r.outcome();
+  }
+
+  /**
+   * Shrinks the given counter-example towards zero by bisection, keeping its sign but for trying its
+   * negation first. With batches of <code>k</code> candidates, each round evaluates <code>k</code>
+   * evenly spaced points and narrows the range to one of <code>k + 1</code> parts.
+   *
+   * @param x     The counter-example to shrink.
+   * @param fails Whether a value is a counter-example.
+   * @return The outcome of the search.
+   */
+  public Outcome<Long> shrinkLong(final long x, final F<Long, Boolean> fails) {
+    return bisect(x, Long.MAX_VALUE, fails);
+  }
+
+  // Bisects towards zero, trying the negation of a negative number only if it is at most the given maximum.
+  private Outcome<Long> bisect(final long x, final long max, final F<Long, Boolean> fails) {
+    final Run<Long> r = new Run<Long>(x, fails);
+    final java.util.List<Long> first = new ArrayList<Long>();
+    if (x != 0) {
+      first.add(0L);
+    }
+    if (x < 0 && x != Long.MIN_VALUE && -x <= max) {
+      first.add(-x);
+    }
+    final int k = r.first(first);
+    if (k >= 0) {
+      r.move(first.get(k));
+    }
+    final long sign = r.current < 0 ? -1 : 1;
+    // the magnitudes known to pass and to fail
+    long lo = 0;
+    long hi = r.current == Long.MIN_VALUE ? Long.MAX_VALUE : Math.abs(r.current);
+    while (hi - lo > 1 && !r.spent()) {
+      final long step = Math.max(1, (hi - lo) / (batch + 1));
+      final java.util.List<Long> points = new ArrayList<Long>(batch);
+      for (long m = lo + step; m < hi && points.size() < batch; m += step) {
+        points.add(sign * m);
+      }
+      final int j = r.first(points);
+      if (j >= 0) {
+        r.move(points.get(j));
+        hi = Math.abs(points.get(j));
+        lo = j == 0 ? lo : Math.abs(points.get(j - 1));
+      } else if (!r.spent()) {
+        lo = Math.abs(points.get(points.size() - 1));
+      }
+    }
+    return r.outcome();
+  }
+
+  /**
+   * Shrinks the given counter-example towards zero by bisection.
+   *
+   * @param x     The counter-example to shrink.
+   * @param fails Whether a value is a counter-example.
+   * @return The outcome of the search.
+   * @see #shrinkLong(long, F)
+   */
+  public Outcome<Integer> shrinkInteger(final int x, final F<Integer, Boolean> fails) {
+    return bisect(x, Integer.MAX_VALUE, l -> fails.f((int) (long) l)).map(l -> (int) (long) l);
+  }
+
+  /**
+   * Shrinks the given counter-example by removing chunks of it, first the whole list, then halves,
+   * quarters and so on down to single elements, and then by shrinking its elements in turn with the
+   * given shrink.
+   *
+   * @param as    The counter-example to shrink.
+   * @param sa    The shrink of the elements of the list.
+   * @param fails Whether a value is a counter-example.
+   * @return The outcome of the search.
+   */
+  public <A> Outcome<List<A>> shrinkList(final List<A> as, final Shrink<A> sa, final F<List<A>, Boolean> fails) {
+    final Run<List<A>> r = new Run<List<A>>(as, fails);
+    for (int chunk = as.length(); chunk >= 1 && !r.spent(); chunk /= 2) {
+      int from = 0;
+      while (!r.spent()) {
+        final java.util.List<A> cur = new ArrayList<A>(r.current.length());
+        for (final A a : r.current) {
+          cur.add(a);
+        }
+        if (from >= cur.size()) {
+          break;
+        }
+        final java.util.List<List<A>> candidates = new ArrayList<List<A>>(batch);
+        final java.util.List<Integer> starts = new ArrayList<Integer>(batch);
+        for (int s = from; s < cur.size() && candidates.size() < batch; s += chunk) {
+          candidates.add(without(cur, s, Math.min(s + chunk, cur.size())));
+          starts.add(s);
+        }
+        final int k = r.first(candidates);
+        if (k >= 0) {
+          r.move(candidates.get(k));
+          from = starts.get(k);
+        } else {
+          from = starts.get(starts.size() - 1) + chunk;
+        }
+      }
+    }
+    for (int i = 0; i < r.current.length() && !r.spent(); i++) {
+      final int index = i;
+      while (!r.spent()) {
+        final List<A> cur = r.current;
+        if (!r.step(sa.shrink(cur.index(index)).map(a -> replace(cur, index, a)))) {
+          break;
+        }
+      }
+    }
+    return r.outcome();
+  }
+
+  /**
+   * Shrinks the given counter-example as {@link #shrinkList(List, Shrink, F)} does, shrinking its
+   * characters with {@link Shrink#shrinkCharacter}.
+   *
+   * @param s     The counter-example to shrink.
+   * @param fails Whether a value is a counter-example.
+   * @return The outcome of the search.
+   */
+  public Outcome<String> shrinkString(final String s, final F<String, Boolean> fails) {
+    return shrinkList(List.fromString(s), Shrink.shrinkCharacter, cs -> fails.f(List.asString(cs))).map(List::asString);
+  }
+
+  /**
+   * A search with this engine and the given shrink, for {@link Property#forall(Gen, F2, F)}.
+   *
+   * @param s The shrink to take candidates from.
+   * @return A search with this engine and the given shrink.
+   */
+  public <A> F2<A, F<A, Boolean>, Outcome<A>> search(final Shrink<A> s) {
+    return (a, fails) -> shrink(a, s, fails);
+  }
+
+  /**
+   * A search of integers by bisection with this engine, for {@link Property#forall(Gen, F2, F)}.
+   *
+   * @return A search of integers by bisection.
+   */
+  public F2<Integer, F<Integer, Boolean>, Outcome<Integer>> integers() {
+    return this::shrinkInteger;
+  }
+
+  /**
+   * A search of lists by chunk removal with this engine, for {@link Property#forall(Gen, F2, F)}.
+   *
+   * @param sa The shrink of the elements of the lists.
+   * @return A search of lists by chunk removal.
+   */
+  public <A> F2<List<A>, F<List<A>, Boolean>, Outcome<List<A>>> lists(final Shrink<A> sa) {
+    return (as, fails) -> shrinkList(as, sa, fails);
+  }
+
+  /**
+   * A search of strings by chunk removal with this engine, for {@link Property#forall(Gen, F2, F)}.
+   *
+   * @return A search of strings by chunk removal.
+   */
+  public F2<String, F<String, Boolean>, Outcome<String>> strings() {
+    return this::shrinkString;
+  }
+
+  private static <A> List<A> without(final java.util.List<A> as, final int from, final int to) {
+    List<A> r = List.nil();
+    for (int k = as.size() - 1; k >= 0; k--) {
+      if (k < from || k >= to) {
+        r = r.cons(as.get(k));
+      }
+    }
+    return r;
+  }
+
+  private static <A> List<A> replace(final List<A> as, final int index, final A a) {
+    return as.take(index).append(as.drop(index + 1).cons(a));
+  }
+}
@@ -0,0 +1,377 @@
+package fj.test;
+
+import fj.F;
+import fj.F2;
+import fj.P;
+import fj.P1;
+import fj.P2;
+import fj.Unit;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.data.Stream;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static fj.Bottom.error;
+import static fj.P.p;
+import static fj.test.Property.forall;
+import static fj.test.Property.prop;
+
+/**
+ * Model-based testing of a stateful system against a model of its states. The system is driven by
+ * sequences of {@link Command commands}, generated from the state of the model, and each response of
+ * the system is checked against the state of the model that the command is run in.
+ * <p/>
+ * A {@link #sequential() sequential} property runs a sequence of commands on a fresh system, one
+ * after the other. A {@link #parallel(Strategy, int, int) parallel} property runs a sequential prefix
+ * of commands, and then several sequences of commands at once, one per thread of a strategy, and
+ * checks that the history of the run is linearizable: that the responses are those of the model
+ * in some order of the commands that keeps the order of each thread, and puts a command that
+ * responded before another was invoked before it. Failing sequences are shrunk to shorter ones whose
+ * commands still meet their preconditions.
+ *
+ * @version %build.number%
+ */
+public final class StateMachine<M, S> {
+  // The most commands that each thread of a parallel run is given.
+  private static final int MAX_THREAD_COMMANDS = 5;
+  // The most times that a command is generated for a state before giving up on the sequence.
+  private static final int MAX_TRIES = 100;
+
+  /**
+   * A command of a stateful system, with its effect on the model.
+   */
+  public static abstract class Command<M, S> {
+    /**
+     * Whether this command may be run in the given state of the model, by default always.
+     *
+     * @param model A state of the model.
+     * @return Whether this command may be run in the given state.
+     */
+    public boolean pre(final M model) {
+      return true;
+    }
+
+    /**
+     * Runs this command on the system.
+     *
+     * @param system The system to run this command on.
+     * @return The response of the system.
+     */
+    public abstract Object run(S system);
+
+    /**
+     * Whether the given response of the system is right for the given state of the model.
+     *
+     * @param model    The state of the model that the command was run in.
+     * @param response The response of the system, or the exception that it threw.
+     * @return Whether the response is right for the state of the model.
+     */
+    public abstract boolean post(M model, Object response);
+
+    /**
+     * The state of the model after this command.
+     *
+     * @param model The state of the model before this command.
+     * @return The state of the model after this command.
+     */
+    public abstract M next(M model);
+  }
+
+  private final M initial;
+  private final F<M, Gen<Command<M, S>>> commands;
+  private final P1<S> system;
+
+  private StateMachine(final M initial, final F<M, Gen<Command<M, S>>> commands, final P1<S> system) {
+    this.initial = initial;
+    this.commands = commands;
+    this.system = system;
+  }
+
+  /**
+   * Returns a state machine with the given initial state of the model, generator of commands and
+   * systems.
+   *
+   * @param initial  The initial state of the model.
+   * @param commands The generator of the commands that may be run in a state of the model.
+   * @param system   A new system to run commands on, each time it is evaluated.
+   * @return A state machine of the given model and system.
+   */
+  public static <M, S> StateMachine<M, S> stateMachine(final M initial, final F<M, Gen<Command<M, S>>> commands,
+                                                       final P1<S> system) {
+    return new StateMachine<M, S>(initial, commands, system);
+  }
+
+  /**
+   * Returns a command of the given name, which is its string rendering.
+   *
+   * @param name The name of the command.
+   * @param pre  Whether the command may be run in a state of the model.
+   * @param run  Runs the command on the system.
+   * @param post Whether a response of the system is right for a state of the model.
+   * @param next The state of the model after the command.
+   * @return A command of the given name.
+   */
+  public static <M, S> Command<M, S> command(final String name, final F<M, Boolean> pre, final F<S, Object> run,
+                                             final F2<M, Object, Boolean> post, final F<M, M> next) {
+    return new Command<M, S>() {
+      public boolean pre(final M model) {
+        return pre.f(model);
+      }
+
+      public Object run(final S system) {
+        return run.f(system);
+      }
+
+      public boolean post(final M model, final Object response) {
+        return post.f(model, response);
+      }
+
+      public M next(final M model) {
+        return next.f(model);
+      }
+
+      public String toString() {
+        return name;
+      }
+    };
+  }
+
+  /**
+   * Returns a generator of sequences of commands from the initial state, of up to the size of
+   * commands.
+   *
+   * @return A generator of sequences of commands from the initial state.
+   */
+  public Gen<List<Command<M, S>>> sequentialCommands() {
+    return Gen.gen(i -> r -> commands(initial, r.choose(0, i), i, r)._1());
+  }
+
+  /**
+   * Returns a generator of a sequential prefix of commands from the initial state, of up to half the
+   * size of commands, and sequences of commands for the given number of threads, from the state after
+   * the prefix.
+   *
+   * @param threads The number of threads to run commands on at once.
+   * @return A generator of a sequential prefix of commands and the commands of each thread.
+   */
+  public Gen<P2<List<Command<M, S>>, List<List<Command<M, S>>>>> parallelCommands(final int threads) {
+    if (threads < 1)
+      throw error("Can't run commands on fewer than one thread.");
+    return Gen.gen(i -> r -> {
+      final P2<List<Command<M, S>>, M> prefix = commands(initial, r.choose(0, i / 2), i, r);
+      final List.Buffer<List<Command<M, S>>> ts = List.Buffer.empty();
+      for (int k = 0; k < threads; k++)
+        ts.snoc(commands(prefix._2(), r.choose(1, Math.max(1, Math.min(i / threads, MAX_THREAD_COMMANDS))), i, r)._1());
+      return p(prefix._1(), ts.toList());
+    });
+  }
+
+  // Generates up to the given number of commands from the given state, with the state after them.
+  private P2<List<Command<M, S>>, M> commands(final M from, final int n, final int i, final Rand r) {
+    final List.Buffer<Command<M, S>> cs = List.Buffer.empty();
+    M m = from;
+    for (int k = 0; k < n; k++) {
+      final Gen<Command<M, S>> g = commands.f(m);
+      Command<M, S> c = null;
+      for (int t = 0; t < MAX_TRIES && c == null; t++) {
+        final Command<M, S> d = g.gen(i, r);
+        if (d.pre(m))
+          c = d;
+      }
+      if (c == null)
+        break;
+      cs.snoc(c);
+      m = c.next(m);
+    }
+    return p(cs.toList(), m);
+  }
+
+  // Whether the preconditions of the given commands hold from the given state.
+  private boolean valid(final M from, final List<Command<M, S>> cs) {
+    M m = from;
+    for (final Command<M, S> c : cs) {
+      if (!c.pre(m))
+        return false;
+      m = c.next(m);
+    }
+    return true;
+  }
+
+  private M after(final M from, final List<Command<M, S>> cs) {
+    M m = from;
+    for (final Command<M, S> c : cs)
+      m = c.next(m);
+    return m;
+  }
+
+  /**
+   * Returns a shrink strategy for sequences of commands from the initial state, that removes commands
+   * as long as the preconditions of the rest hold.
+   *
+   * @return A shrink strategy for sequences of commands from the initial state.
+   */
+  public Shrink<List<Command<M, S>>> shrinkSequential() {
+    final Shrink<List<Command<M, S>>> s = Shrink.shrinkList(Shrink.<Command<M, S>>empty());
+    return Shrink.shrink(cs -> s.shrink(cs).filter(ds -> valid(initial, ds)));
+  }
+
+  /**
+   * Returns a shrink strategy for parallel commands, that removes commands from the prefix or a
+   * thread, or moves the first command of a thread to the end of the prefix, as long as the
+   * preconditions hold, for the prefix and then for each thread.
+   *
+   * @return A shrink strategy for parallel commands.
+   */
+  public Shrink<P2<List<Command<M, S>>, List<List<Command<M, S>>>>> shrinkParallel() {
+    final Shrink<List<Command<M, S>>> s = Shrink.shrinkList(Shrink.<Command<M, S>>empty());
+    return Shrink.shrink(pc -> {
+      final List<Command<M, S>> prefix = pc._1();
+      final List<List<Command<M, S>>> ts = pc._2();
+      Stream<P2<List<Command<M, S>>, List<List<Command<M, S>>>>> candidates =
+          s.shrink(prefix).map(ps -> p(ps, ts));
+      for (int k = 0; k < ts.length(); k++) {
+        final int t = k;
+        final List<Command<M, S>> cs = ts.index(t);
+        candidates = candidates.append(s.shrink(cs).map(ds -> p(prefix, replace(ts, t, ds))));
+        if (cs.isNotEmpty())
+          candidates = candidates.append(Stream.single(p(prefix.snoc(cs.head()), replace(ts, t, cs.tail()))));
+      }
+      return candidates.filter(c -> valid(initial, c._1()) && c._2().forall(cs -> valid(after(initial, c._1()), cs)));
+    });
+  }
+
+  private static <A> List<A> replace(final List<A> as, final int k, final A a) {
+    return as.take(k).snoc(a).append(as.drop(k + 1));
+  }
+
+  /**
+   * Returns a property that runs sequences of commands on a fresh system, and holds if every response
+   * is right for the state of the model.
+   *
+   * @return A property of sequences of commands on the system.
+   */
+  public Property sequential() {
+    return forall(sequentialCommands(), shrinkSequential(), cs -> P.lazy(u -> prop(runSequential(cs))));
+  }
+
+  private boolean runSequential(final List<Command<M, S>> cs) {
+    final S s = system._1();
+    M m = initial;
+    for (final Command<M, S> c : cs) {
+      if (!c.post(m, respond(c, s)))
+        return false;
+      m = c.next(m);
+    }
+    return true;
+  }
+
+  private static <M, S> Object respond(final Command<M, S> c, final S s) {
+    try {
+      return c.run(s);
+    } catch (final Exception e) {
+      return e;
+    }
+  }
+
+  /**
+   * Returns a property that runs a sequential prefix of commands on a fresh system, and then the
+   * commands of the given number of threads at once with the given strategy, which must be able to
+   * run that many at once. The property holds if the history of each of the given number of runs is
+   * linearizable against the model.
+   *
+   * @param strategy    The strategy to run the commands of the threads with.
+   * @param threads     The number of threads to run commands on at once.
+   * @param repetitions The number of times to run each set of commands, each on a fresh system.
+   * @return A property of parallel commands on the system.
+   */
+  public Property parallel(final Strategy<Unit> strategy, final int threads, final int repetitions) {
+    return forall(parallelCommands(threads), shrinkParallel(), pc -> P.lazy(u -> {
+      for (int k = 0; k < repetitions; k++) {
+        if (!runParallel(strategy, pc._1(), pc._2()))
+          return prop(false);
+      }
+      return prop(true);
+    }));
+  }
+
+  // A command of a parallel run, with its response and the logical times of its invocation and
+  // response.
+  private static final class Event<M, S> {
+    final Command<M, S> command;
+    Object response;
+    long invoked;
+    long responded;
+
+    Event(final Command<M, S> command) {
+      this.command = command;
+    }
+  }
+
+  private boolean runParallel(final Strategy<Unit> strategy, final List<Command<M, S>> prefix,
+                              final List<List<Command<M, S>>> ts) {
+    final S s = system._1();
+    M m = initial;
+    for (final Command<M, S> c : prefix) {
+      if (!c.post(m, respond(c, s)))
+        return false;
+      m = c.next(m);
+    }
+    final AtomicLong clock = new AtomicLong();
+    final AtomicInteger waiting = new AtomicInteger(ts.length());
+    @SuppressWarnings("unchecked")
+    final Event<M, S>[][] events = (Event<M, S>[][]) new Event<?, ?>[ts.length()][];
+    final List.Buffer<P1<Unit>> runs = List.Buffer.empty();
+    for (int k = 0; k < ts.length(); k++) {
+      final Event<M, S>[] es = events[k] = events(ts.index(k));
+      runs.snoc(P.lazy(u -> {
+        // start the threads as close together as they can, without blocking a strategy that can't
+        // run them all at once
+        waiting.decrementAndGet();
+        for (int spins = 0; waiting.get() > 0 && spins < 100000; spins++)
+          Thread.yield();
+        for (final Event<M, S> e : es) {
+          e.invoked = clock.incrementAndGet();
+          e.response = respond(e.command, s);
+          e.responded = clock.incrementAndGet();
+        }
+        return Unit.unit();
+      }));
+    }
+    strategy.parList(runs.toList())._1();
+    return linearizable(m, events, new int[events.length]);
+  }
+
+  private static <M, S> Event<M, S>[] events(final List<Command<M, S>> cs) {
+    @SuppressWarnings("unchecked")
+    final Event<M, S>[] es = (Event<M, S>[]) new Event<?, ?>[cs.length()];
+    int k = 0;
+    for (final Command<M, S> c : cs)
+      es[k++] = new Event<M, S>(c);
+    return es;
+  }
+
+  // Whether the events of each thread from the given positions can be put in an order that keeps the
+  // order of each thread and of the responses and invocations, and that the model agrees with.
+  private static <M, S> boolean linearizable(final M m, final Event<M, S>[][] events, final int[] at) {
+    boolean done = true;
+    for (int t = 0; t < events.length; t++) {
+      if (at[t] == events[t].length)
+        continue;
+      done = false;
+      final Event<M, S> e = events[t][at[t]];
+      boolean first = true;
+      for (int u = 0; u < events.length && first; u++)
+        first = u == t || at[u] == events[u].length || events[u][at[u]].responded > e.invoked;
+      if (first && e.command.pre(m) && e.command.post(m, e.response)) {
+        at[t]++;
+        final boolean rest = linearizable(e.command.next(m), events, at);
+        at[t]--;
+        if (rest)
+          return true;
+      }
+    }
+    return done;
+  }
+}
@@ -4,8 +4,6 @@ import static fj.Bottom.error;
 import fj.Class;
 import static fj.Class.clas;
 import fj.F;
-import fj.Function;
-import fj.P;
 import static fj.P.p;
 import fj.P2;
 import fj.P3;
@@ -23,6 +21,8 @@ import fj.test.CheckResult;
 import fj.test.Property;
 import fj.test.Rand;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
@@ -31,7 +31,7 @@ import static java.lang.reflect.Modifier.isStatic;
 
 /**
  * Functions for checking properties in a class that are found reflectively and according to various
- * annotations.
+ * annotations. The properties of a class are found once, and read through method handles afterwards.
  * 
  * @version %build.number%
  */
@@ -143,19 +143,29 @@ public final class Check {
    * @return The results of checking the properties on the given class.
    */
   public static <T> List<P2<String, CheckResult>> check(final java.lang.Class<T> c, final Rand r, final String... categories) {
+    return allProperties(c, categories).map(new F<P3<Property, String, Option<CheckParams>>, P2<String, CheckResult>>() {
+      public P2<String, CheckResult> f(final P3<Property, String, Option<CheckParams>> p) {
+        return p(p._2(), check(p._1(), p._3(), r));
+      }
+    });
+  }
+
+  // The properties of the given class and its superclasses.
+  static <T> List<P3<Property, String, Option<CheckParams>>> allProperties(final java.lang.Class<T> c, final String... categories) {
     return join(clas(c).inheritance().map(new F<Class<? super T>, List<P3<Property, String, Option<CheckParams>>>>() {
       public List<P3<Property, String, Option<CheckParams>>> f(final Class<? super T> c) {
         return properties(c.clas(), categories);
       }
-    })).map(new F<P3<Property, String, Option<CheckParams>>, P2<String, CheckResult>>() {
-      public P2<String, CheckResult> f(final P3<Property, String, Option<CheckParams>> p) {
-        if(p._3().isSome()) {
-          final CheckParams ps = p._3().some();
-          return p(p._2(), p._1().check(r, ps.minSuccessful(), ps.maxDiscarded(), ps.minSize(), ps.maxSize()));
-        } else
-          return p(p._2(), p._1().check(r));
-      }
-    });
+    }));
+  }
+
+  // Checks the given property with the given parameters, or the default ones.
+  static CheckResult check(final Property p, final Option<CheckParams> params, final Rand r) {
+    if(params.isSome()) {
+      final CheckParams ps = params.some();
+      return p.check(r, ps.minSuccessful(), ps.maxDiscarded(), ps.minSize(), ps.maxSize());
+    } else
+      return p.check(r);
   }
 
   /**
@@ -187,151 +197,140 @@ public final class Check {
    * found reflectively and according to various annotations.
    */
   public static <U, T extends U> List<P3<Property, String, Option<CheckParams>>> properties(final java.lang.Class<T> c, final String... categories) {
-    //noinspection ClassEscapesDefinedScope
-    final Array<P3<Property, String, Option<CheckParams>>> propFields = properties(array(c.getDeclaredFields()).map(new F<Field, PropertyMember>() {
-      public PropertyMember f(final Field f) {
-        return new PropertyMember() {
-          public java.lang.Class<?> type() {
-            return f.getType();
-          }
-
-          public AnnotatedElement element() {
-            return f;
-          }
-
-          public String name() {
-            return f.getName();
-          }
-
-          public int modifiers() {
-            return f.getModifiers();
-          }
-
-          public <X> Property invoke(final X x) throws IllegalAccessException {
-            f.setAccessible(true);
-            return (Property)f.get(x);
-          }
-
-          public boolean isProperty() {
-            return true;
+    final Discovered d = discovered.get(c);
+    final Array<Member> ms = d.members.filter(new F<Member, Boolean>() {
+      public Boolean f(final Member m) {
+        return categories.length == 0 || array(categories).exists(new F<String, Boolean>() {
+          public Boolean f(final String s) {
+            return m.categories.contains(s);
           }
-        };
+        });
       }
-    }), c, categories);
-
-    //noinspection ClassEscapesDefinedScope
-    final Array<P3<Property, String, Option<CheckParams>>> propMethods = properties(array(c.getDeclaredMethods()).map(new F<Method, PropertyMember>() {
-      public PropertyMember f(final Method m) {
-        //noinspection ProhibitedExceptionDeclared
-        return new PropertyMember() {
-          public java.lang.Class<?> type() {
-            return m.getReturnType();
-          }
+    });
+    final Object instance = ms.exists(new F<Member, Boolean>() {
+      public Boolean f(final Member m) {
+        return !m.isStatic;
+      }
+    }) ? d.instance() : null;
+    return ms.map(new F<Member, P3<Property, String, Option<CheckParams>>>() {
+      public P3<Property, String, Option<CheckParams>> f(final Member m) {
+        return p(m.property(instance), m.name, m.params);
+      }
+    }).toList();
+  }
 
-          public AnnotatedElement element() {
-            return m;
-          }
+  // The properties of a class, found once per class.
+  private static final ClassValue<Discovered> discovered = new ClassValue<Discovered>() {
+    protected Discovered computeValue(final java.lang.Class<?> c) {
+      return discover(c);
+    }
+  };
+
+  private static final class Member {
+    final String name;
+    final Option<CheckParams> params;
+    final java.util.Set<String> categories;
+    final boolean isStatic;
+    // () -> Property if static, otherwise (declaring class) -> Property
+    final MethodHandle handle;
+
+    Member(final String name, final Option<CheckParams> params, final java.util.Set<String> categories,
+           final boolean isStatic, final MethodHandle handle) {
+      this.name = name;
+      this.params = params;
+      this.categories = categories;
+      this.isStatic = isStatic;
+      this.handle = handle;
+    }
 
-          public String name() {
-            return m.getName();
-          }
+    @SuppressWarnings({"OverlyBroadCatchBlock"})
+    Property property(final Object instance) {
+      try {
+        return isStatic ? (Property) handle.invoke() : (Property) handle.invoke(instance);
+      } catch(Throwable e) {
+        throw error(e.toString());
+      }
+    }
+  }
 
-          public int modifiers() {
-            return m.getModifiers();
-          }
+  private static final class Discovered {
+    final Option<MethodHandle> ctor;
+    final Array<Member> members;
 
-          public <X> Property invoke(final X x) throws Exception {
-            m.setAccessible(true);
-            return (Property)m.invoke(x);
-          }
+    Discovered(final Option<MethodHandle> ctor, final Array<Member> members) {
+      this.ctor = ctor;
+      this.members = members;
+    }
 
-          public boolean isProperty() {
-            return m.getParameterTypes().length == 0;
-          }
-        };
+    // A new instance of the class, to take the properties of its instance members from.
+    @SuppressWarnings({"OverlyBroadCatchBlock"})
+    Object instance() {
+      try {
+        return ctor.some().invoke();
+      } catch(Throwable e) {
+        throw error(e.toString());
       }
-    }), c, categories);
-
-    return propFields.append(propMethods).toList();
-  }
-
-  private interface PropertyMember {
-    java.lang.Class<?> type();
-    AnnotatedElement element();
-    String name();
-    int modifiers();
-    @SuppressWarnings({"ProhibitedExceptionDeclared"})
-    <X> Property invoke(X x) throws Exception;
-    boolean isProperty();
+    }
   }
 
-  private static <T> Array<P3<Property, String, Option<CheckParams>>> properties(final Array<PropertyMember> ms, final java.lang.Class<T> declaringClass, final String... categories) {
-    final Option<T> t = emptyCtor(declaringClass).map(new F<Constructor<T>, T>() {
-      @SuppressWarnings({"OverlyBroadCatchBlock"})
-      public T f(final Constructor<T> ctor) {
+  // Finds the members of the given class that are properties to check, in the order of its declared
+  // fields then its declared methods.
+  private static Discovered discover(final java.lang.Class<?> c) {
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    final Option<MethodHandle> ctor = emptyCtor(c).map(new F<Constructor<?>, MethodHandle>() {
+      public MethodHandle f(final Constructor<?> ctor) {
         try {
           ctor.setAccessible(true);
-          return ctor.newInstance();
-        } catch(Exception e) {
+          return lookup.unreflectConstructor(ctor);
+        } catch(IllegalAccessException e) {
           throw error(e.toString());
         }
       }
     });
-
-    final F<AnnotatedElement, F<String, Boolean>> p = new F<AnnotatedElement, F<String, Boolean>>() {
-      public F<String, Boolean> f(final AnnotatedElement e) {
-        return new F<String, Boolean>() {
-          public Boolean f(final String s) {
-            final F<Category, Boolean> p = new F<Category, Boolean>() {
-              public Boolean f(final Category c) {
-                return array(c.value()).exists(new F<String, Boolean>() {
-                  public Boolean f(final String cs) {
-                    return cs.equals(s);
-                  }
-                });
-              }
-            };
-
-            @SuppressWarnings("unchecked")
-            final List<Boolean> bss = somes(list(fromNull(e.getAnnotation(Category.class)).map(p),
-              fromNull(declaringClass.getAnnotation(Category.class)).map(p)));
-            return bss.exists(Function.<Boolean>identity());
+    final java.util.List<Member> ms = new java.util.ArrayList<Member>();
+    if(!c.isAnnotationPresent(NoCheck.class)) {
+      try {
+        for(final Field f : c.getDeclaredFields()) {
+          if(f.getType() == Property.class && candidate(f, f.getModifiers(), ctor)) {
+            f.setAccessible(true);
+            ms.add(member(c, f, f.getName(), isStatic(f.getModifiers()), lookup.unreflectGetter(f)));
+          }
+        }
+        for(final Method m : c.getDeclaredMethods()) {
+          if(m.getParameterTypes().length == 0 && m.getReturnType() == Property.class && candidate(m, m.getModifiers(), ctor)) {
+            m.setAccessible(true);
+            ms.add(member(c, m, m.getName(), isStatic(m.getModifiers()), lookup.unreflect(m)));
           }
-        };
+        }
+      } catch(IllegalAccessException e) {
+        throw error(e.toString());
       }
-    };
+    }
+    return new Discovered(ctor, array(ms.toArray(new Member[ms.size()])));
+  }
 
-    final F<Name, String> nameS = new F<Name, String>() {
-      public String f(final Name name) {
-        return name.value();
-      }
-    };
+  private static boolean candidate(final AnnotatedElement e, final int modifiers, final Option<MethodHandle> ctor) {
+    return !e.isAnnotationPresent(NoCheck.class) && (ctor.isSome() || isStatic(modifiers));
+  }
 
-    return ms.filter(new F<PropertyMember, Boolean>() {
-      public Boolean f(final PropertyMember m) {
-        //noinspection ObjectEquality
-        return m.isProperty() &&
-            m.type() == Property.class &&
-            !m.element().isAnnotationPresent(NoCheck.class) &&
-            !declaringClass.isAnnotationPresent(NoCheck.class) &&
-            (categories.length == 0 || array(categories).exists(p.f(m.element()))) &&
-            (t.isSome() || isStatic(m.modifiers()));
-      }
-    }).map(new F<PropertyMember, P3<Property, String, Option<CheckParams>>>() {
-      public P3<Property, String, Option<CheckParams>> f(final PropertyMember m) {
-        try {
-          final Option<CheckParams> params = fromNull(m.element().getAnnotation(CheckParams.class)).orElse(fromNull(declaringClass.getAnnotation(CheckParams.class)));
-          final String name = fromNull(m.element().getAnnotation(Name.class)).map(nameS).orSome(m.name());
-          return p(m.invoke(t.orSome(P.<T>p(null))), name, params);
-        } catch(Exception e) {
-          throw error(e.toString());
-        }
+  private static Member member(final java.lang.Class<?> declaringClass, final AnnotatedElement e, final String name,
+                               final boolean isStatic, final MethodHandle handle) {
+    final Option<CheckParams> params = fromNull(e.getAnnotation(CheckParams.class)).orElse(fromNull(declaringClass.getAnnotation(CheckParams.class)));
+    final java.util.Set<String> categories = new java.util.HashSet<String>();
+    @SuppressWarnings("unchecked")
+    final List<Category> cats = somes(list(fromNull(e.getAnnotation(Category.class)), fromNull(declaringClass.getAnnotation(Category.class))));
+    for(final Category cat : cats) {
+      categories.addAll(java.util.Arrays.asList(cat.value()));
+    }
+    return new Member(fromNull(e.getAnnotation(Name.class)).map(new F<Name, String>() {
+      public String f(final Name n) {
+        return n.value();
       }
-    });
+    }).orSome(name), params, categories, isStatic, handle);
   }
 
-  private static <T> Option<Constructor<T>> emptyCtor(final java.lang.Class<T> c) {
-    Option<Constructor<T>> ctor;
+  private static Option<Constructor<?>> emptyCtor(final java.lang.Class<?> c) {
+    Option<Constructor<?>> ctor;
 
     //noinspection UnusedCatchParameter
     try {
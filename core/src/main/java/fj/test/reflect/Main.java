@@ -1,20 +1,42 @@
 package fj.test.reflect;
 
-import fj.P2;
-import static fj.data.Array.array;
-
-import fj.function.Effect1;
+import fj.P3;
+import fj.data.List;
+import fj.data.Option;
 import fj.test.CheckResult;
+import fj.test.Property;
+import fj.test.Rand;
 import static fj.test.CheckResult.summary;
+import static fj.test.reflect.Check.allProperties;
 import static fj.test.reflect.Check.check;
 
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static java.lang.Class.forName;
 import static java.lang.System.exit;
 import static java.lang.System.out;
 
 /**
  * Checks the properties of a class using a standard random generator, standard check parameters and
- * the given categories. The class name and categories are passed as command line arguments. 
+ * the given categories. The class name and categories are passed as command line arguments, after
+ * the options:
+ * <dl>
+ * <dt><code>-threads &lt;n&gt;</code></dt>
+ * <dd>Checks up to <code>n</code> properties at a time, by default one. The results are printed in
+ * the order of the properties either way.</dd>
+ * <dt><code>-timing &lt;file&gt;</code></dt>
+ * <dd>Writes the result and duration of each check to the given file, one JSON object per line with
+ * the fields <code>class</code>, <code>property</code>, <code>result</code>, <code>succeeded</code>,
+ * <code>discarded</code> and <code>nanos</code>.</dd>
+ * </dl>
  *
  * @version %build.number%
  */
@@ -27,26 +49,110 @@ public final class Main {
    * Check the given class and categories. At least one command line argument (the class name) must be
    * passed or an error message results.
    *
-   * @param args The class name as the first argument, then zero or more categories.
+   * @param args The options, then the class name, then zero or more categories.
    */
   public static void main(final String... args) {
-    if(args.length == 0) {
-      System.err.println("<class> [category]*");
+    int threads = 1;
+    String timing = null;
+    int i = 0;
+    try {
+      for(; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+        if(args[i].equals("-threads"))
+          threads = Integer.parseInt(args[i + 1]);
+        else if(args[i].equals("-timing"))
+          timing = args[i + 1];
+        else
+          throw new IllegalArgumentException(args[i]);
+      }
+    } catch(IllegalArgumentException e) {
+      i = args.length;
+    }
+    if(i >= args.length || threads < 1) {
+      System.err.println("[-threads <n>] [-timing <file>] <class> [category]*");
       //noinspection CallToSystemExit
       exit(441);
     } else {
+      final String[] categories = new String[args.length - i - 1];
+      System.arraycopy(args, i + 1, categories, 0, categories.length);
       try {
-        check(forName(args[0]), array(args).toList().tail()).foreachDoEffect(new Effect1<P2<String, CheckResult>>() {
-            public void f(final P2<String, CheckResult> r) {
-                summary.print(r._2());
-                out.println(" (" + r._1() + ')');
-            }
-        });
+        run(forName(args[i]), categories, threads, timing);
       } catch(ClassNotFoundException e) {
         System.err.println(e);
         //noinspection CallToSystemExit
         exit(144);
+      } catch(IOException e) {
+        System.err.println(e);
+        //noinspection CallToSystemExit
+        exit(145);
+      }
+    }
+  }
+
+  private static final class Timed {
+    final String name;
+    final CheckResult result;
+    final long nanos;
+
+    Timed(final String name, final CheckResult result, final long nanos) {
+      this.name = name;
+      this.result = result;
+      this.nanos = nanos;
+    }
+  }
+
+  private static <T> void run(final java.lang.Class<T> c, final String[] categories, final int threads,
+                              final String timing) throws IOException {
+    final List<P3<Property, String, Option<CheckParams>>> ps = allProperties(c, categories);
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    final PrintWriter w = timing == null ? null : new PrintWriter(new FileWriter(timing));
+    try {
+      final java.util.List<Future<Timed>> fs = new ArrayList<Future<Timed>>();
+      for(final P3<Property, String, Option<CheckParams>> p : ps) {
+        fs.add(pool.submit(new Callable<Timed>() {
+          public Timed call() {
+            final long start = System.nanoTime();
+            final CheckResult r = check(p._1(), p._3(), Rand.standard);
+            return new Timed(p._2(), r, System.nanoTime() - start);
+          }
+        }));
+      }
+      for(final Future<Timed> f : fs) {
+        final Timed t = f.get();
+        summary.print(t.result);
+        out.println(" (" + t.name + ')');
+        if(w != null)
+          w.println(json(c.getName(), t));
       }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch(ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdown();
+      if(w != null)
+        w.close();
+    }
+  }
+
+  private static String json(final String clas, final Timed t) {
+    final CheckResult r = t.result;
+    final String result = r.isPassed() ? "passed" : r.isProven() ? "proven" : r.isFalsified() ? "falsified" :
+        r.isExhausted() ? "exhausted" : r.isPropException() ? "propException" : "genException";
+    return "{\"class\":" + quote(clas) + ",\"property\":" + quote(t.name) + ",\"result\":\"" + result +
+        "\",\"succeeded\":" + r.succeeded() + ",\"discarded\":" + r.discarded() + ",\"nanos\":" + t.nanos + '}';
+  }
+
+  private static String quote(final String s) {
+    final StringBuilder b = new StringBuilder("\"");
+    for(int k = 0; k < s.length(); k++) {
+      final char c = s.charAt(k);
+      if(c == '"' || c == '\\')
+        b.append('\\').append(c);
+      else if(c < 0x20)
+        b.append(String.format("\\u%04x", (int) c));
+      else
+        b.append(c);
     }
+    return b.append('"').toString();
   }
 }
@@ -0,0 +1,63 @@
+package fj;
+
+import fj.data.List;
+import fj.data.Stream;
+import fj.test.Rand;
+import org.junit.Test;
+
+import static fj.data.Option.some;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+public class SplitMixRngTest {
+
+  private static List<Long> longs(final Rng r, final int n) {
+    return Stream.unfold((Rng x) -> some(x.nextLong().swap()), r).take(n).toList();
+  }
+
+  // The expected values are those of java.util.SplittableRandom with the same seeds.
+  @Test
+  public void agreesWithSplittableRandom() {
+    final SplitMixRng r = new SplitMixRng(42);
+    assertThat(r.longValue(), is(-4767286540954276203L));
+    assertThat(r.next().intValue(), is(909395113));
+    assertThat(r.next().next().doubleValue(), is(0.27860113025513866));
+    final SplitMixRng s = r.next().next().next();
+    assertThat(s.longValue(), is(6349198060258255764L));
+    assertThat(s.next().intValue(), is(-1540993733));
+    assertThat(s.next().next().doubleValue(), is(0.8682280765465323));
+  }
+
+  @Test
+  public void splitsAsSplittableRandomDoes() {
+    final P2<Rng, Rng> p = new SplitMixRng(7).split();
+    assertThat(longs(p._1(), 3), is(List.list(-1830642326893942270L, -7693578145408079413L, 8346079845500723674L)));
+    assertThat(longs(p._2(), 3), is(List.list(-330404800768858770L, 9134214102903477201L, -7200321385075769813L)));
+    assertThat(longs(p._1(), 10), is(not(longs(p._2(), 10))));
+  }
+
+  @Test
+  public void splitsOtherGenerators() {
+    final P2<Rng, Rng> p = new LcgRng(1).split();
+    assertThat(longs(p._2(), 10), is(longs(new LcgRng(1).split()._2(), 10)));
+    assertThat(longs(p._1(), 10), is(not(longs(p._2(), 10))));
+  }
+
+  @Test
+  public void splittableRandIsReproducible() {
+    final Rand a = Rand.splittable(3);
+    final Rand b = Rand.splittable(3);
+    final Rand as = a.split();
+    final Rand bs = b.split();
+    for (int k = 0; k < 100; k++) {
+      assertThat(a.choose(Integer.MIN_VALUE, Integer.MAX_VALUE), is(b.choose(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+      assertThat(as.choose(-1.0, 1.0), is(bs.choose(-1.0, 1.0)));
+      final int x = a.choose(10, -10);
+      assertThat(x >= -10 && x <= 10, is(true));
+      assertThat(x, is(b.choose(10, -10)));
+    }
+    assertThat(a.choose(5L, 0, 1000), is(Rand.splittable(9).choose(5L, 0, 1000)));
+    assertThat(Rand.standard.split() == Rand.standard, is(true));
+  }
+}
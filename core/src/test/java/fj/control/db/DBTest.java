@@ -0,0 +1,114 @@
+package fj.control.db;
+
+import fj.data.Iteratee.IterV;
+import fj.data.List;
+import fj.data.Option;
+import fj.data.Stream;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static fj.control.db.PooledConnector.Settings.settings;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DBTest {
+
+  private static DbState writer(final String name) {
+    return DbState.writer(DbState.driverManager("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1"));
+  }
+
+  private static final DB<Integer> createTable = DB.update("CREATE TABLE IF NOT EXISTS t(x INT)", ps -> {});
+
+  @Test
+  public void reusesStatementsWithinARun() throws SQLException {
+    final DB<PreparedStatement> p = DB.prepare("SELECT 1");
+    final Boolean same = writer("reuse").run(p.bind(a -> p.map(b -> a == b)));
+    assertThat(same, is(true));
+  }
+
+  @Test
+  public void reusesStatementsAcrossPooledRuns() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(DbState.driverManager("jdbc:h2:mem:pooled;DB_CLOSE_DELAY=-1"), settings(1, 1));
+    final DB<PreparedStatement> p = DB.prepare("SELECT 1");
+    final PreparedStatement a = DbState.reader(pool).run(p);
+    final PreparedStatement b = DbState.reader(pool).run(p);
+    assertThat(a, sameInstance(b));
+    assertThat(a.isClosed(), is(false));
+  }
+
+  @Test
+  public void closesStatementsOfUnpooledConnections() throws SQLException {
+    final PreparedStatement ps = writer("unpooled").run(DB.prepare("SELECT 1"));
+    assertThat(ps.isClosed(), is(true));
+  }
+
+  @Test
+  public void keepsNoStatementsOfConnectionsRunDirectly() throws SQLException {
+    final DB<PreparedStatement> p = DB.prepare("SELECT 1");
+    try (final Connection c = DbState.driverManager("jdbc:h2:mem:direct").connect()) {
+      final Boolean same = p.bind(a -> p.map(b -> a == b)).run(c);
+      assertThat(same, is(false));
+    }
+  }
+
+  @Test
+  public void batchesWrites() throws SQLException {
+    final DbState db = writer("batch");
+    final List<Integer> rows = List.range(0, 2500);
+    final Integer inserted = db.run(createTable.bind(u ->
+        DB.batch("INSERT INTO t VALUES (?)", rows, (ps, i) -> ps.setInt(1, i), 1000)));
+    assertThat(inserted, is(2500));
+    final List<Integer> read = db.run(DB.query("SELECT x FROM t WHERE x < ? ORDER BY x", ps -> ps.setInt(1, 5), rs -> rs.getInt(1)));
+    assertThat(read, is(List.range(0, 5)));
+  }
+
+  @Test
+  public void failedBatchRollsBack() throws SQLException {
+    final DbState db = writer("failed");
+    db.run(createTable);
+    try {
+      db.run(DB.batch("INSERT INTO t VALUES (?)", List.list(1, 2, 3), (ps, i) -> ps.setInt(1, i), 2)
+          .bind(n -> DB.update("INSERT INTO missing VALUES (1)", ps -> {})));
+      fail("Expected the missing table to fail the transaction");
+    } catch (final SQLException e) {
+      // expected
+    }
+    final List<Integer> read = db.run(DB.query("SELECT x FROM t", ps -> {}, rs -> rs.getInt(1)));
+    assertThat(read, is(List.<Integer>nil()));
+  }
+
+  private static DbState numbers(final String name, final int n) throws SQLException {
+    final DbState db = writer(name);
+    db.run(createTable.bind(u -> DB.batch("INSERT INTO t VALUES (?)", List.range(0, n), (ps, i) -> ps.setInt(1, i))));
+    return db;
+  }
+
+  @Test
+  public void enumeratesRows() throws SQLException {
+    final DbState db = numbers("enumerate", 10000);
+    final IterV<Integer, Integer> counted = db.run(DB.enumerate("SELECT x FROM t", ps -> {}, rs -> rs.getInt(1), 100, IterV.<Integer>length()));
+    assertThat(counted.run(), is(10000));
+    final IterV<Integer, Option<Integer>> first = db.run(DB.enumerate("SELECT x FROM t WHERE x >= ? ORDER BY x", ps -> ps.setInt(1, 42), rs -> rs.getInt(1), 10, IterV.<Integer>head()));
+    assertThat(first.run(), is(Option.some(42)));
+  }
+
+  @Test
+  public void streamsRows() throws SQLException {
+    final DbState db = numbers("stream", 10000);
+    final Long sum = db.run(DB.withStream("SELECT x FROM t", ps -> {}, rs -> rs.getInt(1), 100,
+        xs -> xs.foldLeft((acc, x) -> acc + x, 0L)));
+    assertThat(sum, is(49995000L));
+  }
+
+  @Test(expected = Error.class)
+  public void streamIsClosedAfterwards() throws SQLException {
+    final DbState db = numbers("closed", 10);
+    final Stream<Integer> escaped = db.run(DB.withStream("SELECT x FROM t", ps -> {}, rs -> rs.getInt(1), 1, xs -> xs));
+    escaped.length();
+  }
+}
@@ -0,0 +1,137 @@
+package fj.control.db;
+
+import fj.Unit;
+import fj.control.parallel.ParModule;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.data.Validation;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.control.db.PooledConnector.Settings.settings;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DbStateTest {
+
+  private static final Connector h2 = DbState.driverManager("jdbc:h2:mem:state;DB_CLOSE_DELAY=-1");
+
+  // An action that fails with the given SQLState until it has been run the given number of times.
+  private static DB<Integer> failing(final AtomicInteger runs, final int failures, final String state) {
+    return new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        final int n = runs.incrementAndGet();
+        if (n <= failures) {
+          throw new SQLException("Simulated failure", state);
+        }
+        return n;
+      }
+    };
+  }
+
+  @Test
+  public void retriesTransientFailures() throws SQLException {
+    final AtomicInteger runs = new AtomicInteger();
+    final DbState db = DbState.writer(h2).retry(5, 1, 10, TimeUnit.MILLISECONDS);
+    assertThat(db.run(failing(runs, 2, "40001")), is(3));
+  }
+
+  @Test
+  public void capsTheBackoff() {
+    final DbState db = DbState.writer(h2).retry(100, 10, 60, TimeUnit.SECONDS);
+    assertThat(db.ceiling(1), is(TimeUnit.SECONDS.toNanos(10)));
+    assertThat(db.ceiling(3), is(TimeUnit.SECONDS.toNanos(40)));
+    for (int attempt = 4; attempt < 100; attempt++) {
+      assertThat(db.ceiling(attempt), is(TimeUnit.SECONDS.toNanos(60)));
+    }
+  }
+
+  @Test
+  public void doesNotRetryOtherFailures() {
+    final AtomicInteger runs = new AtomicInteger();
+    final DbState db = DbState.writer(h2).retry(5, 1, 10, TimeUnit.MILLISECONDS);
+    try {
+      db.run(failing(runs, 2, "42000"));
+      fail("Expected the failure to be rethrown");
+    } catch (final SQLException e) {
+      assertThat(runs.get(), is(1));
+    }
+  }
+
+  @Test
+  public void givesUpAfterTheLastAttempt() {
+    final AtomicInteger runs = new AtomicInteger();
+    final DbState db = DbState.writer(h2).retry(3, 1, 10, TimeUnit.MILLISECONDS);
+    try {
+      db.run(failing(runs, 5, "40P01"));
+      fail("Expected the failure to be rethrown");
+    } catch (final SQLException e) {
+      assertThat(runs.get(), is(3));
+    }
+  }
+
+  @Test
+  public void runsTransactionsConcurrently() throws SQLException {
+    final ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      final ParModule m = ParModule.parModule(Strategy.<Unit>executorStrategy(pool));
+      final PooledConnector connections = PooledConnector.pool(h2, settings(0, 4));
+      final DbState db = DbState.writer(connections);
+      db.run(DB.update("CREATE TABLE IF NOT EXISTS p(x INT PRIMARY KEY)", ps -> {}));
+      final List<DB<Integer>> inserts = List.range(0, 200).map(i ->
+          DB.update("INSERT INTO p VALUES (?)", ps -> ps.setInt(1, i % 100)));
+      final List<Validation<SQLException, Integer>> results = db.runAll(m, inserts).claim();
+      assertThat(results.filter(Validation::isSuccess).length(), is(100));
+      assertThat(results.filter(Validation::isFail).length(), is(100));
+      final Validation<SQLException, List<Integer>> count =
+          DbState.reader(connections).runPar(m, DB.query("SELECT COUNT(*) FROM p", ps -> {}, rs -> rs.getInt(1))).claim();
+      assertThat(count.success(), is(List.single(100)));
+      assertThat(connections.metrics().created() <= 4, is(true));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void closesTheConnectionWhenTheTransactionCannotStart() throws SQLException {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final AtomicInteger runs = new AtomicInteger();
+    final Connector refusing = new Connector() {
+      public Connection connect() throws SQLException {
+        final Connection c = h2.connect();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, m, args) -> {
+            if (m.getName().equals("setAutoCommit")) {
+              throw new SQLException("Cannot start a transaction");
+            }
+            if (m.getName().equals("close")) {
+              closed.set(true);
+            }
+            try {
+              return m.invoke(c, args);
+            } catch (final InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+      }
+    };
+    try {
+      DbState.writer(refusing).run(failing(runs, 0, null));
+      fail("Expected the failure to be rethrown");
+    } catch (final SQLException e) {
+      assertThat(e.getMessage(), is("Cannot start a transaction"));
+    }
+    assertThat(runs.get(), is(0));
+    assertThat(closed.get(), is(true));
+  }
+}
@@ -0,0 +1,196 @@
+package fj.control.db;
+
+import fj.data.List;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static fj.control.db.PooledConnector.Settings.settings;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PooledConnectorTest {
+
+  private final java.util.List<Connection> opened = new ArrayList<Connection>();
+
+  private final Connector h2 = new Connector() {
+    public Connection connect() throws SQLException {
+      final Connection c = DbState.driverManager("jdbc:h2:mem:pool;DB_CLOSE_DELAY=-1").connect();
+      opened.add(c);
+      return c;
+    }
+  };
+
+  @Test
+  public void reusesReturnedConnections() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 2));
+    for (int i = 0; i < 10; i++) {
+      final Connection c = pool.connect();
+      assertThat(c.isValid(0), is(true));
+      c.close();
+      c.close();
+    }
+    assertThat(pool.metrics().created(), is(1L));
+    assertThat(pool.metrics().borrowed(), is(10L));
+    assertThat(pool.metrics().idle(), is(1));
+    assertThat(pool.metrics().active(), is(0));
+  }
+
+  @Test
+  public void timesOutWhenExhausted() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 1).borrowTimeout(10, TimeUnit.MILLISECONDS));
+    final Connection c = pool.connect();
+    try {
+      pool.connect();
+      fail("Expected a timeout");
+    } catch (final SQLException e) {
+      assertThat(pool.metrics().timeouts(), is(1L));
+    }
+    c.close();
+    pool.connect().close();
+    assertThat(pool.metrics().created(), is(1L));
+  }
+
+  @Test
+  public void discardsInvalidConnections() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 1).validateOnBorrow(1));
+    pool.connect().close();
+    opened.get(0).close();
+    pool.connect().close();
+    assertThat(pool.metrics().invalid(), is(1L));
+    assertThat(pool.metrics().created(), is(2L));
+  }
+
+  @Test
+  public void evictsIdleConnectionsAboveMinimum() throws SQLException, InterruptedException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(1, 3).idleTimeout(1, TimeUnit.MILLISECONDS));
+    final Connection a = pool.connect();
+    final Connection b = pool.connect();
+    final Connection c = pool.connect();
+    a.close();
+    b.close();
+    c.close();
+    Thread.sleep(10);
+    pool.evict();
+    assertThat(pool.metrics().idle(), is(1));
+    assertThat(pool.metrics().evicted(), is(2L));
+  }
+
+  @Test
+  public void reportsLeaks() throws SQLException, InterruptedException {
+    final java.util.List<Throwable> leaks = new ArrayList<Throwable>();
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 2).leakDetection(1, TimeUnit.MILLISECONDS, leaks::add));
+    pool.connect();
+    Thread.sleep(10);
+    pool.connect().close();
+    assertThat(leaks.size(), is(1));
+    assertThat(pool.metrics().leaks(), is(1L));
+  }
+
+  @Test
+  public void runsDatabaseActions() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(1, 2));
+    pool.fill();
+    DbState.writer(pool).run(new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        return c.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS t(x INT)");
+      }
+    });
+    final List<Integer> counts = List.range(0, 5).map(i -> {
+      try {
+        return DbState.reader(pool).run(new DB<Integer>() {
+          public Integer run(final Connection c) throws SQLException {
+            return c.createStatement().executeUpdate("INSERT INTO t VALUES (1)");
+          }
+        });
+      } catch (final SQLException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    assertThat(counts, is(List.replicate(5, 1)));
+    assertThat(pool.metrics().created(), is(1L));
+  }
+
+  @Test
+  public void resetsReturnedConnections() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 1));
+    final Connection c = pool.connect();
+    c.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS reset(x INT)");
+    c.setAutoCommit(false);
+    c.setReadOnly(true);
+    c.createStatement().executeUpdate("INSERT INTO reset VALUES (1)");
+    c.close();
+    final Connection d = pool.connect();
+    assertThat(d.getAutoCommit(), is(true));
+    assertThat(d.isReadOnly(), is(false));
+    final ResultSet rs = d.createStatement().executeQuery("SELECT COUNT(*) FROM reset");
+    rs.next();
+    assertThat(rs.getInt(1), is(0));
+    d.close();
+  }
+
+  @Test
+  public void rollsBackTransactionsFailingWithUncheckedExceptions() throws SQLException {
+    final PooledConnector pool = PooledConnector.pool(h2, settings(0, 1));
+    final DbState db = DbState.writer(pool);
+    db.run(new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        return c.createStatement().executeUpdate("CREATE TABLE IF NOT EXISTS failed(x INT)");
+      }
+    });
+    try {
+      db.run(new DB<Integer>() {
+        public Integer run(final Connection c) throws SQLException {
+          c.createStatement().executeUpdate("INSERT INTO failed VALUES (1)");
+          throw new IllegalStateException("Simulated failure");
+        }
+      });
+      fail("Expected the failure to be rethrown");
+    } catch (final IllegalStateException e) {
+      // expected
+    }
+    final int rows = db.run(new DB<Integer>() {
+      public Integer run(final Connection c) throws SQLException {
+        final ResultSet rs = c.createStatement().executeQuery("SELECT COUNT(*) FROM failed");
+        rs.next();
+        return rs.getInt(1);
+      }
+    });
+    assertThat(rows, is(0));
+  }
+
+  @Test
+  public void closesConnectionsThatCannotBeLent() throws SQLException {
+    final java.util.List<String> closed = new ArrayList<String>();
+    final Connector broken = new Connector() {
+      public Connection connect() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, m, args) -> {
+            if (m.getName().equals("close")) {
+              closed.add("closed");
+              return null;
+            }
+            throw new SQLException("Broken connection");
+          });
+      }
+    };
+    final PooledConnector pool = PooledConnector.pool(broken, settings(0, 1).borrowTimeout(10, TimeUnit.MILLISECONDS));
+    for (int i = 0; i < 2; i++) {
+      try {
+        pool.connect();
+        fail("Expected the broken connection to fail");
+      } catch (final SQLException e) {
+        assertThat(e.getMessage(), is("Broken connection"));
+      }
+    }
+    assertThat(closed.size(), is(2));
+    assertThat(pool.metrics().idle(), is(0));
+    assertThat(pool.metrics().active(), is(0));
+  }
+}
@@ -0,0 +1,127 @@
+package fj.control.db;
+
+import fj.data.List;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class QueryCacheTest {
+
+  private static final DbState reader = DbState.reader(DbState.driverManager("jdbc:h2:mem:cache"));
+  private static final DbState writer = DbState.writer(DbState.driverManager("jdbc:h2:mem:cache"));
+
+  // An action that counts how often it goes to the database and results in the key.
+  private static DB<String> lookup(final AtomicInteger runs, final String key) {
+    return new DB<String>() {
+      public String run(final Connection c) {
+        runs.incrementAndGet();
+        return key;
+      }
+    };
+  }
+
+  @Test
+  public void readsThrough() throws SQLException {
+    final QueryCache cache = QueryCache.lru(10);
+    final AtomicInteger runs = new AtomicInteger();
+    for (int i = 0; i < 5; i++) {
+      assertThat(reader.run(lookup(runs, "a").cached(cache, "a", 1, TimeUnit.HOURS)), is("a"));
+    }
+    assertThat(runs.get(), is(1));
+    assertThat(cache.metrics().hits(), is(4L));
+    assertThat(cache.metrics().misses(), is(1L));
+  }
+
+  @Test
+  public void expires() throws SQLException, InterruptedException {
+    final QueryCache cache = QueryCache.lru(10);
+    final AtomicInteger runs = new AtomicInteger();
+    reader.run(lookup(runs, "a").cached(cache, "a", 1, TimeUnit.MILLISECONDS));
+    Thread.sleep(5);
+    reader.run(lookup(runs, "a").cached(cache, "a", 1, TimeUnit.MILLISECONDS));
+    assertThat(runs.get(), is(2));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsed() throws SQLException {
+    final QueryCache cache = QueryCache.lru(2);
+    final AtomicInteger runs = new AtomicInteger();
+    for (final String k : List.list("a", "b", "a", "c", "a", "b")) {
+      reader.run(lookup(runs, k).cached(cache, k, 1, TimeUnit.HOURS));
+    }
+    // b is evicted by c, and c by b
+    assertThat(runs.get(), is(4));
+    assertThat(cache.metrics().evictions(), is(2L));
+  }
+
+  @Test
+  public void evictsLeastFrequentlyUsed() throws SQLException {
+    final QueryCache cache = QueryCache.lfu(2);
+    final AtomicInteger runs = new AtomicInteger();
+    for (final String k : List.list("a", "a", "a", "b", "c", "b", "a")) {
+      reader.run(lookup(runs, k).cached(cache, k, 1, TimeUnit.HOURS));
+    }
+    // c evicts b, the least used; b evicts c; a stays
+    assertThat(runs.get(), is(4));
+    assertThat(cache.metrics().size(), is(2));
+  }
+
+  @Test
+  public void invalidatesOnCommit() throws SQLException {
+    final QueryCache cache = QueryCache.lru(10);
+    final AtomicInteger runs = new AtomicInteger();
+    final DB<String> a = lookup(runs, "a").cached(cache, "a", List.list("t"), 1, TimeUnit.HOURS);
+    final DB<String> b = lookup(runs, "b").cached(cache, "b", 1, TimeUnit.HOURS);
+    reader.run(a);
+    reader.run(b);
+    writer.run(cache.invalidateTags(List.list("t")).bind(u -> DB.<Integer>unit(0)));
+    reader.run(a);
+    reader.run(b);
+    assertThat(runs.get(), is(3));
+    writer.run(cache.invalidateKeys(List.<Object>list("b")));
+    reader.run(b);
+    assertThat(runs.get(), is(4));
+    assertThat(cache.metrics().invalidations(), is(2L));
+  }
+
+  @Test
+  public void keepsResultsWhenTheWriteRollsBack() throws SQLException {
+    final QueryCache cache = QueryCache.lru(10);
+    final AtomicInteger runs = new AtomicInteger();
+    final DB<String> a = lookup(runs, "a").cached(cache, "a", 1, TimeUnit.HOURS);
+    reader.run(a);
+    try {
+      writer.run(cache.invalidateKeys(List.<Object>list("a")).bind(u -> DB.update("INSERT INTO missing VALUES (1)", ps -> {})));
+      fail("Expected the missing table to fail the transaction");
+    } catch (final SQLException e) {
+      // expected
+    }
+    reader.run(a);
+    assertThat(runs.get(), is(1));
+  }
+
+  @Test
+  public void cachesReadsOfWritersOnlyOnCommit() throws SQLException {
+    final QueryCache cache = QueryCache.lru(10);
+    final AtomicInteger runs = new AtomicInteger();
+    final DB<String> a = lookup(runs, "a").cached(cache, "a", 1, TimeUnit.HOURS);
+    try {
+      writer.run(a.bind(x -> DB.update("INSERT INTO missing VALUES (1)", ps -> {})));
+      fail("Expected the missing table to fail the transaction");
+    } catch (final SQLException e) {
+      // expected
+    }
+    assertThat(cache.metrics().size(), is(0));
+    writer.run(a);
+    assertThat(cache.metrics().size(), is(1));
+    reader.run(a);
+    assertThat(runs.get(), is(2));
+  }
+}
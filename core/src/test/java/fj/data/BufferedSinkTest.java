@@ -0,0 +1,79 @@
+package fj.data;
+
+import fj.data.BufferedSink.FlushPolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class BufferedSinkTest {
+
+	static class CountingStream extends ByteArrayOutputStream {
+		int writes = 0;
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			writes++;
+			super.write(b, off, len);
+		}
+	}
+
+	@Test
+	public void testBatchesWrites() throws IOException {
+		CountingStream out = new CountingStream();
+		BufferedSink sink = BufferedSink.sink(out, 1024, Option.some(Charset.forName("UTF-8")), FlushPolicy.whenFull());
+		for (int i = 0; i < 1000; i++) {
+			sink.writeLine("line " + i).run();
+		}
+		sink.close().run();
+		assertEquals(8890, out.size());
+		assertEquals(9, out.writes);
+		assertEquals("line 999\n", out.toString("UTF-8").substring(8881));
+	}
+
+	@Test
+	public void testFlushBySize() throws IOException {
+		CountingStream out = new CountingStream();
+		BufferedSink sink = BufferedSink.sink(out, 1024, Option.none(), FlushPolicy.bySize(10));
+		sink.writeBytes(new byte[4]).run();
+		assertEquals(0, out.size());
+		sink.writeBytes(new byte[6]).run();
+		assertEquals(10, out.size());
+	}
+
+	@Test
+	public void testLoneSurrogate() throws IOException {
+		CountingStream out = new CountingStream();
+		BufferedSink sink = BufferedSink.sink(out, 1024, Option.some(Charset.forName("UTF-8")), FlushPolicy.whenFull());
+		sink.writeLine("a\uD83D").run();
+		sink.writeLine("\uD83D\uDE00").run();
+		sink.close().run();
+		assertEquals("a?\n\uD83D\uDE00\n", out.toString("UTF-8"));
+	}
+
+	@Test
+	public void testIteratee() throws IOException {
+		CountingStream out = new CountingStream();
+		BufferedSink sink = BufferedSink.sink(out, 1024, Option.none(), FlushPolicy.whenFull());
+		Validation<IOException, fj.Unit> v = List.list("a", "b").foldLeft((i, s) -> i.feed(Iteratee.Input.el(s)), sink.lines()).run();
+		assertEquals(true, v.isSuccess());
+		assertEquals("a\nb\n", out.toString());
+	}
+
+	@Test
+	public void testAppendFile() throws IOException {
+		File f = File.createTempFile("sink", ".txt");
+		try {
+			IOFunctions.withSink(IOFunctions.writeFile(f, Option.none(), FlushPolicy.whenFull()), s -> s.writeLines(List.list("1", "2"))).run();
+			IOFunctions.withSink(IOFunctions.appendFile(f, Option.none(), FlushPolicy.whenFull()), s -> s.writeLine("3")).run();
+			assertEquals(List.list("1", "2", "3").toString(), IOStream.fromFile(f, Option.none()).toList().run().toString());
+		} finally {
+			f.delete();
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+package fj.data;
+
+import fj.Unit;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class IOFunctionsTest {
+
+	@Test
+	public void testDeepBindIsStackSafe() throws IOException {
+		IO<Integer> io = IOFunctions.unit(0);
+		for (int i = 0; i < 1000000; i++) {
+			io = IOFunctions.bind(io, n -> IOFunctions.unit(n + 1));
+		}
+		assertEquals(1000000, io.run().intValue());
+	}
+
+	@Test
+	public void testReplicateMIsStackSafe() throws IOException {
+		int[] counter = { 0 };
+		IO<Integer> step = () -> ++counter[0];
+		List<Integer> list = IOFunctions.replicateM(step, 200000).run();
+		assertEquals(200000, list.length());
+		assertEquals(200000, counter[0]);
+	}
+
+	@Test
+	public void testTraverse() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		List<Integer> list = IOFunctions.traverse(List.range(1, 4), i -> () -> {
+			sb.append(i);
+			return i * 10;
+		}).run();
+		assertEquals("321", sb.toString());
+		assertEquals(List.list(30, 20, 10).toString(), list.toString());
+	}
+
+	@Test
+	public void testSafeIO() {
+		SafeIO<Integer> io = IOFunctions.lazySafe((Unit u) -> 1);
+		for (int i = 0; i < 100000; i++) {
+			io = IOFunctions.bindSafe(io, n -> IOFunctions.mapSafe(IOFunctions.lazySafe((Unit u) -> n), m -> m + 1));
+		}
+		assertEquals(100001, io.run().intValue());
+	}
+
+}
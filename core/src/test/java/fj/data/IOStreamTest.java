@@ -0,0 +1,68 @@
+package fj.data;
+
+import fj.Unit;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class IOStreamTest {
+
+	static int opened = 0;
+	static int closed = 0;
+
+	static IOStream<Integer> counting(int n) {
+		return IOStream.resource(() -> {
+			opened++;
+			return new int[] { 0 };
+		}, (int[] i) -> () -> i[0] < n ? Option.some(i[0]++) : Option.<Integer>none(), i -> () -> {
+			closed++;
+			return Unit.unit();
+		});
+	}
+
+	@Test
+	public void testReleasedOnEarlyTermination() throws IOException {
+		opened = closed = 0;
+		List<Integer> list = counting(1000000).take(3).append(counting(2)).toList().run();
+		assertEquals(List.list(0, 1, 2, 0, 1).toString(), list.toString());
+		assertEquals(2, opened);
+		assertEquals(2, closed);
+
+		Option<Integer> head = counting(10).enumerate(Iteratee.IterV.<Integer>head()).run().run();
+		assertEquals(Option.some(0), head);
+		assertEquals(3, closed);
+	}
+
+	@Test
+	public void testReleasedOnFailure() {
+		opened = closed = 0;
+		try {
+			counting(10).map(i -> {
+				if (i == 5) {
+					throw new IllegalStateException();
+				}
+				return i;
+			}).toList().run();
+		} catch (IllegalStateException | IOException e) {
+			// expected
+		}
+		assertEquals(1, closed);
+	}
+
+	@Test
+	public void testFileRoundTrip() throws IOException {
+		File f = File.createTempFile("iostream", ".txt");
+		try {
+			counting(10).map(i -> "line " + i).to(IOStream.toFile(f, Option.none())).run();
+			List<List<String>> chunks = IOStream.fromFile(f, Option.none()).chunkN(4).toList().run();
+			assertEquals("<<line 0,line 1,line 2,line 3>,<line 4,line 5,line 6,line 7>,<line 8,line 9>>", chunks.toString());
+			assertEquals(70, IOStream.fromInputStream(f, 16).foldLeft((n, bytes) -> n + bytes.length, 0).run().intValue());
+		} finally {
+			f.delete();
+		}
+	}
+
+}
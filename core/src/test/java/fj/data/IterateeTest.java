@@ -0,0 +1,96 @@
+package fj.data;
+
+import fj.P2;
+import fj.control.parallel.Strategy;
+import fj.data.Iteratee.Enumeratee;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IterateeTest {
+
+	static <E, A> IterV<E, A> enumerate(List<E> list, IterV<E, A> i) {
+		return list.foldLeft((acc, e) -> acc.feed(Input.el(e)), i);
+	}
+
+	@Test
+	public void testZip() {
+		List<Integer> list = List.range(1, 11);
+		P2<Integer, Option<Integer>> p = enumerate(list, IterV.<Integer>length().zip(IterV.<Integer>head())).run();
+		assertEquals(10, p._1().intValue());
+		assertEquals(Option.some(1), p._2());
+	}
+
+	@Test
+	public void testMapAndFilter() {
+		Enumeratee<Integer, String> e = Enumeratee.<Integer>filter(i -> i % 2 == 0).andThen(Enumeratee.map(i -> "x" + i));
+		List<String> result = enumerate(List.range(1, 7), e.apply(IterV.<String>list())).run().reverse();
+		assertEquals(List.list("x2", "x4", "x6").toString(), result.toString());
+	}
+
+	@Test
+	public void testTake() {
+		IterV<Integer, List<Integer>> i = enumerate(List.range(1, 100), Enumeratee.<Integer>take(3).apply(IterV.<Integer>list()));
+		assertTrue(i.isDone());
+		assertEquals(List.list(3, 2, 1).toString(), i.run().toString());
+	}
+
+	@Test
+	public void testGroup() {
+		List<List<Integer>> result = enumerate(List.range(1, 8), Enumeratee.<Integer>group(3).apply(IterV.<List<Integer>>list())).run().reverse();
+		assertEquals("<<1,2,3>,<4,5,6>,<7>>", result.toString());
+	}
+
+	@Test
+	public void testSplitOn() {
+		List<Character> chars = List.fromString("ab,c,,d");
+		List<List<Character>> result = enumerate(chars, Enumeratee.<Character>splitOn(c -> c == ',').apply(IterV.<List<Character>>list())).run().reverse();
+		assertEquals(List.list("ab", "c", "", "d").toString(), result.map(List::asString).toString());
+	}
+
+	@Test
+	public void testParMap() {
+		Enumeratee<Integer, Integer> e = Enumeratee.parMap(Strategy.<List<Integer>>simpleThreadStrategy(), 4, i -> i * i);
+		List<Integer> result = enumerate(List.range(0, 50), e.apply(IterV.<Integer>list())).run().reverse();
+		assertEquals(List.range(0, 50).map(i -> i * i).toString(), result.toString());
+	}
+
+	@Test
+	public void testLongBindChainIsStackSafe() {
+		IterV<Integer, Integer> i = IterV.<Integer>drop(0).bind(u -> IterV.<Integer>head().bind(o -> IterV.<Integer, Integer>done(o.some(), Input.<Integer>empty())));
+		IterV<Integer, Integer> sum = IterV.done(0, Input.<Integer>empty());
+		for (int n = 0; n < 100000; n++) {
+			sum = sum.bind(acc -> IterV.<Integer>head().bind(o -> IterV.<Integer, Integer>done(acc + o.some(), Input.<Integer>empty())));
+		}
+		IterV<Integer, Integer> r = sum;
+		for (int n = 0; n < 100000; n++) {
+			r = r.feed(Input.el(1));
+		}
+		assertEquals(100000, r.run().intValue());
+		assertEquals(7, i.feed(Input.el(7)).run().intValue());
+	}
+
+	@Test
+	public void testLongInputIsStackSafe() {
+		IterV<Integer, Integer> i = IterV.<Integer>drop(3).bind(u -> IterV.<Integer>length());
+		for (int n = 0; n < 1000000; n++) {
+			i = i.feed(Input.el(n));
+		}
+		assertEquals(999997, i.run().intValue());
+	}
+
+	@Test
+	public void testChunks() {
+		IterV<Integer, Long> sum = IterV.foldLeft((Long acc, Integer e) -> acc + e, 0L);
+		Array<Integer> chunk = Array.range(0, 1000);
+		for (int n = 0; n < 10; n++) {
+			sum = sum.feed(chunk);
+		}
+		assertEquals(4995000L, sum.run().longValue());
+		assertEquals(Option.some(0), IterV.<Integer>head().feed(chunk).run());
+	}
+
+}
@@ -0,0 +1,77 @@
+package fj.data.test;
+
+import fj.P;
+import fj.control.parallel.Strategy;
+import fj.test.CheckResult;
+import fj.test.Property;
+import fj.test.Rand;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Property.implies;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestCheckParallel {
+
+  private static final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  private static final Strategy<CheckResult> s = Strategy.executorStrategy(pool);
+
+  @AfterClass
+  public static void shutdown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void splitsTrialsBetweenWorkers() {
+    final AtomicInteger trials = new AtomicInteger();
+    final Property p = property(arbInteger, arbInteger, (a, b) -> {
+      trials.incrementAndGet();
+      return prop(a + b == b + a);
+    });
+    final CheckResult r = p.checkParallel(s, 4, Rand.standard, 10001, 500, 0, 100);
+    assertTrue(r.isPassed());
+    assertThat(r.succeeded(), is(10001));
+    assertThat(trials.get(), is(10001));
+  }
+
+  @Test
+  public void stopsOnTheFirstFalsification() {
+    final AtomicInteger trials = new AtomicInteger();
+    final Property p = property(arbInteger, a -> {
+      trials.incrementAndGet();
+      return prop(a < 50);
+    });
+    final CheckResult r = p.checkParallel(s, 4, Rand.standard, 100000, 500, 0, 100);
+    assertTrue(r.isFalsified());
+    assertThat((Integer) r.args().some().head().value() >= 50, is(true));
+    assertThat(trials.get() < 100000, is(true));
+    assertThat(r.succeeded() + 1 <= trials.get(), is(true));
+  }
+
+  @Test
+  public void mergesDiscards() {
+    final Property p = property(arbInteger, a -> implies(a % 2 == 0, P.lazy(u -> prop(true))));
+    final CheckResult r = p.checkParallel(s, 3, Rand.standard, 10000, 20, 10, 100);
+    assertTrue(r.isExhausted());
+    assertThat(r.discarded() >= 7, is(true));
+  }
+
+  @Test
+  public void sharesTheDiscardBudget() {
+    final AtomicInteger trials = new AtomicInteger();
+    final Property p = property(arbInteger, a -> implies(trials.getAndIncrement() > 0, P.lazy(u -> prop(true))));
+    final CheckResult r = p.checkParallel(s, 4, Rand.standard, 1000, 2, 0, 100);
+    assertTrue(r.isPassed());
+    assertThat(r.discarded(), is(1));
+  }
+}
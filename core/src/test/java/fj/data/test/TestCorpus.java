@@ -0,0 +1,85 @@
+package fj.data.test;
+
+import fj.P2;
+import fj.test.CheckResult;
+import fj.test.Corpus;
+import fj.test.Property;
+import fj.test.Rand;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestCorpus {
+
+  private static Property below(final int n, final AtomicInteger trials) {
+    return property(arbInteger, a -> {
+      trials.incrementAndGet();
+      return prop(a < n);
+    });
+  }
+
+  @Test
+  public void recordsAndReplaysFailures() throws IOException {
+    final File f = File.createTempFile("corpus", ".txt");
+    f.delete();
+    try {
+      final AtomicInteger trials = new AtomicInteger();
+      final CheckResult r = below(90, trials).check(Corpus.file(f), "below", Rand.standard, 100000, 500, 0, 100);
+      assertTrue(r.isFalsified());
+      final P2<Long, Integer> seed = r.replay().some();
+
+      final Corpus c = Corpus.file(f);
+      assertThat(c.entries("below").length(), is(1));
+      assertThat(c.entries("below").head()._1(), is(seed._1()));
+      assertThat(c.entries("other").isEmpty(), is(true));
+
+      trials.set(0);
+      final CheckResult again = below(90, trials).check(c, "below", Rand.standard, 100000, 500, 0, 100);
+      assertTrue(again.isFalsified());
+      assertThat(trials.get(), is(1));
+      assertThat(again.args().some().head().value(), is(r.args().some().head().value()));
+      assertThat(again.replay().some()._1(), is(seed._1()));
+      assertThat(again.replay().some()._2(), is(seed._2()));
+    } finally {
+      f.delete();
+    }
+  }
+
+  @Test
+  public void runsRandomTrialsOnceFixed() {
+    final Corpus c = Corpus.memory();
+    final AtomicInteger trials = new AtomicInteger();
+    assertTrue(below(10, trials).check(c, "below").isFalsified());
+    trials.set(0);
+    final CheckResult r = below(Integer.MAX_VALUE, trials).check(c, "below");
+    assertTrue(r.isPassed());
+    assertThat(trials.get(), is(101));
+    assertThat(r.replay().isNone(), is(true));
+  }
+
+  @Test
+  public void replaysOneTrial() {
+    final Property p = below(10, new AtomicInteger());
+    final CheckResult r = p.check(Corpus.memory(), "below");
+    final P2<Long, Integer> seed = r.replay().some();
+    assertThat(p.replay(seed._1(), seed._2()).args().some().head().value(), is(r.args().some().head().value()));
+    assertTrue(below(Integer.MAX_VALUE, new AtomicInteger()).replay(seed._1(), seed._2()).isPassed());
+  }
+
+  @Test
+  public void ignoresDuplicates() {
+    final Corpus c = Corpus.memory();
+    assertTrue(c.add("p", 1L, 2));
+    assertThat(c.add("p", 1L, 2), is(false));
+    assertThat(c.entries("p").length(), is(1));
+  }
+}
@@ -0,0 +1,67 @@
+package fj.data.test;
+
+import fj.data.List;
+import fj.test.Arbitrary;
+import fj.test.CheckResult;
+import fj.test.Coverage;
+import fj.test.Gen;
+import fj.test.Property;
+import fj.test.Rand;
+import fj.test.Shrink;
+import org.junit.Test;
+
+import static fj.test.Arbitrary.arbList;
+import static fj.test.Property.prop;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestCoverage {
+
+  private static final Gen<Integer> digits = Gen.choose(0, 9);
+
+  // fails only on lists that start with 1, 2, 3, 4, 5, 6, each step behind a branch of its own
+  private static boolean accepts(final List<Integer> is) {
+    List<Integer> rest = is;
+    for (int k = 1; k <= 6; k++) {
+      if (rest.isEmpty() || rest.head() != k)
+        return true;
+      Coverage.probe("matched " + k);
+      rest = rest.tail();
+    }
+    return false;
+  }
+
+  @Test
+  public void reachesDeepBranches() {
+    final Property p = Property.guided(Gen.listOf(digits), Coverage.lists(digits),
+        Shrink.shrinkList(Shrink.shrinkInteger), is -> fj.P.p(prop(accepts(is))));
+    final CheckResult r = p.check(Rand.splittable(1L), 100000, 500, 0, 20);
+    assertTrue(r.isFalsified());
+    assertThat(r.succeeded() < 50000, is(true));
+    assertThat(r.args().some().head().value(), is((Object) List.list(1, 2, 3, 4, 5, 6)));
+  }
+
+  @Test
+  public void randomGenerationMissesThem() {
+    final Property p = Property.property(arbList(Arbitrary.arbitrary(digits)), is -> prop(accepts(is)));
+    assertTrue(p.check(Rand.splittable(1L), 50000, 500, 0, 20).isPassed());
+  }
+
+  @Test
+  public void labelsAreProbes() {
+    final Property p = Property.guided(Arbitrary.arbitrary(digits), Shrink.shrinkInteger,
+        i -> prop(i < 100).label(i % 2 == 0 ? "even" : "odd"));
+    assertTrue(p.check(Rand.splittable(2L), 1000, 500, 0, 20).isPassed());
+    Coverage.probe("outside of a check");
+  }
+
+  @Test
+  public void mutatesStrings() {
+    final Rand r = Rand.splittable(3L);
+    for (int k = 0; k < 100; k++) {
+      final String s = Coverage.strings(Gen.value('x')).f("abc").gen(10, r);
+      assertTrue(s.length() >= 2 && s.length() <= 4);
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package fj.data.test;
+
+import fj.data.List;
+import fj.test.Gen;
+import fj.test.Rand;
+import org.junit.Test;
+
+import static fj.test.Gen.choose;
+import static fj.test.Gen.chooseChar;
+import static fj.test.Gen.chooseLong;
+import static fj.test.Gen.listOf;
+import static fj.test.Gen.sequence;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestGen {
+
+  @Test
+  public void bindsInOrder() {
+    final Gen<String> g = choose(0, 9).bind(choose(10, 19), choose(20, 29), a -> b -> c -> a + "," + b + "," + c);
+    final Rand r = Rand.splittable(7L);
+    final Rand s = Rand.splittable(7L);
+    for (int k = 0; k < 100; k++) {
+      final int a = s.choose(0, 9);
+      final int b = s.choose(10, 19);
+      final int c = s.choose(20, 29);
+      assertThat(g.gen(100, r), is(a + "," + b + "," + c));
+    }
+  }
+
+  @Test
+  public void sequencesInOrder() {
+    final List<Integer> is = sequence(List.list(choose(0, 9), choose(10, 19), choose(20, 29))).gen(0, Rand.standard);
+    assertThat(is.length(), is(3));
+    assertTrue(is.index(0) < 10 && is.index(1) >= 10 && is.index(1) < 20 && is.index(2) >= 20);
+    final Gen<Integer> n = choose(0, 1000).map(i -> i * 2).bind(i -> Gen.value(i + 1));
+    assertTrue(n.gen(0, Rand.standard) % 2 == 1);
+  }
+
+  @Test
+  public void listsUpToTheSize() {
+    final Rand r = Rand.splittable(1L);
+    for (int k = 0; k < 100; k++) {
+      final List<Integer> is = listOf(choose(0, 3)).gen(k, r);
+      assertTrue(is.length() <= k);
+      assertTrue(is.forall(i -> i >= 0 && i <= 3));
+      assertTrue(Gen.listOf1(choose(0, 3)).gen(k, r).length() >= 1);
+    }
+  }
+
+  @Test
+  public void choosesPrimitivesInRange() {
+    final Rand r = Rand.standard;
+    boolean negative = false;
+    boolean positive = false;
+    for (int k = 0; k < 1000; k++) {
+      final long l = chooseLong(-5L, 5L).gen(0, r);
+      assertTrue(l >= -5L && l <= 5L);
+      final long w = chooseLong(Long.MIN_VALUE + 10, Long.MAX_VALUE - 10).gen(0, r);
+      assertTrue(w >= Long.MIN_VALUE + 10 && w <= Long.MAX_VALUE - 10);
+      final long f = chooseLong(Long.MIN_VALUE, Long.MAX_VALUE).gen(0, r);
+      negative |= f < 0;
+      positive |= f > 0;
+      final long big = chooseLong(1L << 40, 3L << 40).gen(0, r);
+      assertTrue(big >= 1L << 40 && big <= 3L << 40);
+      final char c = chooseChar('z', 'a').gen(0, r);
+      assertTrue(c >= 'a' && c <= 'z');
+    }
+    assertTrue(negative && positive);
+  }
+}
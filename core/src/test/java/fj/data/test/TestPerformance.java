@@ -0,0 +1,74 @@
+package fj.data.test;
+
+import fj.P;
+import fj.data.List;
+import fj.test.CheckResult;
+import fj.test.Gen;
+import fj.test.Property;
+import fj.test.Rand;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static fj.test.Property.scaling;
+import static fj.test.Property.withinAllocation;
+import static fj.test.Property.withinTime;
+import static org.junit.Assert.assertTrue;
+
+public class TestPerformance {
+
+  private static final Gen<List<Integer>> ranges = Gen.sized(n -> Gen.value(List.range(0, n)));
+
+  @Test
+  public void boundsTime() {
+    assertTrue(property(arbInteger, i -> withinTime(1, TimeUnit.SECONDS, P.lazy(u -> prop(i + 1 > i || i == Integer.MAX_VALUE))))
+        .check(Rand.standard, 100, 500, 0, 100).isPassed());
+    final CheckResult r = property(arbInteger, i -> withinTime(1, TimeUnit.MILLISECONDS, P.lazy(u -> {
+      sleep(20);
+      return prop(true);
+    }))).check(Rand.standard, 10, 500, 0, 100);
+    assertTrue(r.isFalsified());
+    assertTrue(r.args().some().last().value().toString().endsWith("over 1000000 ns"));
+  }
+
+  @Test
+  public void boundsAllocation() {
+    assertTrue(property(arbInteger, i -> withinAllocation(1 << 16, P.lazy(u -> prop(i * 2 == i + i))))
+        .check(Rand.standard, 100, 500, 0, 100).isPassed());
+    final CheckResult r = property(arbInteger, i -> withinAllocation(1 << 16, P.lazy(u -> prop(new byte[1 << 20].length > 0))))
+        .check(Rand.standard, 10, 500, 0, 100);
+    assertTrue(r.isFalsified());
+    assertTrue(r.args().some().last().value().toString().endsWith("over 65536 bytes"));
+  }
+
+  // The bounds are far from the expected exponents, so that timing noise can't fail the checks.
+  @Test
+  public void fitsLinearGrowth() {
+    final Property p = scaling(ranges, is -> is.foldLeft((a, b) -> a + b, 0), 1 << 13, 1 << 17, 1.8);
+    final CheckResult r = p.check();
+    assertTrue(CheckResult.summary.showS(r), r.isProven());
+  }
+
+  @Test
+  public void failsOnQuadraticGrowth() {
+    final Property p = scaling(ranges, is -> {
+      int sum = 0;
+      for (int k = 0; k < is.length(); k++)
+        sum += is.index(k);
+      return sum;
+    }, 1 << 8, 1 << 12, 1.4);
+    final CheckResult r = p.check();
+    assertTrue(CheckResult.summary.showS(r), r.isFalsified());
+  }
+
+  private static void sleep(final long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package fj.data.test;
+
+import fj.P2;
+import fj.data.List;
+import fj.test.CheckResult;
+import fj.test.Property;
+import fj.test.reflect.Category;
+import fj.test.reflect.Check;
+import fj.test.reflect.CheckParams;
+import fj.test.reflect.Main;
+import fj.test.reflect.Name;
+import fj.test.reflect.NoCheck;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class TestReflectCheck {
+
+  static final AtomicInteger instances = new AtomicInteger();
+
+  @Category("fast")
+  public static class Props {
+    public Props() {
+      instances.incrementAndGet();
+    }
+
+    static Property commutes = property(arbInteger, arbInteger, (a, b) -> prop(a + b == b + a));
+
+    @Name("associates")
+    @Category("slow")
+    @CheckParams(minSuccessful = 7)
+    Property associative() {
+      return property(arbInteger, arbInteger, arbInteger, (a, b, c) -> prop((a + b) + c == a + (b + c)));
+    }
+
+    @NoCheck
+    static Property skipped = prop(false);
+
+    Property withArgument(final int x) {
+      return prop(false);
+    }
+  }
+
+  private static List<String> names(final List<P2<String, CheckResult>> rs) {
+    return rs.map(P2::_1);
+  }
+
+  @Test
+  public void findsPropertiesOnce() {
+    final List<P2<String, CheckResult>> all = Check.check(Props.class);
+    assertThat(names(all), is(List.list("commutes", "associates")));
+    assertThat(all.forall(r -> r._2().isPassed()), is(true));
+    assertThat(all.index(1)._2().succeeded(), is(7));
+    assertThat(names(Check.check(Props.class, "slow")), is(List.list("associates")));
+    assertThat(names(Check.check(Props.class, "fast")), is(List.list("commutes", "associates")));
+    assertThat(names(Check.check(Props.class, "other")), is(List.<String>nil()));
+    final int before = instances.get();
+    Check.check(Props.class, "slow");
+    assertThat(instances.get(), is(before + 1));
+  }
+
+  @Test
+  public void writesTimings() throws IOException {
+    final File f = File.createTempFile("timing", ".jsonl");
+    try {
+      Main.main("-threads", "2", "-timing", f.getPath(), Props.class.getName());
+      final java.util.List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+      assertThat(lines.size(), is(2));
+      assertThat(lines.get(0).startsWith("{\"class\":\"" + Props.class.getName() + "\",\"property\":\"commutes\",\"result\":\"passed\",\"succeeded\":100,\"discarded\":0,\"nanos\":"), is(true));
+      assertThat(lines.get(1).contains("\"property\":\"associates\""), is(true));
+    } finally {
+      f.delete();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package fj.data.test;
+
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.test.CheckResult;
+import fj.test.Property;
+import fj.test.Shrinker;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Arbitrary.arbList;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static fj.test.Shrink.shrinkInteger;
+import static fj.test.Shrinker.shrinker;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestShrinker {
+
+  private static final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  @AfterClass
+  public static void shutdown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void bisectsNumbers() {
+    final Shrinker.Outcome<Long> o = shrinker().shrinkLong(1L << 40, x -> x >= 12345);
+    assertThat(o.value(), is(12345L));
+    assertThat(o.complete(), is(true));
+    assertThat(o.steps() < 60, is(true));
+    assertThat(shrinker().shrinkLong(-1000, x -> x <= -17).value(), is(-17L));
+    assertThat(shrinker().shrinkLong(-1000, x -> Math.abs(x) >= 17).value(), is(17L));
+    assertThat(shrinker().shrinkInteger(Integer.MIN_VALUE, x -> x < -5).value(), is(-6));
+    final Shrinker.Outcome<Long> p = shrinker().parallel(Strategy.executorStrategy(pool), 7).shrinkLong(1L << 40, x -> x >= 12345);
+    assertThat(p.value(), is(12345L));
+  }
+
+  @Test
+  public void removesChunksOfLists() {
+    final List<Integer> as = List.range(0, 10000);
+    final Shrinker.Outcome<List<Integer>> o =
+        shrinker().shrinkList(as, shrinkInteger, xs -> xs.exists(x -> x == 7777) && xs.exists(x -> x >= 5000 && x < 6000));
+    assertThat(o.value().length(), is(2));
+    assertThat(o.value().head() >= 5000 && o.value().head() < 6000, is(true));
+    assertThat(o.value().index(1), is(7777));
+    assertThat(o.steps() < 2000, is(true));
+    final Shrinker.Outcome<List<Integer>> e = shrinker().shrinkList(as, shrinkInteger, xs -> xs.exists(x -> x > 100));
+    assertThat(e.value(), is(List.single(101)));
+    assertThat(shrinker().shrinkString("hello, world", s -> s.indexOf('w') >= 0).value(), is("w"));
+  }
+
+  @Test
+  public void stopsWithinTheBudget() {
+    final AtomicInteger runs = new AtomicInteger();
+    final Shrinker.Outcome<List<Integer>> o = shrinker().steps(10).shrinkList(List.range(0, 1000), shrinkInteger, xs -> {
+      runs.incrementAndGet();
+      return xs.exists(x -> x == 999);
+    });
+    assertThat(runs.get(), is(10));
+    assertThat(o.steps(), is(10));
+    assertThat(o.complete(), is(false));
+    assertThat(o.value().exists(x -> x == 999), is(true));
+    final Shrinker.Outcome<Long> t = shrinker().within(20, TimeUnit.MILLISECONDS).shrinkLong(Long.MAX_VALUE, x -> {
+      try {
+        Thread.sleep(5);
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return x > 10;
+    });
+    assertThat(t.complete(), is(false));
+    assertThat(t.steps() < 10, is(true));
+  }
+
+  @Test
+  public void replaysThePath() {
+    final Shrinker.Outcome<Long> o = shrinker().shrinkLong(1000, x -> x >= 100);
+    assertThat(o.path().head(), is(1000L));
+    assertThat(o.replay(x -> x >= 100).some(), is(100L));
+    assertThat(o.replay(x -> x >= 500).some() >= 500, is(true));
+    assertThat(o.replay(x -> x > 1000).isNone(), is(true));
+  }
+
+  @Test
+  public void shrinksCounterExamplesOfProperties() {
+    final Shrinker s = shrinker().steps(10000).parallel(Strategy.executorStrategy(pool), 4);
+    final Property p = property(arbList(arbInteger), s.lists(shrinkInteger), xs -> prop(xs.length() < 5));
+    final CheckResult r = p.check(1000, 100, 10, 100);
+    assertTrue(r.isFalsified());
+    assertThat(((List<?>) r.args().some().head().value()).length(), is(5));
+    assertThat(((List<?>) r.args().some().head().value()).forall(x -> x.equals(0)), is(true));
+  }
+}
@@ -0,0 +1,130 @@
+package fj.data.test;
+
+import fj.F;
+import fj.P;
+import fj.Unit;
+import fj.control.parallel.Actor;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.test.CheckResult;
+import fj.test.Gen;
+import fj.test.Rand;
+import fj.test.StateMachine;
+import fj.test.StateMachine.Command;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static fj.test.StateMachine.command;
+import static fj.test.StateMachine.stateMachine;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestStateMachine {
+
+  private static final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  private static final Strategy<Unit> s = Strategy.executorStrategy(pool);
+
+  @AfterClass
+  public static void shutdown() {
+    pool.shutdown();
+  }
+
+  // A counter whose increment reads and writes in separate steps, and whose fifth increment is lost
+  // if it is buggy.
+  static final class Counter {
+    private final boolean buggy;
+    private volatile int count;
+
+    Counter(final boolean buggy) {
+      this.buggy = buggy;
+    }
+
+    int increment() {
+      final int c = count;
+      Thread.yield();
+      count = buggy && c == 4 ? c : c + 1;
+      return count;
+    }
+  }
+
+  // A counter whose increments are run one at a time by an actor.
+  static final class ActorCounter {
+    private int count;
+    private final Actor<Runnable> actor = Actor.queueActor(s, Runnable::run);
+
+    int increment() {
+      return ask(u -> ++count);
+    }
+
+    int get() {
+      return ask(u -> count);
+    }
+
+    // Runs the given function on the actor and waits for its result.
+    private int ask(final F<Unit, Integer> f) {
+      final int[] reply = new int[1];
+      final CountDownLatch done = new CountDownLatch(1);
+      actor.act(() -> {
+        reply[0] = f.f(Unit.unit());
+        done.countDown();
+      });
+      try {
+        done.await();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      return reply[0];
+    }
+  }
+
+  private static <S> StateMachine<Integer, S> counter(final fj.F<S, Integer> increment, final fj.F<S, Integer> get,
+                                                      final fj.P1<S> system) {
+    final Command<Integer, S> inc = command("increment", m -> true, increment::f, (m, r) -> r.equals(m + 1), m -> m + 1);
+    final Command<Integer, S> read = command("get", m -> true, get::f, (m, r) -> r.equals(m), m -> m);
+    return stateMachine(0, m -> Gen.elements(inc, read), system);
+  }
+
+  @Test
+  public void shrinksSequentialFailures() {
+    final StateMachine<Integer, Counter> m =
+        counter(Counter::increment, c -> c.count, P.lazy(u -> new Counter(true)));
+    final CheckResult r = m.sequential().check(Rand.splittable(1L), 100, 500, 0, 30);
+    assertTrue(r.isFalsified());
+    assertThat(r.args().some().head().value().toString(),
+        is("<increment,increment,increment,increment,increment>"));
+  }
+
+  @Test
+  public void findsRaces() {
+    final StateMachine<Integer, Counter> m =
+        counter(Counter::increment, c -> c.count, P.lazy(u -> new Counter(false)));
+    assertTrue(m.sequential().check(Rand.splittable(2L), 100, 500, 0, 30).isPassed());
+    final CheckResult r = m.parallel(s, 2, 20).check(Rand.splittable(2L), 100, 500, 0, 20);
+    assertTrue(r.isFalsified());
+  }
+
+  @Test
+  public void actorsAreLinearizable() {
+    final StateMachine<Integer, ActorCounter> m =
+        counter(ActorCounter::increment, ActorCounter::get, P.lazy(u -> new ActorCounter()));
+    assertTrue(m.parallel(s, 2, 5).check(Rand.splittable(3L), 50, 500, 0, 20).isPassed());
+  }
+
+  @Test
+  public void shrinksKeepPreconditions() {
+    final Command<Integer, Counter> inc = command("increment", x -> true, Counter::increment, (x, r) -> true, x -> x + 1);
+    final Command<Integer, Counter> dec = command("decrement", x -> x > 0, c -> 0, (x, r) -> true, x -> x - 1);
+    final StateMachine<Integer, Counter> m = stateMachine(0, x -> Gen.elements(inc, dec), P.lazy(u -> new Counter(false)));
+    final List<Command<Integer, Counter>> cs = List.list(inc, dec, inc, dec);
+    assertTrue(m.shrinkSequential().shrink(cs).forall(ds -> ds.isEmpty() || ds.head() == inc));
+    final List<List<Command<Integer, Counter>>> ts = List.list(List.list(dec), List.list(inc));
+    assertTrue(m.shrinkParallel().shrink(P.p(List.list(inc), ts)).forall(p -> p._1().isNotEmpty() || p._2().head().isEmpty()));
+  }
+}
@@ -0,0 +1,80 @@
+package fj.data.test;
+
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.test.CheckResult;
+import fj.test.Gen;
+import fj.test.Property;
+import fj.test.Rand;
+import org.junit.Test;
+
+import static fj.test.Arbitrary.arbInteger;
+import static fj.test.Arbitrary.arbitrary;
+import static fj.test.Gen.sized;
+import static fj.test.Arbitrary.arbList;
+import static fj.test.Property.prop;
+import static fj.test.Property.property;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TestStatistics {
+
+  private static final Property lists = property(arbList(arbInteger), (List<Integer> is) ->
+      prop(is.reverse().reverse().equals(is)).classify(is.isEmpty(), "empty").classify(is.length() > 50, "long"));
+
+  @Test
+  public void countsLabels() {
+    final CheckResult r = lists.check(Rand.standard, 1000, 500, 0, 100);
+    assertTrue(r.isPassed());
+    final int empty = r.labels().get("empty").orSome(0);
+    final int longs = r.labels().get("long").orSome(0);
+    assertTrue(empty > 0 && empty < 1000);
+    assertTrue(longs > 0 && longs < 1000);
+    assertThat(r.labels().size(), is(2));
+    final String s = CheckResult.statistics.showS(r);
+    assertTrue(s.contains("% empty"));
+    assertTrue(s.contains("(median)"));
+  }
+
+  @Test
+  public void collectsValues() {
+    final CheckResult r = property(arbInteger, i -> prop(true).collect(Math.signum((float) i))).check(Rand.standard, 300, 500, 0, 100);
+    int total = 0;
+    for (final fj.P2<String, Integer> l : r.labels())
+      total += l._2();
+    assertThat(total, is(300));
+    assertTrue(r.labels().contains("1.0") && r.labels().contains("-1.0"));
+  }
+
+  @Test
+  public void timesTrials() {
+    final CheckResult r = property(arbitrary(sized(Gen::value)), (Integer i) -> {
+      if (i >= 99)
+        sleep();
+      return prop(true);
+    }).check(Rand.standard, 200, 500, 0, 100);
+    assertTrue(r.percentile(0.5).some() <= r.percentile(0.9).some());
+    assertTrue(r.percentile(0.9).some() <= r.percentile(1).some());
+    assertThat(r.percentile(1).some(), is(r.slowest().some().nanos()));
+    assertTrue(r.slowest().some().size() >= 99);
+    assertThat(r.slowest().some().args().head().value(), is((Object) r.slowest().some().size()));
+    assertTrue(property(arbInteger, i -> prop(false)).check().percentile(0.5).isNone());
+  }
+
+  @Test
+  public void mergesStatisticsOfWorkers() {
+    final CheckResult r = lists.checkParallel(Strategy.<CheckResult>simpleThreadStrategy(), 4, Rand.standard, 1000, 500, 0, 100);
+    assertTrue(r.isPassed());
+    assertTrue(r.labels().get("empty").isSome());
+    assertThat(r.percentile(1).some(), is(r.slowest().some().nanos()));
+  }
+
+  private static void sleep() {
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package fj.parser;
+
+import fj.Digit;
+import fj.data.List;
+import fj.data.Stream;
+import fj.data.Validation;
+import fj.parser.Parser.CharInputParser;
+import org.junit.Test;
+
+import static fj.parser.Parser.CharInputParser.character;
+import static fj.parser.Parser.CharInputParser.characters;
+import static fj.parser.Parser.CharInputParser.digit;
+import static fj.parser.Parser.CharInputParser.string;
+import static fj.parser.Parser.CharInputParser.takeWhile1;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class CharInputParserTest {
+
+  private static final Parser<CharInput, String, String> word =
+      takeWhile1("eof", c -> "unexpected " + c, Character::isLetter);
+
+  private static final Parser<CharInput, List<String>, String> words =
+      word.bind(w -> CharInputParser.<String>takeWhile(Character::isWhitespace).sequence(word).repeat()
+          .map(ws -> ws.toList().cons(w)));
+
+  @Test
+  public void readsFromTheBuffer() {
+    final CharInput i = CharInput.fromCharSequence("let x = 42;");
+    final Validation<String, Result<CharInput, String>> let = string("eof", c -> "unexpected " + c, "let").parse(i);
+    assertThat(let.success().value(), is("let"));
+    assertThat(let.success().rest().offset(), is(3));
+    assertThat(characters("eof", 4).parse(let.success().rest()).success().value(), is(" x ="));
+    assertThat(string("eof", c -> "unexpected " + c, "lex").parse(i).fail(), is("unexpected t"));
+    assertThat(string("eof", c -> "unexpected " + c, "let x = 42;!").parse(i).fail(), is("eof"));
+    assertThat(characters("eof", 12).parse(i).fail(), is("eof"));
+    assertThat(characters("eof", Integer.MAX_VALUE).parse(let.success().rest()).fail(), is("eof"));
+  }
+
+  @Test
+  public void readsRangesOfArrays() {
+    final char[] cs = "xx12yy".toCharArray();
+    final CharInput i = CharInput.fromChars(cs, 2, 4);
+    final Validation<String, Result<CharInput, Digit>> d = digit("eof", c -> "unexpected " + c).parse(i);
+    assertThat(d.success().value(), is(Digit._1));
+    assertThat(d.success().rest().rest(), is("2"));
+    assertThat(character("eof").parse(d.success().rest().tail()).fail(), is("eof"));
+  }
+
+  @Test
+  public void agreesWithStreamParsers() {
+    final String s = "abc def\tghi  jkl";
+    final Parser<Stream<Character>, String, String> streamWord = Parser.CharsParser.<String>alpha("eof", c -> "unexpected " + c)
+        .repeat1().map(cs -> List.asString(cs.toList()));
+    assertThat(words.parse(CharInput.fromCharSequence(s)).success().value(), is(List.list("abc", "def", "ghi", "jkl")));
+    assertThat(word.parse(CharInput.fromCharSequence(s)).success().value(),
+        is(streamWord.parse(Stream.fromString(s)).success().value()));
+    assertThat(word.parse(CharInput.fromCharSequence(" a")).fail(), is(streamWord.parse(Stream.fromString(" a")).fail()));
+  }
+
+  @Test
+  public void scansLongInput() {
+    final char[] cs = new char[1 << 22];
+    java.util.Arrays.fill(cs, 'a');
+    final Validation<String, Result<CharInput, String>> r = word.parse(CharInput.fromChars(cs));
+    assertThat(r.success().value().length(), is(1 << 22));
+    assertThat(r.success().rest().isEmpty(), is(true));
+  }
+}
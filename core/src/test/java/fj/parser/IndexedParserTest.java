@@ -0,0 +1,79 @@
+package fj.parser;
+
+import fj.F;
+import fj.data.List;
+import fj.data.Stream;
+import fj.data.Validation;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fj.parser.Parser.IndexedParser.memo;
+import static fj.parser.Parser.IndexedParser.satisfy;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class IndexedParserTest {
+
+  private static Parser<IndexedInput<Character>, Character, String> ch(final char c) {
+    return satisfy("eof", x -> "unexpected " + x, x -> x == c);
+  }
+
+  /**
+   * t = '(' t ')' 'x' | '(' t ')' 'y' | 'z', where both alternatives parse the same nested t before
+   * they differ, counting how often 'z' is parsed.
+   */
+  @SuppressWarnings("unchecked")
+  private static Parser<IndexedInput<Character>, Integer, String> nested(final boolean memoise, final AtomicInteger zs) {
+    final Parser<IndexedInput<Character>, Integer, String>[] t = new Parser[1];
+    final Parser<IndexedInput<Character>, Integer, String> ref = Parser.parser(i -> t[0].parse(i));
+    final Parser<IndexedInput<Character>, Integer, String> inner = memoise ? memo(ref) : ref;
+    final F<Character, Parser<IndexedInput<Character>, Integer, String>> alt = end ->
+        ch('(').sequence(inner).bind(n -> ch(')').sequence(ch(end)).map(c -> n + 1));
+    t[0] = alt.f('x').or(alt.f('y')).or(ch('z').map(c -> {
+      zs.incrementAndGet();
+      return 0;
+    }));
+    return t[0];
+  }
+
+  private static IndexedInput<Character> input(final int depth) {
+    final StringBuilder s = new StringBuilder();
+    for (int i = 0; i < depth; i++) {
+      s.append('(');
+    }
+    s.append('z');
+    for (int i = 0; i < depth; i++) {
+      s.append(")y");
+    }
+    return IndexedInput.fromList(List.fromString(s.toString()));
+  }
+
+  @Test
+  public void parsesLikeTheUnmemoisedParser() {
+    final AtomicInteger zs = new AtomicInteger();
+    final Validation<String, Result<IndexedInput<Character>, Integer>> plain = nested(false, zs).parse(input(6));
+    final Validation<String, Result<IndexedInput<Character>, Integer>> memoised = nested(true, new AtomicInteger()).parse(input(6));
+    assertThat(plain.success().value(), is(6));
+    assertThat(memoised.success().value(), is(6));
+    assertThat(memoised.success().rest().isEmpty(), is(true));
+    assertThat(zs.get(), is(64));
+  }
+
+  @Test
+  public void memoisedParserIsLinear() {
+    final AtomicInteger zs = new AtomicInteger();
+    final Validation<String, Result<IndexedInput<Character>, Integer>> r = nested(true, zs).parse(input(200));
+    assertThat(r.success().value(), is(200));
+    assertThat(zs.get(), is(1));
+  }
+
+  @Test
+  public void inputPositions() {
+    final IndexedInput<Integer> i = IndexedInput.fromStream(Stream.range(0, 5));
+    assertThat(i.drop(2).head(), is(2));
+    assertThat(i.drop(2).offset(), is(2));
+    assertThat(i.drop(9).isEmpty(), is(true));
+    assertThat(i.tail().toStream().toList(), is(List.list(1, 2, 3, 4)));
+  }
+}
@@ -0,0 +1,128 @@
+package fj.parser;
+
+import fj.data.List;
+import fj.data.Stream;
+import fj.data.Validation;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static fj.parser.Parser.CharInputParser.character;
+import static fj.parser.Parser.CharInputParser.digit;
+import static fj.parser.Parser.CharInputParser.lower;
+import static fj.parser.Parser.CharInputParser.optimize;
+import static fj.parser.Parser.CharInputParser.satisfy;
+import static fj.parser.Parser.CharInputParser.string;
+import static fj.parser.Parser.CharInputParser.takeWhile1;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class OptimizerTest {
+
+  private static Parser<CharInput, Character, String> c(final char c) {
+    return character("eof", x -> "expected " + c + " at " + x, c);
+  }
+
+  private static final Parser<CharInput, Character, String> punctuation =
+      c('+').or(c('-')).or(c('*')).or(c('/')).or(c('(')).or(c(')'));
+
+  private static final Parser<CharInput, String, String> number =
+      digit("eof", x -> "not a digit: " + x).repeat1().map(ds -> List.asString(ds.map(d -> d.toChar()).toList()));
+
+  private static final Parser<CharInput, String, String> name =
+      takeWhile1("eof", x -> "not a letter: " + x, Character::isLetter);
+
+  private static final Parser<CharInput, String, String> space =
+      satisfy("eof", x -> "not a space: " + x, Character::isWhitespace).repeat()
+          .map(cs -> cs.foldLeft((b, x) -> b.append(x), new StringBuilder()).toString());
+
+  private static final Parser<CharInput, String, String> keyword =
+      string("eof", x -> "unexpected " + x, "let").or(string("eof", x -> "unexpected " + x, "in"));
+
+  private static final Parser<CharInput, String, String> token =
+      keyword.or(name).or(number).or(punctuation.map(String::valueOf)).bind(t -> space.map(s -> t));
+
+  private static final Parser<CharInput, List<String>, String> tokens =
+      space.sequence(token.repeat()).map(Stream::toList);
+
+  private static <A> void agree(final Parser<CharInput, A, String> p, final String s) {
+    final Validation<String, Result<CharInput, A>> expected = p.parse(CharInput.fromCharSequence(s));
+    final Validation<String, Result<CharInput, A>> actual = optimize(p).parse(CharInput.fromCharSequence(s));
+    assertThat(s, actual.isSuccess(), is(expected.isSuccess()));
+    if (expected.isSuccess()) {
+      assertThat(s, actual.success().value(), is(expected.success().value()));
+      assertThat(s, actual.success().rest().offset(), is(expected.success().rest().offset()));
+    } else {
+      assertThat(s, actual.fail(), is(expected.fail()));
+    }
+  }
+
+  @Test
+  public void looksUpAlternativesBetweenCharacters() {
+    for (final String s : List.list("+", "-", "/", ")", "x", "", "++")) {
+      agree(punctuation, s);
+    }
+    assertThat(optimize(punctuation).parse(CharInput.fromCharSequence("x")).fail(), is("expected ) at x"));
+    assertThat(optimize(punctuation).parse(CharInput.fromCharSequence("")).fail(), is("eof"));
+  }
+
+  @Test
+  public void scansRepetitionsOfCharacters() {
+    for (final String s : List.list("", "   ", "  x", "x")) {
+      agree(space, s);
+    }
+    for (final String s : List.list("", "123", "12a", "a1")) {
+      agree(number, s);
+    }
+    final Parser<CharInput, List<Character>, String> letters =
+        lower("eof", x -> "not lower: " + x).repeat1().map(Stream::toList);
+    for (final String s : List.list("", "abc", "abC", "Abc")) {
+      agree(letters, s);
+    }
+  }
+
+  @Test
+  public void skipsAlternativesThatCannotStartWithTheNextCharacter() {
+    for (final String s : List.list("let x = 1", "in", "inner", "42 + foo", "let (x) in y * 2", "", "  a  b  ", "?", "a ?")) {
+      agree(tokens, s);
+    }
+    assertThat(optimize(tokens).parse(CharInput.fromCharSequence("let x in x + 10")).success().value(),
+        is(List.list("let", "x", "in", "x", "+", "10")));
+  }
+
+  @Test
+  public void agreesOnRandomInput() {
+    final Random r = new Random(7);
+    final String alphabet = "ab12+-*/() \tl";
+    final Parser<CharInput, List<String>, String> p = optimize(tokens);
+    for (int n = 0; n < 500; n++) {
+      final StringBuilder s = new StringBuilder();
+      for (int k = r.nextInt(20); k > 0; k--) {
+        s.append(alphabet.charAt(r.nextInt(alphabet.length())));
+      }
+      final String in = s.toString();
+      final Validation<String, Result<CharInput, List<String>>> expected = tokens.parse(CharInput.fromCharSequence(in));
+      final Validation<String, Result<CharInput, List<String>>> actual = p.parse(CharInput.fromCharSequence(in));
+      assertThat(in, actual.success().value(), is(expected.success().value()));
+      assertThat(in, actual.success().rest().offset(), is(expected.success().rest().offset()));
+    }
+  }
+
+  @Test
+  public void scansLongRepetitions() {
+    final char[] cs = new char[1 << 20];
+    java.util.Arrays.fill(cs, ' ');
+    final Validation<String, Result<CharInput, String>> r = optimize(space).parse(CharInput.fromChars(cs));
+    assertThat(r.success().value().length(), is(1 << 20));
+    assertThat(r.success().rest().isEmpty(), is(true));
+  }
+
+  @Test
+  public void recordsNoShapesWithoutCharInputPrimitives() {
+    final Parser<Stream<Character>, Character, String> x = Parser.StreamParser.satisfy("eof", c -> "unexpected " + c, c -> c == 'x');
+    final Parser<Stream<Character>, Stream<Stream<Character>>, String> p = x.or(x).map(c -> c).sequence(x.repeat1()).repeat();
+    assertThat(p.shape == null, is(true));
+    assertThat(p.parse(Stream.fromString("xxxy")).success().value().length(), is(1));
+    assertThat(tokens.shape == null, is(false));
+  }
+}
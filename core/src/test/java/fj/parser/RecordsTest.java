@@ -0,0 +1,78 @@
+package fj.parser;
+
+import fj.P2;
+import fj.Unit;
+import fj.control.parallel.ParModule;
+import fj.control.parallel.Strategy;
+import fj.data.List;
+import fj.data.Validation;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static fj.parser.Parser.CharInputParser.character;
+import static fj.parser.Parser.CharInputParser.takeWhile1;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class RecordsTest {
+
+  private static final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+  private static final ParModule m = ParModule.parModule(Strategy.<Unit>executorStrategy(pool));
+
+  // a record of two comma-separated numbers, parsed to their sum
+  private static final Parser<CharInput, Integer, String> sum =
+      number().bind(a -> character("eof", c -> "expected , at " + c, ',').sequence(number()).map(b -> a + b));
+
+  private static Parser<CharInput, Integer, String> number() {
+    return takeWhile1("eof", c -> "not a digit: " + c, Character::isDigit).map(Integer::parseInt);
+  }
+
+  private static Validation<P2<Integer, String>, List<Integer>> parse(final int batchSize, final String s) {
+    return Records.parse(m, batchSize, sum, rest -> "unexpected " + rest, '\n', CharInput.fromCharSequence(s)).claim();
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void parsesRecordsInOrder() {
+    final StringBuilder s = new StringBuilder();
+    for (int k = 0; k < 10000; k++) {
+      s.append(k).append(',').append(k).append('\n');
+    }
+    final List<Integer> expected = List.range(0, 10000).map(k -> 2 * k);
+    assertThat(parse(Records.DEFAULT_BATCH_SIZE, s.toString()).success(), is(expected));
+    assertThat(parse(100, s.toString()).success(), is(expected));
+    assertThat(parse(1, s.toString()).success(), is(expected));
+    assertThat(parse(100, s.substring(0, s.length() - 1)).success(), is(expected));
+  }
+
+  @Test
+  public void reportsTheFirstFailureWithItsOffset() {
+    final String s = "1,2\n3,4\n5;6\n7,8\nx,9\n";
+    final P2<Integer, String> f = parse(4, s).fail();
+    assertThat(f._1(), is(8));
+    assertThat(f._2(), is("expected , at ;"));
+    final P2<Integer, String> g = parse(4, "1,2\n3,4x\n5;6\n").fail();
+    assertThat(g._1(), is(7));
+    assertThat(g._2(), is("unexpected x"));
+    assertThat(parse(4, "1,2\n\n3,4").fail()._1(), is(4));
+  }
+
+  @Test
+  public void splitsIntoBatches() {
+    final CharInput i = CharInput.fromCharSequence("ab\ncd\n\nef");
+    final List<int[]> bs = Records.batches(i, '\n', 4);
+    assertThat(bs.length(), is(2));
+    assertThat(List.list(0, 2, 3, 5), is(List.list(bs.head()[0], bs.head()[1], bs.head()[2], bs.head()[3])));
+    assertThat(List.list(6, 6, 7, 9), is(List.list(bs.index(1)[0], bs.index(1)[1], bs.index(1)[2], bs.index(1)[3])));
+    assertThat(Records.batches(CharInput.fromCharSequence(""), '\n', 4).isEmpty(), is(true));
+    assertThat(parse(4, "").success(), is(List.<Integer>nil()));
+  }
+}
@@ -0,0 +1,78 @@
+package fj.parser;
+
+import fj.data.Iteratee.Enumeratee;
+import fj.data.Iteratee.Input;
+import fj.data.Iteratee.IterV;
+import fj.data.List;
+import fj.data.Validation;
+import fj.parser.Parser.CharInputParser;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ResumableTest {
+
+  private static final Parser<CharInput, String, String> line =
+      CharInputParser.<String>takeWhile(c -> c != '\n')
+          .bind(s -> CharInputParser.character("eof", c -> "unexpected " + c, '\n').map(c -> s));
+
+  @Test
+  public void waitsForMoreInput() {
+    final Resumable<String, String> r = Resumable.resumable(line).feed("hel").feed("lo");
+    assertThat(r.isDone(), is(false));
+    final Resumable<String, String> done = r.feed("\nrest");
+    assertThat(done.result().some().success().value(), is("hello"));
+    assertThat(done.result().some().success().rest().rest(), is("rest"));
+  }
+
+  @Test
+  public void feedsAPartialParseMoreThanOnce() {
+    final Resumable<String, String> r = Resumable.resumable(line).feed("ab");
+    final Resumable<String, String> c = r.feed("c");
+    final Resumable<String, String> d = r.feed("d\n");
+    assertThat(c.feed("\n").result().some().success().value(), is("abc"));
+    assertThat(d.result().some().success().value(), is("abd"));
+    assertThat(c.feed("e").end().result().some().fail(), is("eof"));
+    assertThat(r.feed(new String(new char[100]).replace('\0', 'x')).feed("\n").result().some().success().value().length(), is(102));
+  }
+
+  @Test
+  public void waitsForMoreInputThanCanBeBuffered() {
+    final Resumable<String, String> r =
+        Resumable.resumable(CharInputParser.characters("eof", Integer.MAX_VALUE)).feed("abc");
+    assertThat(r.isDone(), is(false));
+    assertThat(r.end().result().some().fail(), is("eof"));
+  }
+
+  @Test
+  public void endsTheInput() {
+    final Resumable<String, String> r = Resumable.resumable(line).feed("partial").end();
+    assertThat(r.result().some().fail(), is("eof"));
+  }
+
+  @Test
+  public void parsesMessagesAcrossChunks() {
+    final IterV<String, List<Validation<String, String>>> messages =
+        Enumeratee.sequence(Resumable.iteratee(line)).apply(IterV.<Validation<String, String>>list());
+    IterV<String, List<Validation<String, String>>> i = messages;
+    for (final String chunk : List.list("he", "llo\nwor", "ld\nx\ny", "", "z\n")) {
+      i = i.feed(Input.el(chunk));
+    }
+    // IterV.list collects in reverse
+    final List<Validation<String, String>> r = i.feed(Input.<String>eof()).run().reverse();
+    assertThat(r.map(v -> v.success()), is(List.list("hello", "world", "x", "yz")));
+  }
+
+  @Test
+  public void reportsTheLastIncompleteMessage() {
+    IterV<String, List<Validation<String, String>>> i =
+        Enumeratee.sequence(Resumable.iteratee(line)).apply(IterV.<Validation<String, String>>list());
+    i = i.feed(Input.el("a\nb"));
+    // IterV.list collects in reverse
+    final List<Validation<String, String>> r = i.feed(Input.<String>eof()).run().reverse();
+    assertThat(r.length(), is(2));
+    assertThat(r.head().success(), is("a"));
+    assertThat(r.last().fail(), is("eof"));
+  }
+}
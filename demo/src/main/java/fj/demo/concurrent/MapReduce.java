@@ -1,26 +1,19 @@
 package fj.demo.concurrent;
 
 import fj.F;
-import fj.F1Functions;
-import fj.P1;
 import fj.Unit;
 import fj.control.parallel.ParModule;
 import static fj.control.parallel.ParModule.parModule;
 import fj.control.parallel.Promise;
 import fj.control.parallel.Strategy;
-import static fj.data.LazyString.fromStream;
+import static fj.data.LazyString.str;
+import fj.data.IOStream;
 import fj.data.List;
 import static fj.data.List.list;
 import fj.data.Option;
-import static fj.data.Option.fromNull;
-import fj.data.Stream;
-import static fj.data.Stream.fromString;
 import static fj.Monoid.longAdditionMonoid;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import static java.util.concurrent.Executors.newFixedThreadPool;
@@ -29,50 +22,26 @@ import static java.util.concurrent.Executors.newFixedThreadPool;
 public class MapReduce {
 
   // Count words of documents in parallel
-  public static Promise<Long> countWords(final List<Stream<Character>> documents,
+  public static Promise<Long> countWords(final List<IOStream<String>> documents,
                                          final ParModule m) {
-    return m.parFoldMap(documents, new F<Stream<Character>, Long>() {
-      public Long f(final Stream<Character> document) {
-        return (long) fromStream(document).words().length();
+    return m.parFoldMap(documents, new F<IOStream<String>, Long>() {
+      public Long f(final IOStream<String> document) {
+        try {
+          return document.foldLeft((n, line) -> n + str(line).words().length(), 0L).run();
+        } catch (IOException e) {
+          throw new Error(e);
+        }
       }
     }, longAdditionMonoid);
   }
 
-  // Main program does the requisite IO gymnastics
+  // Main program does the requisite IO gymnastics; each file is closed as soon as its words are counted
   public static void main(final String[] args) {
-    final List<Stream<Character>> documents = list(args).map(
-        F1Functions.andThen(new F<String, BufferedReader>() {
-            public BufferedReader f(final String fileName) {
-                try {
-                    return new BufferedReader(new FileReader(new File(fileName)));
-                } catch (FileNotFoundException e) {
-                    throw new Error(e);
-                }
-            }
-        }, new F<BufferedReader, Stream<Character>>() {
-            public Stream<Character> f(final BufferedReader reader) {
-                final Option<String> s;
-                try {
-                    s = fromNull(reader.readLine());
-                } catch (IOException e) {
-                    throw new Error(e);
-                }
-                if (s.isSome())
-                    return fromString(s.some()).append(new P1<Stream<Character>>() {
-                        public Stream<Character> _1() {
-                            return f(reader);
-                        }
-                    });
-                else {
-                    try {
-                        reader.close();
-                    } catch (IOException e) {
-                        throw new Error(e);
-                    }
-                    return Stream.nil();
-                }
-            }
-        }));
+    final List<IOStream<String>> documents = list(args).map(new F<String, IOStream<String>>() {
+      public IOStream<String> f(final String fileName) {
+        return IOStream.fromFile(new File(fileName), Option.none());
+      }
+    });
 
     final ExecutorService pool = newFixedThreadPool(16);
     final ParModule m = parModule(Strategy.<Unit>executorStrategy(pool));
@@ -81,4 +50,4 @@ public class MapReduce {
 
     pool.shutdown();
   }
-}
\ No newline at end of file
+}
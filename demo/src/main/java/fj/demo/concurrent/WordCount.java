@@ -93,6 +93,18 @@ public class WordCount {
     }
   };
 
+  /** Calculates the word counts and the number of characters of a file in a single pass over its content */
+  private static final F<String, P2<Map<String, Integer>, Integer>> fileNameToWordsAndCountsAndLengthWithZippedIteratee = new F<String, P2<Map<String, Integer>, Integer>>() {
+    @Override
+    public P2<Map<String, Integer>, Integer> f(final String fileName) {
+      try {
+        return IOFunctions.enumFileChars(new File(fileName), Option.<Charset> none(), wordCountsFromChars().zip(IterV.<Character>length())).run().run();
+      } catch (final IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  };
+
   /** An iteratee that consumes char chunks and calculates word counts */
   public static final <E> IterV<char[], Map<String, Integer>> wordCountsFromCharChunks() {
     final F<P2<StringBuilder,Map<String, Integer>>, F<Input<char[]>, IterV<char[], Map<String, Integer>>>> step =
@@ -288,6 +300,27 @@ public class WordCount {
 
     System.gc();
     
+    // get word counts and file lengths in one pass over each file \w zipped iteratees
+    start = System.currentTimeMillis();
+    final List<P2<Map<String, Integer>, Integer>> countsAndLengths = fileNames.map(fileNameToWordsAndCountsAndLengthWithZippedIteratee);
+    System.out.println("Getting word counts and lengths in 1 thread using zipped char iteratees took " + (System.currentTimeMillis() - start) + " ms.");
+    wordsAndCountsFromFiles = countsAndLengths.map(P2.<Map<String, Integer>, Integer>__1()).foldLeft(new F2<Map<String, Integer>, Map<String, Integer>, Map<String, Integer>>() {
+      @Override
+      public Map<String, Integer> f(Map<String, Integer> a, Map<String, Integer> b) {
+        return plus(a, b);
+      }
+    }, new HashMap<String, Integer>());
+    assertEquals(wordsAndCountsFromFiles, expectedWordsAndCounts);
+    final long numChars = countsAndLengths.map(P2.<Map<String, Integer>, Integer>__2()).foldLeft(new F2<Long, Integer, Long>() {
+      @Override
+      public Long f(Long a, Integer b) {
+        return a.longValue() + b.intValue();
+      }
+    }, 0l);
+    System.out.println("Read " + numChars + " chars.");
+
+    System.gc();
+
 //    start = System.currentTimeMillis();
 //    wordsAndCountsFromFiles = getWordsAndCountsFromFilesInParallel(fileNames, fileNameToWordsAndCounts, 8);
 //    System.out.println("Getting word counts in 8 threads took " + (System.currentTimeMillis() - start) + " ms.");